@@ -3,6 +3,7 @@ package org.poolen;
 import com.google.ortools.Loader;
 import javafx.application.Application;
 // We no longer need Spring or the GlobalExceptionHandler here!
+import org.poolen.backend.engine.AssignmentSolvers;
 import org.poolen.frontend.gui.LoginApplication;
 import org.poolen.util.LoggingManager;
 import org.poolen.util.SpringManager;
@@ -11,6 +12,8 @@ import org.slf4j.LoggerFactory;
 // No Spring imports needed
 import org.springframework.context.ConfigurableApplicationContext;
 
+import java.util.Arrays;
+
 import static org.poolen.util.SpringManager.setupSpringProperties;
 
 public class ApplicationLauncher {
@@ -30,8 +33,13 @@ public class ApplicationLauncher {
             setupSpringProperties(args);
 
             // 1. We NO LONGER build Spring first.
-            // We'll load our other libraries
-            Loader.loadNativeLibraries();
+            // We'll load our other libraries. With --solver-worker the native solver runs in its own
+            // JVM instead, so we leave it out of this one unless the worker ever has to be bypassed.
+            if (Arrays.stream(args).anyMatch("--solver-worker"::equalsIgnoreCase)) {
+                AssignmentSolvers.useWorker();
+            } else {
+                Loader.loadNativeLibraries();
+            }
 
             // 2. And *now* we launch the JavaFX app IMMEDIATELY!
             // Spring will be started *by* the LoginApplication.
@@ -33,7 +33,8 @@ public abstract class Settings implements ISettings {
         AVENTURINE_SHEET_NAME,
         OPAL_SHEET_NAME,
         RECAP_SHEET_NAME,
-        DISCORD_WEB_HOOK
+        DISCORD_WEB_HOOK,
+        DORMANT_AFTER
     }
 }
 
@@ -1,6 +1,7 @@
 package org.poolen.backend.db.entities;
 
 import org.poolen.backend.db.constants.House;
+import org.poolen.backend.db.store.ChangeTracker;
 
 import java.util.UUID;
 
@@ -11,6 +12,8 @@ public class Character {
     private Player player;
     private boolean isMain;
     private boolean isRetired;
+    // Taken anew on every edit, see ChangeTracker#nextRevision.
+    private long revision = ChangeTracker.nextRevision();
 
     public Character(String name, House house) {
         this(UUID.randomUUID(), name, house);
@@ -27,6 +30,7 @@ public class Character {
     }
 
     public void setUuid(UUID uuid) {
+        this.revision = ChangeTracker.nextRevision();
         this.uuid = uuid;
     }
 
@@ -35,6 +39,7 @@ public class Character {
     }
 
     public void setName(String name) {
+        this.revision = ChangeTracker.nextRevision();
         this.name = name;
     }
 
@@ -43,6 +48,7 @@ public class Character {
     }
 
     public void setHouse(House house) {
+        this.revision = ChangeTracker.nextRevision();
         this.house = house;
     }
 
@@ -51,6 +57,7 @@ public class Character {
     }
 
     public void setMain(boolean main) {
+        this.revision = ChangeTracker.nextRevision();
         this.isMain = main;
 
         if (this.player != null && main) {
@@ -62,11 +69,20 @@ public class Character {
             }
         }
     }
+
+    /**
+     * @return A number that changes with every edit to the character.
+     */
+    public long getRevision() {
+        return revision;
+    }
+
     public Player getPlayer() {
         return player;
     }
 
     public void setPlayer(Player player) {
+        this.revision = ChangeTracker.nextRevision();
         this.player = player;
     }
 
@@ -75,6 +91,7 @@ public class Character {
     }
 
     public void setRetired(boolean retired) {
+        this.revision = ChangeTracker.nextRevision();
         this.isRetired = retired;
         if(retired && this.isMain) {
             this.isMain = false;
@@ -0,0 +1,12 @@
+package org.poolen.backend.db.entities;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * What is kept of a player that hasn't been seen in a long while: enough to find them by name or UUID.
+ * Everything else about them stays in the database until they are needed again, see
+ * {@link org.poolen.backend.db.store.PlayerStore#wakePlayers}.
+ */
+public record DormantPlayer(UUID uuid, String name, boolean dungeonMaster, LocalDate lastSeen) {
+}
@@ -19,9 +19,14 @@ public class Group {
     private UUID uuid;
     private Player dungeonMaster;
     private Map<UUID, Player> party;
+    // The character each party member brings, by player UUID. Only set for players the matchmaker seated.
+    private Map<UUID, Character> characters;
     private List<House> houses;
     private LocalDate date;
     private String location;
+    // 0 means the matchmaker is free to pick the size.
+    private int minSize;
+    private int maxSize;
 
     public Group(Player dungeonMaster, List<House> houses, LocalDate date, String location) {
         this.uuid = UUID.randomUUID();
@@ -30,6 +35,7 @@ public class Group {
         this.date = date;
         this.location = location;
         this.party = new HashMap<>();
+        this.characters = new HashMap<>();
     }
 
     @Override
@@ -81,7 +87,7 @@ public class Group {
         } else {
             party.values().stream()
                     .sorted(Comparator.comparing(Player::getName))
-                    .forEach(player -> sb.append("> • ").append(player.getName()).append("\n"));
+                    .forEach(player -> sb.append("> • ").append(getPartyMemberLabel(player)).append("\n"));
         }
 
         return sb.toString();
@@ -118,6 +124,30 @@ public class Group {
 
     public void removePartyMember(Player player) {
         this.party.remove(player.getUuid());
+        this.characters.remove(player.getUuid());
+    }
+
+    /**
+     * @return The character the player brings to this group, or null if none was picked.
+     */
+    public Character getCharacter(Player player) {
+        return characters.get(player.getUuid());
+    }
+
+    public void setCharacter(Player player, Character character) {
+        if (character == null) {
+            this.characters.remove(player.getUuid());
+        } else {
+            this.characters.put(player.getUuid(), character);
+        }
+    }
+
+    /**
+     * @return The player's name, followed by their character in brackets if one was picked.
+     */
+    public String getPartyMemberLabel(Player player) {
+        Character character = getCharacter(player);
+        return character != null ? player.getName() + " (" + character.getName() + ")" : player.getName();
     }
 
     public List<House> getHouses() {
@@ -146,6 +176,22 @@ public class Group {
         this.date = date;
     }
 
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public void setMinSize(int minSize) {
+        this.minSize = Math.max(0, minSize);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = Math.max(0, maxSize);
+    }
+
     public UUID getUuid() {
         return uuid;
     }
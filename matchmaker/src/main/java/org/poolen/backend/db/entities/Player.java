@@ -1,9 +1,14 @@
 package org.poolen.backend.db.entities;
 
+import org.poolen.backend.db.interfaces.IRelationshipListener;
+import org.poolen.backend.db.store.ChangeTracker;
+import org.poolen.backend.db.store.PlayLog;
+import org.poolen.backend.db.store.PlayerIdSet;
+import org.poolen.backend.db.store.PlayerIndex;
+
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
@@ -13,34 +18,97 @@ import java.util.UUID;
 
 public class Player {
     private UUID uuid;
+    // The index the relationship sets and play log keep their ids in: the store's, or one of the caller's own.
+    private final PlayerIndex playerIndex;
+    // The player's dense id, see PlayerIndex. Handed out by the store when the player is added, -1 until then.
+    private int id = -1;
+    // Worked out from the UUID when it is set, see equals.
+    private int hash;
     private String name;
     private Set<Character> characters = new HashSet<>();
 
-    private Set<UUID> buddylist = new HashSet<>();
-    private Set<UUID> blacklist = new HashSet<>();
-    private Set<UUID> DmBlacklist = new HashSet<>();
-    private Map<UUID, LocalDate> playerLog = new HashMap<>();
+    // Kept as bitsets over player ids; they are still Set<UUID> to everyone else.
+    private PlayerIdSet buddylist;
+    private PlayerIdSet blacklist;
+    private PlayerIdSet DmBlacklist;
+    private PlayLog playerLog;
 
     private boolean isDungeonMaster;
     private LocalDate lastSeen;
+    // Set by the player store, so its relationship index hears about every change made through this class.
+    private IRelationshipListener relationshipListener;
+    // Taken anew on every edit to the player's own fields, see ChangeTracker#nextRevision.
+    private long revision = ChangeTracker.nextRevision();
 
 
-    public Player(String name, boolean isDungeonMaster) {
-        this(UUID.randomUUID(), name, isDungeonMaster);
+    public Player(String name, boolean isDungeonMaster, PlayerIndex playerIndex) {
+        this(UUID.randomUUID(), name, isDungeonMaster, playerIndex);
     }
 
-    public Player(UUID uuid, String name, boolean isDungeonMaster) {
+    /**
+     * @param playerIndex The index the player's relationships are kept in. Use the store's for players that
+     *                    go into the store, see {@link org.poolen.backend.db.store.PlayerStore#getPlayerIndex()}.
+     */
+    public Player(UUID uuid, String name, boolean isDungeonMaster, PlayerIndex playerIndex) {
         this.uuid = uuid;
+        this.hash = Objects.hashCode(uuid);
         this.name = name;
         this.isDungeonMaster = isDungeonMaster;
+        this.playerIndex = playerIndex;
+        this.buddylist = new PlayerIdSet(playerIndex);
+        this.blacklist = new PlayerIdSet(playerIndex);
+        this.DmBlacklist = new PlayerIdSet(playerIndex);
+        this.playerLog = new PlayLog(playerIndex);
     }
 
     public UUID getUuid() {
         return uuid;
     }
 
+    /**
+     * Changes the player's identity. Don't call this while the player is in a hashed collection.
+     */
     public void setUuid(UUID uuid) {
+        this.revision = ChangeTracker.nextRevision();
         this.uuid = uuid;
+        this.id = -1;
+        this.hash = Objects.hashCode(uuid);
+    }
+
+    /**
+     * @return The player's id in the store's {@link org.poolen.backend.db.store.PlayerIndex}, or -1 if the
+     * player was never added to the store.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Set by the player store when the player is added to it.
+     */
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public PlayerIndex getPlayerIndex() {
+        return playerIndex;
+    }
+
+    /**
+     * @return A number that changes whenever anything about the player does, their relationships, play log
+     * and characters included. Two different states never share it, so it can stand in for the content.
+     */
+    public long getRevision() {
+        long fingerprint = ChangeTracker.mix(revision, buddylist.getRevision());
+        fingerprint = ChangeTracker.mix(fingerprint, blacklist.getRevision());
+        fingerprint = ChangeTracker.mix(fingerprint, DmBlacklist.getRevision());
+        fingerprint = ChangeTracker.mix(fingerprint, playerLog.getRevision());
+        // Characters can be added to the set directly, so the set itself is folded in as well.
+        long characterRevisions = 0;
+        for (Character character : characters) {
+            characterRevisions += ChangeTracker.mix(character.getRevision(), character.hashCode());
+        }
+        return ChangeTracker.mix(ChangeTracker.mix(fingerprint, characters.size()), characterRevisions);
     }
 
     public String getName() {
@@ -48,10 +116,12 @@ public class Player {
     }
 
     public void setName(String name) {
+        this.revision = ChangeTracker.nextRevision();
         this.name = name;
     }
 
     public void addCharacter(Character character) {
+        this.revision = ChangeTracker.nextRevision();
         this.characters.add(character);
     }
 
@@ -62,6 +132,7 @@ public class Player {
             Character character = iterator.next();
             if (character.getUuid().equals(charToRemove.getUuid())) {
                 iterator.remove();
+                this.revision = ChangeTracker.nextRevision();
                 return;
             }
         }
@@ -72,6 +143,7 @@ public class Player {
     }
 
     public void setCharacters(Set<Character> characters) {
+        this.revision = ChangeTracker.nextRevision();
         this.characters = characters;
     }
 
@@ -80,6 +152,7 @@ public class Player {
     }
 
     public void setDungeonMaster(boolean dungeonMaster) {
+        this.revision = ChangeTracker.nextRevision();
         isDungeonMaster = dungeonMaster;
     }
 
@@ -88,7 +161,25 @@ public class Player {
     }
 
     public void setBuddylist(Set<UUID> buddylist) {
-        this.buddylist = buddylist;
+        this.revision = ChangeTracker.nextRevision();
+        this.buddylist = PlayerIdSet.copyOf(playerIndex, buddylist);
+        if (relationshipListener != null) relationshipListener.onRelationshipsReplaced(this);
+    }
+
+    public boolean hasBuddy(Player player) {
+        return this.buddylist.containsPlayer(player);
+    }
+
+    public void addBuddy(Player player) {
+        if (this.buddylist.addPlayer(player) && relationshipListener != null) {
+            relationshipListener.onRelationshipChanged(this, player);
+        }
+    }
+
+    public void removeBuddy(Player player) {
+        if (this.buddylist.removePlayer(player) && relationshipListener != null) {
+            relationshipListener.onRelationshipChanged(this, player);
+        }
     }
 
     public Set<UUID> getBlacklist() {
@@ -96,18 +187,26 @@ public class Player {
     }
 
     public void setBlacklist(Set<UUID> blacklist) {
-        this.blacklist = blacklist;
+        this.revision = ChangeTracker.nextRevision();
+        this.blacklist = PlayerIdSet.copyOf(playerIndex, blacklist);
+        if (relationshipListener != null) relationshipListener.onRelationshipsReplaced(this);
+    }
+
+    public boolean hasBlacklisted(Player player) {
+        return this.blacklist.containsPlayer(player);
     }
+
     public void blacklist(Player player) {
         // First, check if we've already blacklisted this player.
         // If we have, our work is done and we can stop!
-        if (this.blacklist.contains(player.getUuid())) {
+        if (this.blacklist.containsPlayer(player)) {
             return;
         }
 
         // If not, add them to our list and the log...
-        this.blacklist.add(player.getUuid());
-        this.playerLog.put(player.getUuid(), LocalDate.now());
+        this.blacklist.addPlayer(player);
+        this.playerLog.record(player, PlayLog.toEpochDay(LocalDate.now()));
+        if (relationshipListener != null) relationshipListener.onRelationshipChanged(this, player);
 
         // ...and now we can safely tell them to blacklist us back!
         player.blacklist(this);
@@ -116,12 +215,13 @@ public class Player {
     public void unblacklist(Player player) {
         // First, check if we've actually blacklisted this player.
         // If we have, our work is done and we can stop!
-        if (!this.blacklist.contains(player.getUuid())) {
+        if (!this.blacklist.containsPlayer(player)) {
             return;
         }
 
         // If not, remove them to our list...
-        this.blacklist.remove(player.getUuid());
+        this.blacklist.removePlayer(player);
+        if (relationshipListener != null) relationshipListener.onRelationshipChanged(this, player);
 
         // ...and now we can safely tell them to unblacklist us back!
         player.unblacklist(this);
@@ -136,21 +236,49 @@ public class Player {
     }
 
     public void setDmBlacklist(Set<UUID> dmBlacklist) {
-        DmBlacklist = dmBlacklist;
+        this.revision = ChangeTracker.nextRevision();
+        DmBlacklist = PlayerIdSet.copyOf(playerIndex, dmBlacklist);
+        if (relationshipListener != null) relationshipListener.onRelationshipsReplaced(this);
     }
     public void blacklistDm(Player player) {
-        this.DmBlacklist.add(player.getUuid());
+        if (this.DmBlacklist.addPlayer(player) && relationshipListener != null) {
+            relationshipListener.onRelationshipChanged(this, player);
+        }
+    }
+
+    public void unblacklistDm(Player player) {
+        if (this.DmBlacklist.removePlayer(player) && relationshipListener != null) {
+            relationshipListener.onRelationshipChanged(this, player);
+        }
+    }
+
+    public boolean hasDmBlacklisted(Player dungeonMaster) {
+        return this.DmBlacklist.containsPlayer(dungeonMaster);
     }
 
-    public Map<UUID, LocalDate> getPlayerLog() {
+    public PlayLog getPlayerLog() {
         return playerLog;
     }
 
     public void setPlayerLog(Map<UUID, LocalDate> playerLog) {
-        this.playerLog = playerLog;
+        this.revision = ChangeTracker.nextRevision();
+        this.playerLog = PlayLog.copyOf(playerIndex, playerLog);
+        if (relationshipListener != null) relationshipListener.onRelationshipsReplaced(this);
+    }
+
+    /**
+     * @return The epoch day this player last played with the other, or {@link PlayLog#NEVER}.
+     */
+    public int lastPlayedEpochDay(Player player) {
+        return this.playerLog.getEpochDay(player);
+    }
+
+    public void setRelationshipListener(IRelationshipListener relationshipListener) {
+        this.relationshipListener = relationshipListener;
     }
 
     public void setLastSeen(LocalDate lastSeen) {
+        this.revision = ChangeTracker.nextRevision();
         this.lastSeen = lastSeen;
     }
 
@@ -170,10 +298,15 @@ public class Player {
     public void updatePlayerLog(Group group) {
         for (Player player : group.getParty().values()) {
             if (player.equals(this)) { continue; }
-            this.playerLog.put(player.getUuid(), group.getDate());
+            this.playerLog.record(player, PlayLog.toEpochDay(group.getDate()));
+            if (relationshipListener != null) relationshipListener.onPlayedTogether(this, player, group.getDate());
         }
     }
 
+    /**
+     * Compares everything about the two players, unlike {@link #equals} which only looks at who they are.
+     * Characters are compared as objects, so a player holding a copy of a character counts as changed.
+     */
     public boolean deepEquals(Player player) {
         if( this == player) { return  true; }
         if(player == null) { return  false; }
@@ -188,7 +321,12 @@ public class Player {
                 this.isDungeonMaster == player.isDungeonMaster;
     }
 
-
+    /**
+     * Two players are equal when they have the same UUID, the same key they have in the database. A player
+     * stays the same player through edits, so one that is renamed or gets a new buddy while it sits in a
+     * set, a map key or a group's party is still found there. Use {@link #deepEquals} to tell whether
+     * anything about it changed.
+     */
     @Override
     public boolean equals(Object o) {
         if (this == o) { return true; }
@@ -199,6 +337,6 @@ public class Player {
 
     @Override
     public int hashCode() {
-        return Objects.hash(uuid, name, characters, buddylist, blacklist, DmBlacklist, playerLog, isDungeonMaster, lastSeen);
+        return hash;
     }
 }
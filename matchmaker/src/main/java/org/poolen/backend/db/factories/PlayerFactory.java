@@ -52,7 +52,9 @@ public class PlayerFactory {
         if (uuid != null) {
             logger.info("Creating player from data with provided UUID: {}. Name: '{}', IsDM: {}", uuid, name, isDungeonMaster);
         }
-        Player newPlayer = uuid == null ? new Player(name, isDungeonMaster) : new Player(uuid, name, isDungeonMaster);
+        Player newPlayer = uuid == null
+                ? new Player(name, isDungeonMaster, playerStore.getPlayerIndex())
+                : new Player(uuid, name, isDungeonMaster, playerStore.getPlayerIndex());
         playerStore.addPlayer(newPlayer);
         logger.info("Successfully created and stored new player '{}' (UUID: {}).", newPlayer.getName(), newPlayer.getUuid());
         return newPlayer;
@@ -0,0 +1,19 @@
+package org.poolen.backend.db.interfaces;
+
+import org.poolen.backend.db.entities.Player;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Reads players the store only holds as dormant stubs, with everything that belongs to them.
+ */
+public interface IPlayerLoader {
+
+    /**
+     * @param uuids The players to read.
+     * @return The players that were found, with their characters. Unknown UUIDs are left out.
+     */
+    Collection<Player> load(Set<UUID> uuids);
+}
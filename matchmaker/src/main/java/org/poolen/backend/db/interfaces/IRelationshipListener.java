@@ -0,0 +1,26 @@
+package org.poolen.backend.db.interfaces;
+
+import org.poolen.backend.db.entities.Player;
+
+import java.time.LocalDate;
+
+/**
+ * Gets told when a player's relationships with other players change, so derived indexes can follow along.
+ */
+public interface IRelationshipListener {
+
+    /**
+     * The two players played together on the given date.
+     */
+    void onPlayedTogether(Player player, Player partner, LocalDate date);
+
+    /**
+     * Something between the two players changed, e.g. a buddy, blacklist or DM blacklist entry.
+     */
+    void onRelationshipChanged(Player player, Player other);
+
+    /**
+     * The player's relationship lists were replaced wholesale.
+     */
+    void onRelationshipsReplaced(Player player);
+}
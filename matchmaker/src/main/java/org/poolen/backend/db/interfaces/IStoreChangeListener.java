@@ -0,0 +1,15 @@
+package org.poolen.backend.db.interfaces;
+
+import org.poolen.backend.db.store.StoreChange;
+
+/**
+ * Gets told what each commit changed in the stores, once the commit is visible to readers.
+ */
+public interface IStoreChangeListener {
+
+    /**
+     * Called on the thread that made the change, after it let go of the stores. Listeners that touch the
+     * UI have to hop over to its thread themselves.
+     */
+    void onStoreChanged(StoreChange change);
+}
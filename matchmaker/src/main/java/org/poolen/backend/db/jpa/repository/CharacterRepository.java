@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -33,5 +34,17 @@ public interface CharacterRepository extends JpaRepository<CharacterEntity, Long
             "LEFT JOIN FETCH p.dmBlacklist " +
             "LEFT JOIN FETCH p.playerLog")
     List<CharacterEntity> findAllWithDetails();
+
+    // The owner is joined a second time to filter on, so the WHERE clause never touches a fetch join.
+    @Query("SELECT DISTINCT c FROM CharacterEntity c " +
+            "LEFT JOIN c.player owner " +
+            "LEFT JOIN FETCH c.player p " +
+            "LEFT JOIN FETCH p.characters " +
+            "LEFT JOIN FETCH p.blacklist " +
+            "LEFT JOIN FETCH p.buddylist " +
+            "LEFT JOIN FETCH p.dmBlacklist " +
+            "LEFT JOIN FETCH p.playerLog " +
+            "WHERE owner IS NULL OR owner.lastSeen IS NULL OR owner.lastSeen >= :cutoff")
+    List<CharacterEntity> findAllOfPlayersSeenSinceWithDetails(@Param("cutoff") LocalDate cutoff);
 }
 
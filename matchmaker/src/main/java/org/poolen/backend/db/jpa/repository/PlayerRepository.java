@@ -1,11 +1,13 @@
 package org.poolen.backend.db.jpa.repository;
 
+import org.poolen.backend.db.entities.DormantPlayer;
 import org.poolen.backend.db.jpa.entities.PlayerEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -31,5 +33,18 @@ public interface PlayerRepository extends JpaRepository<PlayerEntity, Long> {
             "LEFT JOIN FETCH p.dmBlacklist " +
             "LEFT JOIN FETCH p.playerLog")
     List<PlayerEntity> findAllWithDetails();
+
+    @Query("SELECT DISTINCT p FROM PlayerEntity p " +
+            "LEFT JOIN FETCH p.characters " +
+            "LEFT JOIN FETCH p.blacklist " +
+            "LEFT JOIN FETCH p.buddylist " +
+            "LEFT JOIN FETCH p.dmBlacklist " +
+            "LEFT JOIN FETCH p.playerLog " +
+            "WHERE p.lastSeen IS NULL OR p.lastSeen >= :cutoff")
+    List<PlayerEntity> findAllSeenSinceWithDetails(@Param("cutoff") LocalDate cutoff);
+
+    @Query("SELECT new org.poolen.backend.db.entities.DormantPlayer(p.uuid, p.name, p.isDungeonMaster, p.lastSeen) " +
+            "FROM PlayerEntity p WHERE p.lastSeen < :cutoff")
+    List<DormantPlayer> findAllDormantBefore(@Param("cutoff") LocalDate cutoff);
 }
 
@@ -15,6 +15,7 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -144,6 +145,22 @@ public class CharacterService implements IService<Character, CharacterEntity> {
         return foundCharacters;
     }
 
+    /**
+     * Finds the characters of the players seen on or after the cutoff, or never seen, and the ones without a
+     * player. The characters of dormant players are read with them when they are needed.
+     * @param cutoff The earliest last-seen date of the players whose characters are read.
+     * @return A set of the characters found.
+     */
+    @Transactional(readOnly = true)
+    public Set<Character> findAllOfPlayersSeenSince(LocalDate cutoff) {
+        logger.info("Finding the characters of players seen since {} with full details.", cutoff);
+        Set<Character> foundCharacters = characterRepository.findAllOfPlayersSeenSinceWithDetails(cutoff).stream()
+                .map(this::toDomainObject)
+                .collect(Collectors.toCollection(HashSet::new));
+        logger.info("Found {} characters of active players.", foundCharacters.size());
+        return foundCharacters;
+    }
+
     @Override
     public Character toDomainObject(CharacterEntity entity) {
         if (entity == null) {
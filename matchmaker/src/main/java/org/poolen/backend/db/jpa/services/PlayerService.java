@@ -1,6 +1,7 @@
 package org.poolen.backend.db.jpa.services;
 
 import org.poolen.backend.db.entities.Character;
+import org.poolen.backend.db.entities.DormantPlayer;
 import org.poolen.backend.db.entities.Player;
 import org.poolen.backend.db.interfaces.IPlayerService;
 import org.poolen.backend.db.jpa.entities.CharacterEntity;
@@ -8,6 +9,8 @@ import org.poolen.backend.db.jpa.entities.PlayLogEntity;
 import org.poolen.backend.db.jpa.entities.PlayerEntity;
 import org.poolen.backend.db.jpa.repository.CharacterRepository;
 import org.poolen.backend.db.jpa.repository.PlayerRepository;
+import org.poolen.backend.db.store.PlayerIndex;
+import org.poolen.backend.db.store.Store;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +18,7 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -35,11 +39,15 @@ public class PlayerService implements IPlayerService {
     private final PlayerRepository playerRepository;
     private final CharacterRepository characterRepository;
     private final CharacterService characterService;
+    // Loaded players go into the store, so they are built with its index.
+    private final PlayerIndex playerIndex;
     @Autowired
-    public PlayerService(PlayerRepository playerRepository, CharacterRepository characterRepository, @Lazy CharacterService characterService) {
+    public PlayerService(PlayerRepository playerRepository, CharacterRepository characterRepository, @Lazy CharacterService characterService,
+                         Store store) {
         this.playerRepository = playerRepository;
         this.characterRepository = characterRepository;
         this.characterService = characterService;
+        this.playerIndex = store.getPlayerStore().getPlayerIndex();
         logger.info("PlayerService initialised.");
     }
 
@@ -161,6 +169,53 @@ public class PlayerService implements IPlayerService {
         return foundPlayers;
     }
 
+    /**
+     * Finds the players seen on or after the cutoff, and the ones never seen, with full details.
+     * @param cutoff The earliest last-seen date of the players read.
+     * @return A set of the players found.
+     */
+    @Transactional(readOnly = true)
+    public Set<Player> findAllSeenSince(LocalDate cutoff) {
+        logger.info("Finding players seen since {} with full details.", cutoff);
+        Set<Player> foundPlayers = playerRepository.findAllSeenSinceWithDetails(cutoff).stream()
+                .map(this::toDomainObject)
+                .collect(Collectors.toCollection(HashSet::new));
+        logger.info("Found {} active players.", foundPlayers.size());
+        return foundPlayers;
+    }
+
+    /**
+     * Finds the players last seen before the cutoff, as stubs. Their details are read by
+     * {@link #findAllByUuid} once they are needed.
+     * @param cutoff The date the players were last seen before.
+     * @return The dormant players found.
+     */
+    @Transactional(readOnly = true)
+    public List<DormantPlayer> findAllDormantBefore(LocalDate cutoff) {
+        logger.info("Finding players not seen since {}.", cutoff);
+        List<DormantPlayer> dormantPlayers = playerRepository.findAllDormantBefore(cutoff);
+        logger.info("Found {} dormant players.", dormantPlayers.size());
+        return dormantPlayers;
+    }
+
+    /**
+     * Finds the given players with full details, including their characters.
+     * @param uuids The UUIDs of the players to find.
+     * @return A set of the players found. UUIDs without a player are left out.
+     */
+    @Transactional(readOnly = true)
+    public Set<Player> findAllByUuid(Set<UUID> uuids) {
+        if (uuids == null || uuids.isEmpty()) {
+            return new HashSet<>();
+        }
+        logger.debug("Finding {} players by UUID with full details.", uuids.size());
+        Set<Player> foundPlayers = playerRepository.findAllByUuidInWithDetails(uuids).stream()
+                .map(this::toDomainObject)
+                .collect(Collectors.toCollection(HashSet::new));
+        logger.debug("Found {} of the {} players asked for.", foundPlayers.size(), uuids.size());
+        return foundPlayers;
+    }
+
     @Override
     public Player toDomainObject(PlayerEntity entity) {
         return toDomainObject(entity, true);
@@ -174,7 +229,7 @@ public class PlayerService implements IPlayerService {
         }
         logger.trace("Mapping shallow PlayerEntity (UUID: {}) to domain object.", entity.getUuid());
 
-        Player player = new Player(entity.getUuid(), entity.getName(), entity.isDungeonMaster());
+        Player player = new Player(entity.getUuid(), entity.getName(), entity.isDungeonMaster(), playerIndex);
         player.setLastSeen(entity.getLastSeen());
 
         player.setBlacklist(entity.getBlacklist().stream().map(PlayerEntity::getUuid).collect(Collectors.toCollection(HashSet::new)));
@@ -1,18 +1,34 @@
 package org.poolen.backend.db.persistence;
 
+import org.poolen.backend.db.entities.Character;
+import org.poolen.backend.db.entities.DormantPlayer;
+import org.poolen.backend.db.entities.Player;
+import org.poolen.backend.db.entities.Setting;
 import org.poolen.backend.db.jpa.services.CharacterService;
 import org.poolen.backend.db.jpa.services.PlayerService;
+import org.poolen.backend.db.interfaces.ISettings;
 import org.poolen.backend.db.jpa.services.SettingService;
+import org.poolen.backend.db.store.ChangeTracker;
+import org.poolen.backend.db.store.ChangeTracker.ChangeSet;
 import org.poolen.backend.db.store.Store;
 import org.poolen.frontend.util.interfaces.UiUpdater;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
+import static org.poolen.backend.db.constants.Settings.PersistenceSettings.DORMANT_AFTER;
+
 @Service
 public class StorePersistenceService {
 
+    private static final Logger logger = LoggerFactory.getLogger(StorePersistenceService.class);
+
     private final Store store;
     private final CharacterService characterService;
     private final PlayerService playerService;
@@ -24,6 +40,7 @@ public class StorePersistenceService {
         this.characterService = characterService;
         this.playerService = playerService;
         this.settingsService = settingsService;
+        store.getPlayerStore().setPlayerLoader(playerService::findAllByUuid);
     }
     public void saveAll() {
         saveAllSettings();
@@ -31,14 +48,54 @@ public class StorePersistenceService {
         saveAllCharacters();
     }
 
+    /**
+     * Saves only what changed since it was last saved or loaded, see {@link ChangeTracker}.
+     */
+    public void saveChanges() {
+        saveChangedSettings();
+        saveChangedPlayers();
+        saveChangedCharacters();
+    }
+
+    /**
+     * Reloads every store from the database. Everything is read first and swapped in as one commit,
+     * so nobody sees the stores empty or half filled while the queries run.
+     * <p>
+     * Players not seen for longer than the {@code DORMANT_AFTER} setting are only read as stubs, and
+     * their characters not at all, see {@link org.poolen.backend.db.store.PlayerStore#wakePlayers}.
+     */
     public void findAll() {
-        store.getCharacterStore().clear();
-        store.getPlayerStore().clear();
-        store.getSettingsStore().clear();
-        findSettings();
-        findPlayers();
-        findCharacters();
+        Set<Setting<?>> settings = settingsService.findAll();
+        LocalDate cutoff = dormantCutoff(settings);
+        Set<Player> players = cutoff != null ? playerService.findAllSeenSince(cutoff) : playerService.findAll();
+        List<DormantPlayer> dormantPlayers = cutoff != null ? playerService.findAllDormantBefore(cutoff) : List.of();
+        Set<Character> characters = cutoff != null
+                ? characterService.findAllOfPlayersSeenSince(cutoff) : characterService.findAll();
+        store.commit(() -> {
+            store.getCharacterStore().clear();
+            store.getPlayerStore().clear();
+            store.getSettingsStore().clear();
+            store.getSettingsStore().init(settings);
+            store.getPlayerStore().init(players);
+            store.getPlayerStore().initDormant(dormantPlayers);
+            store.getCharacterStore().init(characters);
+        });
+        logger.info("Loaded {} players in full and {} dormant players as stubs.", players.size(), dormantPlayers.size());
+    }
 
+    /**
+     * @return The date players have to have been seen since to be read in full, or null to read everyone.
+     */
+    private LocalDate dormantCutoff(Set<Setting<?>> settings) {
+        Object weeks = settings.stream()
+                .filter(setting -> setting.getName() == DORMANT_AFTER)
+                .<Object>map(Setting::getSettingValue)
+                .findFirst()
+                .orElseGet(() -> store.getSettingsStore().getSetting(DORMANT_AFTER).getSettingValue());
+        if (!(weeks instanceof Number number) || number.longValue() <= 0) {
+            return null;
+        }
+        return LocalDate.now().minusWeeks(number.longValue());
     }
 
     public void findSettings() {
@@ -46,17 +103,61 @@ public class StorePersistenceService {
     }
 
     public void saveAllSettings() {
-        settingsService.saveAll(store.getSettingsStore().getSettings());
+        ChangeTracker<ISettings, Setting<?>> tracker = store.getSettingsStore().getChangeTracker();
+        ChangeSet<ISettings, Setting<?>> settings = tracker.capture(store.getSettingsStore().getSettings());
+        settingsService.saveAll(settings.getEntities());
+        tracker.markSaved(settings);
+    }
+
+    /**
+     * @return How many settings were saved.
+     */
+    public int saveChangedSettings() {
+        ChangeTracker<ISettings, Setting<?>> tracker = store.getSettingsStore().getChangeTracker();
+        ChangeSet<ISettings, Setting<?>> changes = tracker.getChanges();
+        if (!changes.isEmpty()) {
+            settingsService.saveAll(changes.getEntities());
+            tracker.markSaved(changes);
+        }
+        logger.info("Saved {} changed settings.", changes.size());
+        return changes.size();
     }
 
     public void findCharacters() {
-        store.getCharacterStore().init(characterService.findAll());
+        LocalDate cutoff = dormantCutoff(store.getSettingsStore().getSettings());
+        store.getCharacterStore().init(cutoff != null
+                ? characterService.findAllOfPlayersSeenSince(cutoff) : characterService.findAll());
     }
     public void saveCharacter(UUID uuid) {
-        characterService.save(store.getCharacterStore().getCharacterByUuid(uuid));
+        Character character = store.getCharacterStore().getCharacterByUuid(uuid);
+        if (character == null) {
+            logger.warn("No character with UUID {} to save.", uuid);
+            return;
+        }
+        ChangeTracker<UUID, Character> tracker = store.getCharacterStore().getChangeTracker();
+        ChangeSet<UUID, Character> saved = tracker.capture(List.of(character));
+        characterService.save(character);
+        tracker.markSaved(saved);
     }
     public void saveAllCharacters() {
-        characterService.saveAll(store.getCharacterStore().getAllCharacters());
+        ChangeTracker<UUID, Character> tracker = store.getCharacterStore().getChangeTracker();
+        ChangeSet<UUID, Character> characters = tracker.capture(store.getCharacterStore().getAllCharacters());
+        characterService.saveAll(characters.getEntities());
+        tracker.markSaved(characters);
+    }
+
+    /**
+     * @return How many characters were saved.
+     */
+    public int saveChangedCharacters() {
+        ChangeTracker<UUID, Character> tracker = store.getCharacterStore().getChangeTracker();
+        ChangeSet<UUID, Character> changes = tracker.getChanges();
+        if (!changes.isEmpty()) {
+            characterService.saveAll(changes.getEntities());
+            tracker.markSaved(changes);
+        }
+        logger.info("Saved {} changed characters.", changes.size());
+        return changes.size();
     }
 
     public void deleteCharacter(UUID uuid) {
@@ -64,13 +165,48 @@ public class StorePersistenceService {
     }
 
     public void findPlayers() {
-        store.getPlayerStore().init(playerService.findAll());
+        LocalDate cutoff = dormantCutoff(store.getSettingsStore().getSettings());
+        if (cutoff == null) {
+            store.getPlayerStore().init(playerService.findAll());
+            return;
+        }
+        Set<Player> players = playerService.findAllSeenSince(cutoff);
+        List<DormantPlayer> dormantPlayers = playerService.findAllDormantBefore(cutoff);
+        store.commit(() -> {
+            store.getPlayerStore().init(players);
+            store.getPlayerStore().initDormant(dormantPlayers);
+        });
     }
     public void savePlayer(UUID uuid) {
-        playerService.save(store.getPlayerStore().getPlayerByUuid(uuid));
+        Player player = store.getPlayerStore().getPlayerByUuid(uuid);
+        if (player == null) {
+            logger.warn("No player with UUID {} to save.", uuid);
+            return;
+        }
+        ChangeTracker<UUID, Player> tracker = store.getPlayerStore().getChangeTracker();
+        ChangeSet<UUID, Player> saved = tracker.capture(List.of(player));
+        playerService.save(player);
+        tracker.markSaved(saved);
     }
     public void saveAllPlayers() {
-        playerService.saveAll(store.getPlayerStore().getAllPlayers());
+        ChangeTracker<UUID, Player> tracker = store.getPlayerStore().getChangeTracker();
+        ChangeSet<UUID, Player> players = tracker.capture(store.getPlayerStore().getAllPlayers());
+        playerService.saveAll(players.getEntities());
+        tracker.markSaved(players);
+    }
+
+    /**
+     * @return How many players were saved.
+     */
+    public int saveChangedPlayers() {
+        ChangeTracker<UUID, Player> tracker = store.getPlayerStore().getChangeTracker();
+        ChangeSet<UUID, Player> changes = tracker.getChanges();
+        if (!changes.isEmpty()) {
+            playerService.saveAll(changes.getEntities());
+            tracker.markSaved(changes);
+        }
+        logger.info("Saved {} changed players.", changes.size());
+        return changes.size();
     }
 
 
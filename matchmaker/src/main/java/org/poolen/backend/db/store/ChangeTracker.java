@@ -0,0 +1,193 @@
+package org.poolen.backend.db.store;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Keeps track of which entities of a store have changed since they were last saved, so a save only has to
+ * write those. There are two ways an entity is found to have changed:
+ * <ul>
+ *     <li>The store marks it when it is added, re-added after an edit, or had its relationships changed.</li>
+ *     <li>As a fallback for edits made in place that the store never hears about, a fingerprint of every
+ *     entity's content is compared to the fingerprint it had when it was last saved or loaded.</li>
+ * </ul>
+ * Entities that were never saved have no fingerprint, so they always count as changed.
+ * <p>
+ * A save first takes a {@link ChangeSet}, writes it, and then hands it back to {@link #markSaved}. Anything
+ * marked again in between stays marked, so an edit made during a save is picked up by the next one.
+ *
+ * @param <K> What the store keys the entities by.
+ * @param <T> The entity.
+ */
+public class ChangeTracker<K, T> {
+
+    private static final AtomicLong REVISIONS = new AtomicLong();
+
+    private final Function<T, K> keyOf;
+    private final ToLongFunction<T> fingerprintOf;
+    private final Supplier<Collection<T>> current;
+
+    // Keys marked by the store, with the mark's number, so a save can tell whether it was marked again since.
+    private final Map<K, Long> marked = new HashMap<>();
+    // The fingerprint each entity had when it was last saved or loaded.
+    private final Map<K, Long> saved = new HashMap<>();
+    private long marks;
+
+    /**
+     * What a save is about to write: the changed entities, with the marks and fingerprints they had when it
+     * was taken.
+     */
+    public static final class ChangeSet<K, T> {
+        private final Set<T> entities;
+        private final Map<K, Long> marks;
+        private final Map<K, Long> fingerprints;
+
+        private ChangeSet(Set<T> entities, Map<K, Long> marks, Map<K, Long> fingerprints) {
+            this.entities = Collections.unmodifiableSet(entities);
+            this.marks = marks;
+            this.fingerprints = fingerprints;
+        }
+
+        public Set<T> getEntities() {
+            return entities;
+        }
+
+        public boolean isEmpty() {
+            return entities.isEmpty();
+        }
+
+        public int size() {
+            return entities.size();
+        }
+    }
+
+    ChangeTracker(Function<T, K> keyOf, ToLongFunction<T> fingerprintOf, Supplier<Collection<T>> current) {
+        this.keyOf = keyOf;
+        this.fingerprintOf = fingerprintOf;
+        this.current = current;
+    }
+
+    /**
+     * @return The entities, as of the last commit, that changed since they were last saved.
+     */
+    public synchronized ChangeSet<K, T> getChanges() {
+        return collect(current.get(), true);
+    }
+
+    /**
+     * @return The given entities as a change set, changed or not. For saves that write them regardless.
+     */
+    public synchronized ChangeSet<K, T> capture(Collection<T> entities) {
+        return collect(entities, false);
+    }
+
+    /**
+     * Records that the change set was written. Its entities count as unchanged from now on, unless they
+     * were marked again or edited since the set was taken.
+     */
+    public synchronized void markSaved(ChangeSet<K, T> changes) {
+        changes.fingerprints.forEach((key, fingerprint) -> {
+            saved.put(key, fingerprint);
+            if (Objects.equals(marked.get(key), changes.marks.get(key))) {
+                marked.remove(key);
+            }
+        });
+    }
+
+    /**
+     * @return How many entities are marked as changed. The fingerprint fallback isn't run for this.
+     */
+    public synchronized int getMarkedCount() {
+        return marked.size();
+    }
+
+    synchronized void markChanged(K key) {
+        marked.put(key, ++marks);
+    }
+
+    /**
+     * Records entities that were just read from the database as saved.
+     */
+    synchronized void markLoaded(Collection<T> entities) {
+        for (T entity : entities) {
+            K key = keyOf.apply(entity);
+            saved.put(key, fingerprintOf.applyAsLong(entity));
+            marked.remove(key);
+        }
+    }
+
+    /**
+     * Forgets a removed entity, so it counts as new if it is ever added again.
+     */
+    synchronized void forget(K key) {
+        marked.remove(key);
+        saved.remove(key);
+    }
+
+    synchronized void clear() {
+        marked.clear();
+        saved.clear();
+    }
+
+    private ChangeSet<K, T> collect(Collection<T> entities, boolean changedOnly) {
+        Set<T> changed = new HashSet<>();
+        Map<K, Long> changeMarks = new HashMap<>();
+        Map<K, Long> fingerprints = new HashMap<>();
+        for (T entity : entities) {
+            K key = keyOf.apply(entity);
+            Long mark = marked.get(key);
+            long fingerprint = fingerprintOf.applyAsLong(entity);
+            if (!changedOnly || mark != null || !Objects.equals(saved.get(key), fingerprint)) {
+                changed.add(entity);
+                fingerprints.put(key, fingerprint);
+                if (mark != null) {
+                    changeMarks.put(key, mark);
+                }
+            }
+        }
+        return new ChangeSet<>(changed, changeMarks, fingerprints);
+    }
+
+    /**
+     * @return A revision number nothing has had before. Entities and their collections take a new one on
+     * every edit, so a state seen once can be recognised again without looking at its content.
+     */
+    public static long nextRevision() {
+        return REVISIONS.incrementAndGet();
+    }
+
+    /**
+     * Folds a value into a running fingerprint.
+     */
+    public static long mix(long fingerprint, long value) {
+        long mixed = (fingerprint ^ value) * 0x9E3779B97F4A7C15L;
+        return mixed ^ (mixed >>> 29);
+    }
+
+    public static long mix(long fingerprint, Object value) {
+        return mix(fingerprint, Objects.hashCode(value));
+    }
+
+    /**
+     * Folds the values of a collection into a running fingerprint, in no particular order.
+     */
+    static long mixAll(long fingerprint, Collection<?> values) {
+        if (values == null) {
+            return mix(fingerprint, -1L);
+        }
+        long sum = 0;
+        for (Object value : values) {
+            sum += mix(0L, value);
+        }
+        return mix(mix(fingerprint, values.size()), sum);
+    }
+}
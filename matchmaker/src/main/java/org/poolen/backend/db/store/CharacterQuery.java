@@ -0,0 +1,167 @@
+package org.poolen.backend.db.store;
+
+import org.poolen.backend.db.constants.House;
+import org.poolen.backend.db.entities.Character;
+import org.poolen.backend.db.entities.Player;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * A query over the characters, see {@link StoreQuery}. Every condition narrows the results down further.
+ * <pre>{@code
+ * List<Character> page = store.queryCharacters().house(House.OPAL).retired(false).page(0, 20);
+ * }</pre>
+ */
+public final class CharacterQuery extends StoreQuery<Character> {
+
+    private final CharacterStore characterStore;
+    private final PlayerStore playerStore;
+
+    private House house;
+    private Boolean retired;
+    private Boolean main;
+    private Player owner;
+    private String namePrefix;
+    private String search;
+    // What the name and search conditions found in the name indexes, looked up on first use.
+    private NameIndex.Hits prefixHits;
+    private NameIndex.Hits nameHits;
+    private NameIndex.Hits ownerHits;
+
+    CharacterQuery(CharacterStore characterStore, PlayerStore playerStore) {
+        this.characterStore = characterStore;
+        this.playerStore = playerStore;
+    }
+
+    /**
+     * Only characters of the house. Null leaves the house open.
+     */
+    public CharacterQuery house(House house) {
+        this.house = house;
+        return this;
+    }
+
+    public CharacterQuery retired(boolean retired) {
+        this.retired = retired;
+        return this;
+    }
+
+    public CharacterQuery main(boolean main) {
+        this.main = main;
+        return this;
+    }
+
+    /**
+     * Only the player's characters. Null leaves the owner open.
+     */
+    public CharacterQuery ownedBy(Player owner) {
+        this.owner = owner;
+        return this;
+    }
+
+    /**
+     * Only characters whose name starts with the prefix, ignoring case. Null or empty matches all of them.
+     */
+    public CharacterQuery namePrefix(String prefix) {
+        this.namePrefix = prefix == null || prefix.isEmpty() ? null : prefix;
+        this.prefixHits = null;
+        return this;
+    }
+
+    /**
+     * Only characters whose name, or whose player's name, contains the text, ignoring case and accents.
+     * This is what the search field does. Null or empty matches all of them.
+     */
+    public CharacterQuery search(String text) {
+        this.search = text == null || text.isEmpty() ? null : text;
+        this.nameHits = null;
+        this.ownerHits = null;
+        return this;
+    }
+
+    @Override
+    public boolean matches(Character character) {
+        if (house != null && character.getHouse() != house) {
+            return false;
+        }
+        if (retired != null && character.isRetired() != retired) {
+            return false;
+        }
+        if (main != null && character.isMain() != main) {
+            return false;
+        }
+        if (owner != null && !owner.equals(character.getPlayer())) {
+            return false;
+        }
+        if (namePrefix != null && !(prefixHits().contains(character.getUuid())
+                && startsWithIgnoreCase(character.getName(), namePrefix))) {
+            return false;
+        }
+        return search == null || nameHits().contains(character.getUuid())
+                || (character.getPlayer() != null && ownerHits().contains(character.getPlayer().getUuid()));
+    }
+
+    /**
+     * Picks the smallest of the sources the conditions allow: the owner's characters, the house, the
+     * retired, the mains, or what the name indexes found.
+     */
+    @Override
+    Stream<Character> candidates() {
+        Collection<Character> best = owner != null ? owner.getCharacters() : characterStore.getAllCharacters();
+        if (house != null && characterStore.getCharactersByHouse(house).size() < best.size()) {
+            best = characterStore.getCharactersByHouse(house);
+        }
+        if (Boolean.TRUE.equals(retired) && characterStore.getRetiredCharacters().size() < best.size()) {
+            best = characterStore.getRetiredCharacters();
+        }
+        if (Boolean.TRUE.equals(main) && characterStore.getMainCharacters().size() < best.size()) {
+            best = characterStore.getMainCharacters();
+        }
+        if (namePrefix != null && prefixHits().size() < best.size()) {
+            return byUuid(prefixHits().uuids());
+        }
+        if (search != null && nameHits().size() + ownerHits().size() < best.size()) {
+            Stream<UUID> ownersCharacters = ownerHits().uuids()
+                    .map(playerStore::getPlayerByUuid)
+                    .filter(Objects::nonNull)
+                    .flatMap(player -> player.getCharacters().stream().map(Character::getUuid));
+            return byUuid(Stream.concat(nameHits().uuids(), ownersCharacters).distinct());
+        }
+        if (owner != null && best == owner.getCharacters()) {
+            // The player's own set can hold characters the store doesn't have.
+            return best.stream().filter(character -> characterStore.getCharacterByUuid(character.getUuid()) == character);
+        }
+        return best.stream();
+    }
+
+    private Stream<Character> byUuid(Stream<UUID> uuids) {
+        return uuids.map(characterStore::getCharacterByUuid).filter(Objects::nonNull);
+    }
+
+    private NameIndex.Hits prefixHits() {
+        if (prefixHits == null) {
+            prefixHits = characterStore.getNameIndex().search(namePrefix);
+        }
+        return prefixHits;
+    }
+
+    private NameIndex.Hits nameHits() {
+        if (nameHits == null) {
+            nameHits = characterStore.getNameIndex().search(search);
+        }
+        return nameHits;
+    }
+
+    /**
+     * @return The players whose name has the search text, whose characters match too.
+     */
+    private NameIndex.Hits ownerHits() {
+        if (ownerHits == null) {
+            ownerHits = playerStore.getNameIndex().search(search);
+        }
+        return ownerHits;
+    }
+}
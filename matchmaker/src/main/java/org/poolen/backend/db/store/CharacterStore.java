@@ -2,61 +2,340 @@ package org.poolen.backend.db.store;
 
 import org.poolen.backend.db.constants.House;
 import org.poolen.backend.db.entities.Character;
+import org.poolen.backend.db.entities.Player;
+import org.poolen.backend.db.interfaces.IStoreChangeListener;
 import org.poolen.backend.db.jpa.services.CharacterService;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
+/**
+ * Every known character by UUID. Besides the main map it keeps the characters by house, the retired
+ * ones and the mains, so those are read in time proportional to the result, and a {@link NameIndex} over
+ * the names for searching. The indexes are brought up to date whenever a character is added again after
+ * an edit, like the management tabs do.
+ * <p>
+ * Changes go through the {@link StoreWriter} one at a time; every read is served from the last
+ * published immutable {@link State}, without locking. Like the {@link PlayerStore}, it only copies what
+ * a change touched when publishing it, and edits the search index then too.
+ * <p>
+ * Every change is also marked in the {@link ChangeTracker}, so saving only has to write the characters
+ * that changed since they were last saved or loaded.
+ */
 public class CharacterStore {
 
     // The single, final instance of our class.
     private static final CharacterStore INSTANCE = new CharacterStore();
+    // The writer's working copy.
     private Map<UUID, Character> characterMap;
+    private final StoreWriter.Publisher publisher = new StoreWriter.Publisher(this::publish, this::rollBack);
+    private volatile State state;
+    private final ChangeTracker<UUID, Character> changeTracker =
+            new ChangeTracker<>(Character::getUuid, CharacterStore::fingerprint, () -> state.characters().values());
+
+    // Secondary indexes, kept in step with characterMap.
+    private final Map<House, Map<UUID, Character>> charactersByHouse = new EnumMap<>(House.class);
+    private final Map<UUID, Character> retiredCharacters = new HashMap<>();
+    private final Map<UUID, Character> mainCharacters = new HashMap<>();
+    // The house each character was filed under, so it can be taken out again after the house changed.
+    private final Map<UUID, House> indexedHouses = new HashMap<>();
+    // Search index over the names, with the edits made to it since the last commit.
+    private final NameIndex nameIndex = new NameIndex();
+    private final NameIndex.Pending pendingNames = nameIndex.pending();
+
+    // What changed since the last commit, so publishing only copies that.
+    private final Set<UUID> changedCharacters = new HashSet<>();
+    private final Set<House> changedHouses = EnumSet.noneOf(House.class);
+    private boolean retiredCharactersChanged;
+    private boolean mainCharactersChanged;
+
+    /**
+     * What readers see: immutable copies of the map and the indexes as of the last commit. Whatever a
+     * commit didn't change is shared with the state before it.
+     */
+    private record State(SnapshotMap<UUID, Character> characters,
+                         Set<Character> characterView,
+                         Map<House, Collection<Character>> charactersByHouse,
+                         Collection<Character> retiredCharacters,
+                         Collection<Character> mainCharacters) {
+    }
 
     // Private constructor to prevent additional instances and to enforce
     // singleton
     public CharacterStore()
     {
         this.characterMap = new HashMap<>();
+        SnapshotMap<UUID, Character> characters = SnapshotMap.empty();
+        this.state = new State(characters, new EntityView<>(characters, Character::getUuid, Character.class),
+                Map.of(), List.of(), List.of());
     }
 
     protected static CharacterStore getInstance() {
         return INSTANCE;
     }
+
+    /**
+     * Adds characters that were just read from the database. They count as saved.
+     */
     public void init(Set<Character> characters) {
-        characters.forEach(this::addCharacter);
+        StoreWriter.write(publisher, () -> {
+            characters.forEach(this::addCharacter);
+            changeTracker.markLoaded(characters);
+        });
+    }
+
+    /**
+     * @return A new query over the characters, see {@link CharacterQuery}.
+     */
+    public CharacterQuery query() {
+        return new CharacterQuery(this, PlayerStore.getInstance());
+    }
+
+    /**
+     * @return The search index over the characters' names, as of the last commit.
+     */
+    public NameIndex getNameIndex() {
+        return nameIndex;
+    }
+
+    /**
+     * Has the listener told what every commit changed, from now on. Commits are shared by all stores,
+     * so it hears about the other stores' changes too.
+     */
+    public void addChangeListener(IStoreChangeListener listener) {
+        StoreWriter.addListener(listener);
+    }
+
+    public void removeChangeListener(IStoreChangeListener listener) {
+        StoreWriter.removeListener(listener);
+    }
+
+    /**
+     * @return Which characters changed since they were last saved.
+     */
+    public ChangeTracker<UUID, Character> getChangeTracker() {
+        return changeTracker;
     }
 
-    public List<Character> getCharactersByHouse(House house) {
-        return this.characterMap.values().stream()
-                .filter(character -> character.getHouse().equals(house))
-                .collect(Collectors.toList());
+    /**
+     * @return The characters of the house, as of the last commit.
+     */
+    public Collection<Character> getCharactersByHouse(House house) {
+        return state.charactersByHouse().getOrDefault(house, List.of());
     }
 
+    /**
+     * @return The retired characters, as of the last commit.
+     */
+    public Collection<Character> getRetiredCharacters() {
+        return state.retiredCharacters();
+    }
+
+    /**
+     * @return The characters that are their player's main, as of the last commit.
+     */
+    public Collection<Character> getMainCharacters() {
+        return state.mainCharacters();
+    }
+
+    /**
+     * @return Every character as of the last commit. It never changes, so it is safe to iterate while the store moves on.
+     */
     public Set<Character> getAllCharacters() {
-        return new HashSet<>(characterMap.values());
+        return state.characterView();
     }
 
     public Character getCharacterByUuid(UUID uuid) {
-        return this.characterMap.get(uuid);
+        return state.characters().get(uuid);
     }
 
+    /**
+     * @return The character map as of the last commit.
+     */
+    Map<UUID, Character> getCharacterMap() {
+        return state.characters();
+    }
+
+    /**
+     * Adds the character, or re-files it after it was edited. Its player's other characters are
+     * re-filed and marked as changed too, as making one character the main demotes the others.
+     */
     public void addCharacter(Character character) {
-        this.characterMap.put(character.getUuid(), character);
-        //service.save(character);
+        StoreWriter.write(publisher, () -> {
+            Character previous = this.characterMap.put(character.getUuid(), character);
+            if (previous != character) {
+                this.changedCharacters.add(character.getUuid());
+            }
+            StoreWriter.characterChanged(character.getUuid(), previous == null ? StoreWriter.Kind.ADDED : StoreWriter.Kind.UPDATED);
+            ownerChanged(character);
+            //service.save(character);
+            index(character);
+            changeTracker.markChanged(character.getUuid());
+            if (character.getPlayer() != null) {
+                for (Character sibling : character.getPlayer().getCharacters()) {
+                    if (sibling != character && characterMap.get(sibling.getUuid()) == sibling) {
+                        index(sibling);
+                        changeTracker.markChanged(sibling.getUuid());
+                        StoreWriter.characterChanged(sibling.getUuid(), StoreWriter.Kind.UPDATED);
+                    }
+                }
+            }
+        });
     }
 
     public void addCharacter(List<Character> characters) {
-        characters.forEach(this::addCharacter);
+        StoreWriter.write(publisher, () -> characters.forEach(this::addCharacter));
+    }
+
+    public void removeCharacter(Character character) {
+        StoreWriter.write(publisher, () -> {
+            if (this.characterMap.remove(character.getUuid()) != null) {
+                StoreWriter.characterChanged(character.getUuid(), StoreWriter.Kind.REMOVED);
+                this.changedCharacters.add(character.getUuid());
+                ownerChanged(character);
+            }
+            unindex(character.getUuid());
+            pendingNames.remove(character.getUuid());
+            changeTracker.forget(character.getUuid());
+        });
+    }
+
+    public void clear() {
+        StoreWriter.write(publisher, () -> {
+            this.characterMap.keySet().forEach(uuid -> StoreWriter.characterChanged(uuid, StoreWriter.Kind.REMOVED));
+            this.changedCharacters.addAll(this.characterMap.keySet());
+            this.characterMap.clear();
+            this.changedHouses.addAll(this.charactersByHouse.keySet());
+            this.charactersByHouse.clear();
+            this.retiredCharacters.clear();
+            this.retiredCharactersChanged = true;
+            this.mainCharacters.clear();
+            this.mainCharactersChanged = true;
+            this.indexedHouses.clear();
+            this.pendingNames.clear();
+            this.changeTracker.clear();
+        });
     }
 
-    public void removeCharacter(Character character) { this.characterMap.remove(character.getUuid()); }
+    /**
+     * Makes a new immutable state from the last one and what changed since, and makes the queued edits to
+     * the search index. Only called by the writer.
+     */
+    private void publish() {
+        State last = this.state;
+        SnapshotMap<UUID, Character> characters = last.characters().with(characterMap, changedCharacters);
+        Map<House, Collection<Character>> byHouse = last.charactersByHouse();
+        if (!changedHouses.isEmpty()) {
+            Map<House, Collection<Character>> copy = new EnumMap<>(House.class);
+            copy.putAll(byHouse);
+            for (House house : changedHouses) {
+                Map<UUID, Character> members = charactersByHouse.get(house);
+                if (members != null) {
+                    copy.put(house, List.copyOf(members.values()));
+                } else {
+                    copy.remove(house);
+                }
+            }
+            byHouse = Collections.unmodifiableMap(copy);
+        }
+        pendingNames.apply();
+        this.state = new State(characters,
+                characters != last.characters()
+                        ? new EntityView<>(characters, Character::getUuid, Character.class) : last.characterView(),
+                byHouse,
+                retiredCharactersChanged ? List.copyOf(retiredCharacters.values()) : last.retiredCharacters(),
+                mainCharactersChanged ? List.copyOf(mainCharacters.values()) : last.mainCharacters());
+        forgetChanges();
+    }
+
+    /**
+     * Puts the working map and indexes back as they were at the last commit, after a change failed halfway.
+     * The characters themselves aren't copied, so edits made to them before the failure stay. The state and
+     * the search index were never touched, so only the queued edits are dropped. Only called by the writer.
+     */
+    private void rollBack() {
+        characterMap.clear();
+        characterMap.putAll(state.characters());
+        charactersByHouse.clear();
+        retiredCharacters.clear();
+        mainCharacters.clear();
+        indexedHouses.clear();
+        characterMap.values().forEach(this::index);
+        forgetChanges();
+    }
+
+    private void forgetChanges() {
+        changedCharacters.clear();
+        changedHouses.clear();
+        retiredCharactersChanged = false;
+        mainCharactersChanged = false;
+        pendingNames.discard();
+    }
 
-    public void clear() { this.characterMap.clear(); }
+    /**
+     * A player shows their characters, so to anyone following the stores the owner changed too.
+     */
+    private void ownerChanged(Character character) {
+        Player owner = character.getPlayer();
+        if (owner != null && PlayerStore.getInstance().getWorkingPlayer(owner.getUuid()) != null) {
+            StoreWriter.playerChanged(owner.getUuid(), StoreWriter.Kind.UPDATED);
+        }
+    }
+
+    /**
+     * @return A fingerprint of everything about the character that is saved with it.
+     */
+    private static long fingerprint(Character character) {
+        long fingerprint = ChangeTracker.mix(0L, character.getName());
+        fingerprint = ChangeTracker.mix(fingerprint, character.getHouse());
+        fingerprint = ChangeTracker.mix(fingerprint, character.isMain());
+        fingerprint = ChangeTracker.mix(fingerprint, character.isRetired());
+        return ChangeTracker.mix(fingerprint, character.getPlayer() != null ? character.getPlayer().getUuid() : null);
+    }
+
+    private void index(Character character) {
+        UUID uuid = character.getUuid();
+        House house = character.getHouse();
+        House previousHouse = house != null ? indexedHouses.put(uuid, house) : indexedHouses.remove(uuid);
+        if (previousHouse != null && previousHouse != house) {
+            charactersByHouse.get(previousHouse).remove(uuid);
+            changedHouses.add(previousHouse);
+        }
+        if (house != null
+                && charactersByHouse.computeIfAbsent(house, h -> new HashMap<>()).put(uuid, character) != character) {
+            changedHouses.add(house);
+        }
+        retiredCharactersChanged |= file(retiredCharacters, character, character.isRetired());
+        mainCharactersChanged |= file(mainCharacters, character, character.isMain());
+        pendingNames.put(uuid, character.getName());
+    }
+
+    private void unindex(UUID uuid) {
+        House house = indexedHouses.remove(uuid);
+        if (house != null) {
+            charactersByHouse.get(house).remove(uuid);
+            changedHouses.add(house);
+        }
+        retiredCharactersChanged |= retiredCharacters.remove(uuid) != null;
+        mainCharactersChanged |= mainCharacters.remove(uuid) != null;
+    }
+
+    /**
+     * Puts the character in the index if it belongs there and takes it out if not.
+     * @return Whether the index changed.
+     */
+    private static boolean file(Map<UUID, Character> index, Character character, boolean belongs) {
+        return belongs
+                ? index.put(character.getUuid(), character) != character
+                : index.remove(character.getUuid()) != null;
+    }
 }
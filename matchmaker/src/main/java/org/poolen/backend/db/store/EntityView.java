@@ -0,0 +1,40 @@
+package org.poolen.backend.db.store;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * A read-only set over the values of a store's map, so the stores can hand out their contents without
+ * copying them. It follows the map as it changes, so copy it first if the store is changed while iterating.
+ */
+class EntityView<T> extends AbstractSet<T> {
+
+    private final Map<UUID, T> entities;
+    private final Function<T, UUID> uuidOf;
+    private final Class<T> type;
+
+    EntityView(Map<UUID, T> entities, Function<T, UUID> uuidOf, Class<T> type) {
+        this.entities = entities;
+        this.uuidOf = uuidOf;
+        this.type = type;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return type.isInstance(o) && entities.containsKey(uuidOf.apply(type.cast(o)));
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return Collections.unmodifiableCollection(entities.values()).iterator();
+    }
+
+    @Override
+    public int size() {
+        return entities.size();
+    }
+}
@@ -0,0 +1,326 @@
+package org.poolen.backend.db.store;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * A substring search index over one piece of text per entity, e.g. a name. Every text is normalised
+ * (lower case, accents dropped) and cut into overlapping three-character grams, and each gram keeps the
+ * sorted ids of the entities whose text has it. A search intersects the lists of the search text's grams,
+ * starting with the shortest, and only the few entities left are checked for the whole text. Searches of
+ * one or two characters are too short for grams and look at every text instead, which is still a plain
+ * {@code contains} over strings that are already normalised.
+ * <p>
+ * Entities get a small id the first time they are indexed, which is never reused, so a {@link Hits} stays
+ * valid while the index moves on. The owning store queues its edits in a {@link Pending} and applies them
+ * as it publishes a commit, so searches never find a change that was rolled back; searches take a read
+ * lock for as long as the intersection takes.
+ */
+public class NameIndex {
+
+    private static final int GRAM = 3;
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    // By id: the entity, and its normalised text, or null once it was removed.
+    private UUID[] uuids = new UUID[64];
+    private String[] texts = new String[64];
+    private int size;
+    private int indexed;
+
+    /**
+     * The ids of one gram's entities, ascending.
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            int position = size > 0 && id > ids[size - 1] ? -(size + 1) : Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            int insertAt = -(position + 1);
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                size--;
+            }
+        }
+    }
+
+    /**
+     * The entities a search found.
+     */
+    public final class Hits {
+        private final BitSet bits;
+
+        private Hits(BitSet bits) {
+            this.bits = bits;
+        }
+
+        public boolean contains(UUID uuid) {
+            Integer id = ids.get(uuid);
+            return id != null && bits.get(id);
+        }
+
+        public int size() {
+            return bits.cardinality();
+        }
+
+        /**
+         * @return The UUIDs of the entities found, in the order they were first indexed.
+         */
+        public java.util.stream.Stream<UUID> uuids() {
+            UUID[] current = uuidsById();
+            return bits.stream().mapToObj(id -> current[id]);
+        }
+    }
+
+    /**
+     * Indexes the entity's text, replacing whatever was indexed for it before.
+     */
+    public void put(UUID uuid, String text) {
+        String normalised = normalise(text);
+        lock.writeLock().lock();
+        try {
+            Integer existing = ids.get(uuid);
+            int id = existing != null ? existing : assign(uuid);
+            String previous = texts[id];
+            if (normalised.equals(previous)) {
+                return;
+            }
+            if (previous != null) {
+                forEachGram(previous, gram -> postings.get(gram).remove(id));
+            } else {
+                indexed++;
+            }
+            texts[id] = normalised;
+            forEachGram(normalised, gram -> postings.computeIfAbsent(gram, g -> new Postings()).add(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID uuid) {
+        lock.writeLock().lock();
+        try {
+            Integer id = ids.get(uuid);
+            if (id == null || texts[id] == null) {
+                return;
+            }
+            forEachGram(texts[id], gram -> postings.get(gram).remove(id));
+            texts[id] = null;
+            indexed--;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forgets every text. Ids already handed out are kept, so earlier hits still mean the same entities.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            Arrays.fill(texts, 0, size, null);
+            indexed = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return A new, empty queue of edits to this index.
+     */
+    public Pending pending() {
+        return new Pending();
+    }
+
+    /**
+     * Edits to the index held back until they are applied. A store applies them when it publishes and
+     * discards them when the change is rolled back, so the index moves with the commits.
+     */
+    public final class Pending {
+        // The text to index by entity, or null to remove it.
+        private final Map<UUID, String> texts = new HashMap<>();
+        private boolean cleared;
+
+        private Pending() {
+        }
+
+        public void put(UUID uuid, String text) {
+            // A missing text is indexed as an empty one, see normalise.
+            texts.put(uuid, text != null ? text : "");
+        }
+
+        public void remove(UUID uuid) {
+            texts.put(uuid, null);
+        }
+
+        public void clear() {
+            texts.clear();
+            cleared = true;
+        }
+
+        /**
+         * Makes the edits to the index at once, so a search sees all of them or none, and forgets them.
+         */
+        public void apply() {
+            if (!cleared && texts.isEmpty()) {
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                if (cleared) {
+                    NameIndex.this.clear();
+                }
+                texts.forEach((uuid, text) -> {
+                    if (text != null) {
+                        NameIndex.this.put(uuid, text);
+                    } else {
+                        NameIndex.this.remove(uuid);
+                    }
+                });
+            } finally {
+                lock.writeLock().unlock();
+            }
+            discard();
+        }
+
+        public void discard() {
+            texts.clear();
+            cleared = false;
+        }
+    }
+
+    /**
+     * @return How many entities have a text in the index.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return indexed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The entities whose text contains the search text, ignoring case and accents.
+     */
+    public Hits search(String text) {
+        String search = normalise(text);
+        BitSet found = new BitSet();
+        lock.readLock().lock();
+        try {
+            if (search.length() < GRAM) {
+                for (int id = 0; id < size; id++) {
+                    if (texts[id] != null && texts[id].contains(search)) {
+                        found.set(id);
+                    }
+                }
+                return new Hits(found);
+            }
+            Postings[] lists = new Postings[search.length() - GRAM + 1];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = postings.get(gramAt(search, i));
+                if (lists[i] == null) {
+                    return new Hits(found);
+                }
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+            Postings shortest = lists[0];
+            for (int i = 0; i < shortest.size; i++) {
+                int id = shortest.ids[i];
+                if (inAll(lists, id) && texts[id].contains(search)) {
+                    found.set(id);
+                }
+            }
+            return new Hits(found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The text lower cased and without accents, the way it is indexed and searched.
+     */
+    public static String normalise(String text) {
+        if (text == null) {
+            return "";
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            if (lower.charAt(i) > 127) {
+                return ACCENTS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+            }
+        }
+        return lower;
+    }
+
+    private static boolean inAll(Postings[] lists, int id) {
+        for (int i = 1; i < lists.length; i++) {
+            if (Arrays.binarySearch(lists[i].ids, 0, lists[i].size, id) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int assign(UUID uuid) {
+        int id = size;
+        if (id == uuids.length) {
+            texts = Arrays.copyOf(texts, id * 2);
+            uuids = Arrays.copyOf(uuids, id * 2);
+        }
+        uuids[id] = uuid;
+        size = id + 1;
+        ids.put(uuid, id);
+        return id;
+    }
+
+    private UUID[] uuidsById() {
+        lock.readLock().lock();
+        try {
+            return uuids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private interface GramConsumer {
+        void accept(long gram);
+    }
+
+    private static void forEachGram(String text, GramConsumer consumer) {
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            consumer.accept(gramAt(text, i));
+        }
+    }
+
+    private static long gramAt(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+}
@@ -0,0 +1,270 @@
+package org.poolen.backend.db.store;
+
+import org.poolen.backend.db.entities.Player;
+
+import java.time.LocalDate;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * When a player last played with each of the others, kept as two parallel arrays: the partners'
+ * {@link PlayerIndex} ids in ascending order and the day, as an epoch day, they last played together.
+ * A lookup is a binary search that allocates nothing, and a veteran's few hundred partners cost a few
+ * kilobytes instead of a hash entry, a UUID and a LocalDate each.
+ * <p>
+ * To everyone else it is still a {@code Map<UUID, LocalDate>}. A partner recorded without a date maps to null.
+ */
+public class PlayLog extends AbstractMap<UUID, LocalDate> {
+
+    /**
+     * The epoch day given for partners that aren't in the log, or were recorded without a date.
+     */
+    public static final int NEVER = Integer.MIN_VALUE;
+
+    private final PlayerIndex index;
+    private int[] partners;
+    private int[] days;
+    private int size;
+    private long revision = ChangeTracker.nextRevision();
+
+    /**
+     * @param index The index the log keeps partner ids in, the same as its player's.
+     */
+    public PlayLog(PlayerIndex index) {
+        this.index = index;
+        this.partners = new int[0];
+        this.days = new int[0];
+    }
+
+    /**
+     * @return A new log in the given index holding the given entries. Passing null gives an empty log.
+     */
+    public static PlayLog copyOf(PlayerIndex index, Map<UUID, LocalDate> log) {
+        PlayLog copy = new PlayLog(index);
+        if (log instanceof PlayLog other && other.index == index) {
+            copy.partners = Arrays.copyOf(other.partners, other.size);
+            copy.days = Arrays.copyOf(other.days, other.size);
+            copy.size = other.size;
+        } else if (log != null) {
+            log.forEach(copy::put);
+        }
+        return copy;
+    }
+
+    /**
+     * @return The epoch day the player last played with the given partner id, or {@link #NEVER}.
+     */
+    public int getEpochDay(int partnerId) {
+        int position = Arrays.binarySearch(partners, 0, size, partnerId);
+        return position >= 0 ? days[position] : NEVER;
+    }
+
+    /**
+     * @return The epoch day the player last played with the given partner, or {@link #NEVER}.
+     */
+    public int getEpochDay(Player partner) {
+        int id = storeId(partner);
+        return getEpochDay(id >= 0 ? id : index.find(partner.getUuid()));
+    }
+
+    /**
+     * The same as {@link #record(int, int)}, by the id the store gave the partner, or by UUID if they
+     * aren't in the store.
+     */
+    public void record(Player partner, int epochDay) {
+        int id = storeId(partner);
+        record(id >= 0 ? id : index.idOf(partner.getUuid()), epochDay);
+    }
+
+    /**
+     * Records that the player played with the given partner on the given epoch day, replacing any earlier
+     * entry. Partners are usually new and have the highest id so far, which only appends.
+     */
+    public void record(int partnerId, int epochDay) {
+        int position = size > 0 && partnerId > partners[size - 1]
+                ? -(size + 1)
+                : Arrays.binarySearch(partners, 0, size, partnerId);
+        if (position >= 0) {
+            days[position] = epochDay;
+            revision = ChangeTracker.nextRevision();
+            return;
+        }
+        int insertAt = -(position + 1);
+        if (size == partners.length) {
+            int capacity = Math.max(4, size + (size >> 1));
+            partners = Arrays.copyOf(partners, capacity);
+            days = Arrays.copyOf(days, capacity);
+        }
+        System.arraycopy(partners, insertAt, partners, insertAt + 1, size - insertAt);
+        System.arraycopy(days, insertAt, days, insertAt + 1, size - insertAt);
+        partners[insertAt] = partnerId;
+        days[insertAt] = epochDay;
+        size++;
+        revision = ChangeTracker.nextRevision();
+    }
+
+    /**
+     * @return The partner at the given position, in id order. With {@link #epochDayAt} this walks the
+     * log without allocating entries.
+     */
+    public UUID partnerAt(int position) {
+        return index.uuidOf(partners[position]);
+    }
+
+    public int epochDayAt(int position) {
+        return days[position];
+    }
+
+    /**
+     * @return A number that changes with every edit to the log, see {@link ChangeTracker#nextRevision()}.
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * @return A fingerprint of the entries, worked out from the arrays without building any.
+     */
+    long fingerprint() {
+        long fingerprint = size;
+        for (int i = 0; i < size; i++) {
+            fingerprint = ChangeTracker.mix(ChangeTracker.mix(fingerprint, partners[i]), days[i]);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * @return The id the partner was given in this log's index, or -1 if it has to be looked up by UUID.
+     */
+    private int storeId(Player partner) {
+        return partner.getPlayerIndex() == index ? partner.getId() : -1;
+    }
+
+    public static int toEpochDay(LocalDate date) {
+        return date != null ? Math.toIntExact(date.toEpochDay()) : NEVER;
+    }
+
+    private static LocalDate toDate(int epochDay) {
+        return epochDay != NEVER ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+
+    private int positionOf(Object key) {
+        if (!(key instanceof UUID uuid)) {
+            return -1;
+        }
+        int partnerId = index.find(uuid);
+        return partnerId >= 0 ? Arrays.binarySearch(partners, 0, size, partnerId) : -1;
+    }
+
+    private void removeAt(int position) {
+        System.arraycopy(partners, position + 1, partners, position, size - position - 1);
+        System.arraycopy(days, position + 1, days, position, size - position - 1);
+        size--;
+        revision = ChangeTracker.nextRevision();
+    }
+
+    @Override
+    public LocalDate get(Object key) {
+        int position = positionOf(key);
+        return position >= 0 ? toDate(days[position]) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return positionOf(key) >= 0;
+    }
+
+    @Override
+    public LocalDate put(UUID key, LocalDate value) {
+        int partnerId = index.idOf(key);
+        int position = Arrays.binarySearch(partners, 0, size, partnerId);
+        LocalDate previous = position >= 0 ? toDate(days[position]) : null;
+        record(partnerId, toEpochDay(value));
+        return previous;
+    }
+
+    @Override
+    public LocalDate remove(Object key) {
+        int position = positionOf(key);
+        if (position < 0) {
+            return null;
+        }
+        LocalDate previous = toDate(days[position]);
+        removeAt(position);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        revision = ChangeTracker.nextRevision();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<UUID, LocalDate>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<UUID, LocalDate>> iterator() {
+                return new Iterator<>() {
+                    private int next;
+                    private int last = -1;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public Entry<UUID, LocalDate> next() {
+                        if (next >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        last = next++;
+                        return new SimpleImmutableEntry<>(partnerAt(last), toDate(days[last]));
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last < 0) {
+                            throw new IllegalStateException();
+                        }
+                        removeAt(last);
+                        next = last;
+                        last = -1;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof PlayLog other && other.index == index) {
+            return Arrays.equals(partners, 0, size, other.partners, 0, other.size)
+                    && Arrays.equals(days, 0, size, other.days, 0, other.size);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        // Has to match any other Map<UUID, LocalDate> holding the same entries.
+        return super.hashCode();
+    }
+}
@@ -0,0 +1,198 @@
+package org.poolen.backend.db.store;
+
+import org.poolen.backend.db.entities.Player;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * A set of players kept as a bitset over their {@link PlayerIndex} ids. To everyone else it is still a
+ * {@code Set<UUID>}, but membership is a single bit test, comparing two sets works a word at a time, and
+ * a set costs a bit per known player instead of a hash entry per member.
+ */
+public class PlayerIdSet extends AbstractSet<UUID> {
+
+    private final PlayerIndex index;
+    private final BitSet bits;
+    private int size;
+    private long revision = ChangeTracker.nextRevision();
+
+    /**
+     * @param index The index the set keeps its ids in, the same as its player's.
+     */
+    public PlayerIdSet(PlayerIndex index) {
+        this.index = index;
+        this.bits = new BitSet();
+    }
+
+    /**
+     * @return A new set in the given index holding the given UUIDs. Passing null gives an empty set.
+     */
+    public static PlayerIdSet copyOf(PlayerIndex index, Collection<UUID> uuids) {
+        PlayerIdSet set = new PlayerIdSet(index);
+        if (uuids instanceof PlayerIdSet other && other.index == index) {
+            set.bits.or(other.bits);
+            set.size = other.size;
+        } else if (uuids != null) {
+            uuids.forEach(set::add);
+        }
+        return set;
+    }
+
+    public boolean containsId(int id) {
+        return id >= 0 && bits.get(id);
+    }
+
+    public boolean addId(int id) {
+        if (bits.get(id)) {
+            return false;
+        }
+        bits.set(id);
+        size++;
+        revision = ChangeTracker.nextRevision();
+        return true;
+    }
+
+    public boolean removeId(int id) {
+        if (id < 0 || !bits.get(id)) {
+            return false;
+        }
+        bits.clear(id);
+        size--;
+        revision = ChangeTracker.nextRevision();
+        return true;
+    }
+
+    public boolean containsPlayer(Player player) {
+        int id = storeId(player);
+        return containsId(id >= 0 ? id : index.find(player.getUuid()));
+    }
+
+    /**
+     * Adds the player by the id the store gave them, or by UUID if they aren't in the store.
+     */
+    public boolean addPlayer(Player player) {
+        int id = storeId(player);
+        return addId(id >= 0 ? id : index.idOf(player.getUuid()));
+    }
+
+    public boolean removePlayer(Player player) {
+        int id = storeId(player);
+        return removeId(id >= 0 ? id : index.find(player.getUuid()));
+    }
+
+    /**
+     * @return True if the two sets share at least one player.
+     */
+    public boolean intersects(PlayerIdSet other) {
+        if (other.index != index) {
+            return other.stream().anyMatch(this::contains);
+        }
+        return bits.intersects(other.bits);
+    }
+
+    /**
+     * @return The id the player was given in this set's index, or -1 if it has to be looked up by UUID.
+     */
+    private int storeId(Player player) {
+        return player.getPlayerIndex() == index ? player.getId() : -1;
+    }
+
+    /**
+     * @return The ids in the set, in ascending order.
+     */
+    public int[] toIdArray() {
+        return bits.stream().toArray();
+    }
+
+    /**
+     * @return A number that changes with every edit to the set, see {@link ChangeTracker#nextRevision()}.
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * @return A fingerprint of the members, worked out from the bits without looking any UUID up.
+     */
+    long fingerprint() {
+        return ChangeTracker.mix(size, bits.hashCode());
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof UUID uuid && containsId(index.find(uuid));
+    }
+
+    @Override
+    public boolean add(UUID uuid) {
+        return addId(index.idOf(uuid));
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof UUID uuid && removeId(index.find(uuid));
+    }
+
+    @Override
+    public void clear() {
+        bits.clear();
+        size = 0;
+        revision = ChangeTracker.nextRevision();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<UUID> iterator() {
+        return new Iterator<>() {
+            private int next = bits.nextSetBit(0);
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public UUID next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = bits.nextSetBit(next + 1);
+                return index.uuidOf(last);
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                removeId(last);
+                last = -1;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof PlayerIdSet other && other.index == index) {
+            return bits.equals(other.bits);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        // Has to match any other Set<UUID> holding the same players.
+        return super.hashCode();
+    }
+}
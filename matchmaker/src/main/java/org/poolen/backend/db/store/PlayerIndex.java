@@ -0,0 +1,84 @@
+package org.poolen.backend.db.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands every player UUID a small dense int the first time it is needed, and keeps it for as long as the
+ * application runs. Relationship sets store these ints instead of UUIDs, see {@link PlayerIdSet}.
+ * <p>
+ * The store's index belongs to the {@link PlayerStore}, and only players built with it can be added there.
+ * Only players added to the store and the UUIDs that relationship sets and play logs refer to get an id in
+ * it. Players that never go into the store, e.g. ones read back with a match journal, share an index of
+ * their own.
+ * <p>
+ * Ids are never reused, even after a player is removed, so an id always means the same player.
+ * Looking an id up is lock-free; handing out a new one is synchronised, and a new id is published
+ * before anyone can be handed it.
+ */
+public class PlayerIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlayerIndex.class);
+
+    private final Map<UUID, Integer> ids = new ConcurrentHashMap<>();
+    private volatile UUID[] uuids = new UUID[64];
+    private volatile int size;
+
+    public PlayerIndex() {
+    }
+
+    /**
+     * @return The player's id, handing out the next free one if the UUID is new.
+     */
+    public int idOf(UUID uuid) {
+        Integer id = ids.get(uuid);
+        return id != null ? id : assign(uuid);
+    }
+
+    /**
+     * @return The player's id, or -1 if the UUID has never been seen. Never hands out a new id.
+     */
+    public int find(UUID uuid) {
+        Integer id = ids.get(uuid);
+        return id != null ? id : -1;
+    }
+
+    public UUID uuidOf(int id) {
+        UUID[] current = uuids;
+        if (id < 0 || id >= current.length || current[id] == null) {
+            throw new IllegalArgumentException("No player has the id %d.".formatted(id));
+        }
+        return current[id];
+    }
+
+    /**
+     * @return How many ids have been handed out, i.e. one more than the highest id.
+     */
+    public int size() {
+        return size;
+    }
+
+    private synchronized int assign(UUID uuid) {
+        Integer existing = ids.get(uuid);
+        if (existing != null) {
+            return existing;
+        }
+        int id = size;
+        UUID[] current = uuids;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[id] = uuid;
+        // Published before the id, so whoever can see the id can also read it back.
+        uuids = current;
+        size = id + 1;
+        ids.put(uuid, id);
+        logger.trace("Player {} got the id {}.", uuid, id);
+        return id;
+    }
+}
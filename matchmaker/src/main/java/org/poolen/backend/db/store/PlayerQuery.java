@@ -0,0 +1,261 @@
+package org.poolen.backend.db.store;
+
+import org.poolen.backend.db.constants.House;
+import org.poolen.backend.db.entities.Character;
+import org.poolen.backend.db.entities.Player;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * A query over the players, see {@link StoreQuery}. Every condition narrows the results down further.
+ * <pre>{@code
+ * List<Player> page = store.queryPlayers().dungeonMaster(true).house(House.AMBER).page(0, 20);
+ * }</pre>
+ */
+public final class PlayerQuery extends StoreQuery<Player> {
+
+    private final PlayerStore playerStore;
+    private final CharacterStore characterStore;
+
+    private Boolean dungeonMaster;
+    private House house;
+    private LocalDate lastSeenFrom;
+    private LocalDate lastSeenTo;
+    private boolean neverSeen;
+    private String namePrefix;
+    private String search;
+    // What the name and search conditions found in the name indexes, looked up on first use.
+    private NameIndex.Hits prefixHits;
+    private NameIndex.Hits nameHits;
+    private NameIndex.Hits uuidHits;
+    private Collection<UUID> among;
+    // Relationship lists the players have to be on, e.g. someone's buddies.
+    private final List<Set<UUID>> listedIn = new ArrayList<>();
+
+    PlayerQuery(PlayerStore playerStore, CharacterStore characterStore) {
+        this.playerStore = playerStore;
+        this.characterStore = characterStore;
+    }
+
+    /**
+     * Only players that can, or can't, DM.
+     */
+    public PlayerQuery dungeonMaster(boolean dungeonMaster) {
+        this.dungeonMaster = dungeonMaster;
+        return this;
+    }
+
+    /**
+     * Only players with a character in the house. Null leaves the house open.
+     */
+    public PlayerQuery house(House house) {
+        this.house = house;
+        return this;
+    }
+
+    /**
+     * Only players last seen between the two dates, both included.
+     */
+    public PlayerQuery lastSeenBetween(LocalDate from, LocalDate to) {
+        this.lastSeenFrom = Objects.requireNonNull(from);
+        this.lastSeenTo = Objects.requireNonNull(to);
+        this.neverSeen = false;
+        return this;
+    }
+
+    /**
+     * Only players that have never been seen.
+     */
+    public PlayerQuery neverSeen() {
+        this.neverSeen = true;
+        this.lastSeenFrom = null;
+        this.lastSeenTo = null;
+        return this;
+    }
+
+    /**
+     * Only players whose name starts with the prefix, ignoring case. Null or empty matches everyone.
+     */
+    public PlayerQuery namePrefix(String prefix) {
+        this.namePrefix = prefix == null || prefix.isEmpty() ? null : prefix;
+        this.prefixHits = null;
+        return this;
+    }
+
+    /**
+     * Only players whose name contains the text, ignoring case and accents, or whose UUID does. This is
+     * what the search fields do. Null or empty matches everyone.
+     */
+    public PlayerQuery search(String text) {
+        this.search = text == null || text.isEmpty() ? null : text;
+        this.nameHits = null;
+        this.uuidHits = null;
+        return this;
+    }
+
+    /**
+     * Only the given players, e.g. the ones attending.
+     */
+    public PlayerQuery among(Collection<UUID> players) {
+        this.among = Objects.requireNonNull(players);
+        return this;
+    }
+
+    public PlayerQuery buddiesOf(Player player) {
+        return listedIn(player.getBuddylist());
+    }
+
+    public PlayerQuery blacklistedBy(Player player) {
+        return listedIn(player.getBlacklist());
+    }
+
+    public PlayerQuery dmBlacklistedBy(Player player) {
+        return listedIn(player.getDmBlacklist());
+    }
+
+    private PlayerQuery listedIn(Set<UUID> list) {
+        this.listedIn.add(list);
+        return this;
+    }
+
+    @Override
+    public boolean matches(Player player) {
+        if (dungeonMaster != null && player.isDungeonMaster() != dungeonMaster) {
+            return false;
+        }
+        if (neverSeen && player.getLastSeen() != null) {
+            return false;
+        }
+        if (lastSeenFrom != null && (player.getLastSeen() == null
+                || player.getLastSeen().isBefore(lastSeenFrom) || player.getLastSeen().isAfter(lastSeenTo))) {
+            return false;
+        }
+        if (among != null && !among.contains(player.getUuid())) {
+            return false;
+        }
+        for (Set<UUID> list : listedIn) {
+            if (!list.contains(player.getUuid())) {
+                return false;
+            }
+        }
+        if (house != null && !hasCharacterIn(player, house)) {
+            return false;
+        }
+        if (namePrefix != null && !(prefixHits().contains(player.getUuid())
+                && startsWithIgnoreCase(player.getName(), namePrefix))) {
+            return false;
+        }
+        return search == null || nameHits().contains(player.getUuid())
+                || (uuidHits() != null && uuidHits().contains(player.getUuid()));
+    }
+
+    /**
+     * Picks the smallest of the sources the conditions allow: the given players, a relationship list,
+     * the DMs, the weeks in the last-seen range, the never seen, the owners of the house's characters,
+     * or what the name indexes found.
+     */
+    @Override
+    Stream<Player> candidates() {
+        Stream<Player> best = null;
+        long bestSize = Long.MAX_VALUE;
+        if (among != null && among.size() < bestSize) {
+            bestSize = among.size();
+            best = byUuid(among);
+        }
+        for (Set<UUID> list : listedIn) {
+            if (list.size() < bestSize) {
+                bestSize = list.size();
+                best = byUuid(list);
+            }
+        }
+        if (Boolean.TRUE.equals(dungeonMaster) && playerStore.getDungeonMasters().size() < bestSize) {
+            bestSize = playerStore.getDungeonMasters().size();
+            best = playerStore.getDungeonMasters().stream();
+        }
+        if (neverSeen && playerStore.getPlayersNeverSeen().size() < bestSize) {
+            bestSize = playerStore.getPlayersNeverSeen().size();
+            best = playerStore.getPlayersNeverSeen().stream();
+        }
+        if (lastSeenFrom != null) {
+            Collection<List<Player>> weeks = playerStore.getWeeksLastSeenBetween(lastSeenFrom, lastSeenTo);
+            long size = weeks.stream().mapToLong(List::size).sum();
+            if (size < bestSize) {
+                bestSize = size;
+                best = weeks.stream().flatMap(List::stream);
+            }
+        }
+        if (house != null) {
+            Collection<Character> characters = characterStore.getCharactersByHouse(house);
+            if (characters.size() < bestSize) {
+                bestSize = characters.size();
+                best = characters.stream()
+                        .map(Character::getPlayer)
+                        .filter(Objects::nonNull)
+                        .distinct()
+                        .filter(owner -> playerStore.getPlayerByUuid(owner.getUuid()) == owner);
+            }
+        }
+        if (namePrefix != null && prefixHits().size() < bestSize) {
+            bestSize = prefixHits().size();
+            best = byUuid(prefixHits().uuids());
+        }
+        if (search != null) {
+            long size = nameHits().size() + (uuidHits() != null ? uuidHits().size() : 0);
+            if (size < bestSize) {
+                bestSize = size;
+                best = byUuid(uuidHits() != null
+                        ? Stream.concat(nameHits().uuids(), uuidHits().uuids()).distinct()
+                        : nameHits().uuids());
+            }
+        }
+        return best != null ? best : playerStore.getAllPlayers().stream();
+    }
+
+    private NameIndex.Hits prefixHits() {
+        if (prefixHits == null) {
+            prefixHits = playerStore.getNameIndex().search(namePrefix);
+        }
+        return prefixHits;
+    }
+
+    private NameIndex.Hits nameHits() {
+        if (nameHits == null) {
+            nameHits = playerStore.getNameIndex().search(search);
+        }
+        return nameHits;
+    }
+
+    /**
+     * @return What the UUID index found, or null when the search text can't be part of a UUID.
+     */
+    private NameIndex.Hits uuidHits() {
+        if (uuidHits == null && couldBeUuidPart(search)) {
+            uuidHits = playerStore.getUuidIndex().search(search);
+        }
+        return uuidHits;
+    }
+
+    private Stream<Player> byUuid(Collection<UUID> uuids) {
+        return byUuid(uuids.stream());
+    }
+
+    private Stream<Player> byUuid(Stream<UUID> uuids) {
+        return uuids.map(playerStore::getPlayerByUuid).filter(Objects::nonNull);
+    }
+
+    private static boolean hasCharacterIn(Player player, House house) {
+        for (Character character : player.getCharacters()) {
+            if (character.getHouse() == house) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,27 +1,108 @@
 package org.poolen.backend.db.store;
 
+import org.poolen.backend.db.entities.DormantPlayer;
 import org.poolen.backend.db.entities.Player;
+import org.poolen.backend.db.interfaces.IPlayerLoader;
+import org.poolen.backend.db.interfaces.IStoreChangeListener;
 import org.poolen.backend.db.jpa.services.PlayerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
+/**
+ * Every known player by UUID. Besides the main map it keeps the DMs and the players by the week they
+ * were last seen, so those are read in time proportional to the result, and {@link NameIndex}es over the
+ * names and UUIDs for searching. The indexes are brought up to date whenever a player is added again after
+ * an edit, like the management tabs do.
+ * <p>
+ * Changes go through the {@link StoreWriter} one at a time; every read is served from the last
+ * published immutable {@link State}, without locking. The store remembers what each change touched, so
+ * publishing only copies that much and shares the rest with the state before. The search indexes are
+ * edited as the change is published too, and not at all if it is rolled back.
+ * <p>
+ * Every change is also marked in the {@link ChangeTracker}, so saving only has to write the players that
+ * changed since they were last saved or loaded.
+ * <p>
+ * Players that haven't been seen in a long while can be held as {@link DormantPlayer} stubs instead. They
+ * are in the name indexes, so they can be found, but nowhere else until they are woken with
+ * {@link #wakePlayers}, which reads them in full through the {@link IPlayerLoader} and adds them like any
+ * other player.
+ */
 public class PlayerStore {
 
+    private static final Logger logger = LoggerFactory.getLogger(PlayerStore.class);
+
     // The single, final instance of our class.
     private static final PlayerStore INSTANCE = new PlayerStore();
+    // The last-seen bucket of players that have never been seen.
+    private static final long NEVER_SEEN = Long.MIN_VALUE;
 
+    // The writer's working copy. Concurrent, as the relationship index looks players up in it from any thread.
     private final Map<UUID, Player> playerMap;
+    private final RelationshipIndex relationshipIndex;
+    private final StoreWriter.Publisher publisher = new StoreWriter.Publisher(this::publish, this::rollBack);
+    private volatile State state;
+    private final ChangeTracker<UUID, Player> changeTracker =
+            new ChangeTracker<>(Player::getUuid, PlayerStore::fingerprint, () -> state.players().values());
+
+    // Secondary indexes, kept in step with playerMap.
+    private final Map<UUID, Player> dungeonMasters = new HashMap<>();
+    // Players by the week (epoch day / 7) they were last seen in, NEVER_SEEN for never.
+    private final NavigableMap<Long, Map<UUID, Player>> playersByLastSeen = new TreeMap<>();
+    private final Map<UUID, Player> playersNeverSeen = new HashMap<>();
+    private final Map<UUID, Long> indexedWeeks = new HashMap<>();
+    // Owned here rather than shared process-wide, so only players that were in the store take up ids.
+    private final PlayerIndex playerIndex = new PlayerIndex();
+    // Search indexes over the names and the UUIDs, with the edits made to them since the last commit.
+    private final NameIndex nameIndex = new NameIndex();
+    private final NameIndex uuidIndex = new NameIndex();
+    private final NameIndex.Pending pendingNames = nameIndex.pending();
+    private final NameIndex.Pending pendingUuids = uuidIndex.pending();
+    // Players only held as stubs, see wakePlayers.
+    private final Map<UUID, DormantPlayer> dormantPlayers = new HashMap<>();
+    private volatile IPlayerLoader playerLoader;
+
+    // What changed since the last commit, so publishing only copies that.
+    private final Set<UUID> changedPlayers = new HashSet<>();
+    private final Set<UUID> changedDormantPlayers = new HashSet<>();
+    private final Set<Long> changedWeeks = new HashSet<>();
+    private boolean dungeonMastersChanged;
+
+    /**
+     * What readers see: immutable copies of the map and the indexes as of the last commit. Whatever a
+     * commit didn't change is shared with the state before it.
+     */
+    private record State(SnapshotMap<UUID, Player> players,
+                         Set<Player> playerView,
+                         Collection<Player> dungeonMasters,
+                         NavigableMap<Long, List<Player>> playersByLastSeen,
+                         Collection<Player> playersNeverSeen,
+                         SnapshotMap<UUID, DormantPlayer> dormantPlayers) {
+    }
 
     // Private constructor to prevent additional instances and to enforce
     // singleton
     private PlayerStore() {
-        this.playerMap = new HashMap<>();
+        this.playerMap = new ConcurrentHashMap<>();
+        this.relationshipIndex = new RelationshipIndex(this);
+        SnapshotMap<UUID, Player> players = SnapshotMap.empty();
+        this.state = new State(players, new EntityView<>(players, Player::getUuid, Player.class), List.of(),
+                Collections.emptyNavigableMap(), List.of(), SnapshotMap.empty());
     }
 
     protected static PlayerStore getInstance() {
@@ -32,37 +113,442 @@ public class PlayerStore {
         // service.saveAll(playerMap.values().stream().collect(Collectors.toSet()));
     }
 
+    /**
+     * Adds players that were just read from the database. They count as saved.
+     */
     public void init(Set<Player> players) {
-        players.forEach(this::addPlayer);
+        StoreWriter.write(publisher, () -> {
+            players.forEach(this::addPlayer);
+            changeTracker.markLoaded(players);
+        });
+    }
+
+    /**
+     * Adds the stubs of players that were left dormant when reading from the database. Players the store
+     * already holds in full are skipped.
+     */
+    public void initDormant(Collection<DormantPlayer> players) {
+        StoreWriter.write(publisher, () -> {
+            for (DormantPlayer player : players) {
+                if (!playerMap.containsKey(player.uuid())) {
+                    dormantPlayers.put(player.uuid(), player);
+                    changedDormantPlayers.add(player.uuid());
+                    pendingNames.put(player.uuid(), player.name());
+                    pendingUuids.put(player.uuid(), player.uuid().toString());
+                }
+            }
+        });
+    }
+
+    /**
+     * Sets where dormant players are read from when they are woken.
+     */
+    public void setPlayerLoader(IPlayerLoader playerLoader) {
+        this.playerLoader = playerLoader;
+    }
+
+    /**
+     * @return The players only held as stubs, as of the last commit.
+     */
+    public Collection<DormantPlayer> getDormantPlayers() {
+        return state.dormantPlayers().values();
+    }
+
+    public DormantPlayer getDormantPlayer(UUID uuid) {
+        return state.dormantPlayers().get(uuid);
+    }
+
+    public boolean isDormant(UUID uuid) {
+        return state.dormantPlayers().containsKey(uuid);
+    }
+
+    /**
+     * @return The dormant players whose name has the search text, or whose UUID does, like
+     * {@link PlayerQuery#search}.
+     */
+    public List<DormantPlayer> findDormant(String search) {
+        Map<UUID, DormantPlayer> dormant = state.dormantPlayers();
+        if (search == null || search.isEmpty() || dormant.isEmpty()) {
+            return List.of();
+        }
+        Stream<UUID> hits = nameIndex.search(search).uuids();
+        if (StoreQuery.couldBeUuidPart(search)) {
+            hits = Stream.concat(hits, uuidIndex.search(search).uuids()).distinct();
+        }
+        return hits.map(dormant::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * @return The player, woken first if they were dormant, or null if there is no such player.
+     */
+    public Player wakePlayer(UUID uuid) {
+        Player player = getPlayerByUuid(uuid);
+        if (player == null && isDormant(uuid)) {
+            wakePlayers(List.of(uuid));
+            player = getPlayerByUuid(uuid);
+        }
+        return player;
+    }
+
+    /**
+     * Reads the dormant players among the given ones in full, with their characters, and adds them to the
+     * stores as if they had been loaded with everyone else. The database is read before taking the writer,
+     * so other changes don't wait for it. Players that aren't dormant are left alone.
+     * @return How many players were woken.
+     */
+    public int wakePlayers(Collection<UUID> uuids) {
+        Set<UUID> dormant = new HashSet<>();
+        for (UUID uuid : uuids) {
+            if (isDormant(uuid)) {
+                dormant.add(uuid);
+            }
+        }
+        if (dormant.isEmpty()) {
+            return 0;
+        }
+        IPlayerLoader loader = this.playerLoader;
+        if (loader == null) {
+            logger.warn("Can't wake {} dormant players, as nothing to read them from was set.", dormant.size());
+            return 0;
+        }
+        Collection<Player> loaded = loader.load(dormant);
+        int[] woken = new int[1];
+        StoreWriter.write(publisher, () -> {
+            for (Player player : loaded) {
+                // Someone else may have woken them in the meantime.
+                if (dormantPlayers.containsKey(player.getUuid())) {
+                    addPlayer(player);
+                    changeTracker.markLoaded(List.of(player));
+                    CharacterStore.getInstance().init(new HashSet<>(player.getCharacters()));
+                    woken[0]++;
+                }
+            }
+        });
+        logger.info("Woke {} of {} dormant players.", woken[0], dormant.size());
+        return woken[0];
+    }
+
+    public RelationshipIndex getRelationshipIndex() {
+        return relationshipIndex;
+    }
+
+    /**
+     * @return A new query over the players, see {@link PlayerQuery}.
+     */
+    public PlayerQuery query() {
+        return new PlayerQuery(this, CharacterStore.getInstance());
+    }
+
+    /**
+     * Has the listener told what every commit changed, from now on. Commits are shared by all stores,
+     * so it hears about the other stores' changes too.
+     */
+    public void addChangeListener(IStoreChangeListener listener) {
+        StoreWriter.addListener(listener);
+    }
+
+    public void removeChangeListener(IStoreChangeListener listener) {
+        StoreWriter.removeListener(listener);
+    }
+
+    /**
+     * @return Which players changed since they were last saved.
+     */
+    public ChangeTracker<UUID, Player> getChangeTracker() {
+        return changeTracker;
+    }
+
+    /**
+     * @return The dense player ids the relationship sets are kept in.
+     */
+    public PlayerIndex getPlayerIndex() {
+        return playerIndex;
+    }
+
+    /**
+     * @return The search index over the players' names, as of the last commit.
+     */
+    public NameIndex getNameIndex() {
+        return nameIndex;
     }
 
-    public List<Player> getDungeonMasters() {
-        return this.playerMap.values().stream()
-                .filter(Player::isDungeonMaster)
-                .collect(Collectors.toList());
+    /**
+     * @return The search index over the players' UUIDs, as of the last commit.
+     */
+    public NameIndex getUuidIndex() {
+        return uuidIndex;
     }
 
+    /**
+     * @return The players that can DM, as of the last commit.
+     */
+    public Collection<Player> getDungeonMasters() {
+        return state.dungeonMasters();
+    }
+
+    /**
+     * @return The players last seen between the two dates, both included. Only the weeks in the range are looked at.
+     */
+    public List<Player> getPlayersLastSeenBetween(LocalDate from, LocalDate to) {
+        List<Player> players = new ArrayList<>();
+        for (List<Player> week : getWeeksLastSeenBetween(from, to)) {
+            for (Player player : week) {
+                // The first and last week can stick out of the range.
+                if (!player.getLastSeen().isBefore(from) && !player.getLastSeen().isAfter(to)) {
+                    players.add(player);
+                }
+            }
+        }
+        return players;
+    }
+
+    /**
+     * @return The players by the week they were last seen in, for every week that overlaps the range.
+     * The first and last week can hold players seen just outside it.
+     */
+    Collection<List<Player>> getWeeksLastSeenBetween(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return List.of();
+        }
+        return state.playersByLastSeen().subMap(weekOf(from), true, weekOf(to), true).values();
+    }
+
+    /**
+     * @return The players that have never been seen, as of the last commit.
+     */
+    public Collection<Player> getPlayersNeverSeen() {
+        return state.playersNeverSeen();
+    }
+
+    /**
+     * @return Every player as of the last commit. It never changes, so it is safe to iterate while the store moves on.
+     */
     public Set<Player> getAllPlayers() {
-        return new HashSet<>(playerMap.values());
+        return state.playerView();
     }
 
     public Player getPlayerByUuid(UUID uuid) {
+        return state.players().get(uuid);
+    }
+
+    /**
+     * Looks a player up in the writer's working copy, which may be ahead of the last commit.
+     * For the relationship index, which is kept up to date while a change is still being made.
+     */
+    Player getWorkingPlayer(UUID uuid) {
         return this.playerMap.get(uuid);
     }
 
+    /**
+     * @return The player map as of the last commit.
+     */
+    Map<UUID, Player> getPlayerMap() {
+        return state.players();
+    }
+
     public void addPlayer(Player player) {
-        this.playerMap.put(player.getUuid(), player);
-        //this.service.save(player);
+        if (player.getPlayerIndex() != playerIndex) {
+            // Its relationship sets hold ids from another index, which mean other players here.
+            throw new IllegalArgumentException("Player '%s' was built with another player index than the store's.".formatted(player.getName()));
+        }
+        StoreWriter.write(publisher, () -> {
+            player.setId(playerIndex.idOf(player.getUuid()));
+            Player previous = this.playerMap.put(player.getUuid(), player);
+            if (previous != null && previous != player) {
+                previous.setRelationshipListener(null);
+            }
+            if (previous != player) {
+                this.changedPlayers.add(player.getUuid());
+            }
+            if (this.dormantPlayers.remove(player.getUuid()) != null) {
+                this.changedDormantPlayers.add(player.getUuid());
+            }
+            StoreWriter.playerChanged(player.getUuid(), previous == null ? StoreWriter.Kind.ADDED : StoreWriter.Kind.UPDATED);
+            //this.service.save(player);
+            this.relationshipIndex.add(player);
+            index(player);
+            changeTracker.markChanged(player.getUuid());
+        });
     }
 
     public void addPlayer(Set<Player> players) {
-        players.forEach(this::addPlayer);
+        StoreWriter.write(publisher, () -> players.forEach(this::addPlayer));
     }
 
     public void removePlayer(Player player) {
-        this.playerMap.remove(player.getUuid());
+        StoreWriter.write(publisher, () -> {
+            if (this.playerMap.remove(player.getUuid()) != null) {
+                StoreWriter.playerChanged(player.getUuid(), StoreWriter.Kind.REMOVED);
+                this.changedPlayers.add(player.getUuid());
+            }
+            this.relationshipIndex.remove(player);
+            unindex(player.getUuid());
+            pendingNames.remove(player.getUuid());
+            pendingUuids.remove(player.getUuid());
+            changeTracker.forget(player.getUuid());
+        });
+    }
+
+    public boolean hasPlayer(Player player) { return state.players().containsKey(player.getUuid()); }
+    public void clear() {
+        StoreWriter.write(publisher, () -> {
+            this.playerMap.values().forEach(player -> player.setRelationshipListener(null));
+            this.playerMap.keySet().forEach(uuid -> StoreWriter.playerChanged(uuid, StoreWriter.Kind.REMOVED));
+            this.changedPlayers.addAll(this.playerMap.keySet());
+            this.playerMap.clear();
+            this.relationshipIndex.clear();
+            this.dungeonMasters.clear();
+            this.dungeonMastersChanged = true;
+            this.changedWeeks.addAll(this.playersByLastSeen.keySet());
+            this.changedWeeks.add(NEVER_SEEN);
+            this.playersByLastSeen.clear();
+            this.playersNeverSeen.clear();
+            this.indexedWeeks.clear();
+            this.pendingNames.clear();
+            this.pendingUuids.clear();
+            this.changedDormantPlayers.addAll(this.dormantPlayers.keySet());
+            this.dormantPlayers.clear();
+            this.changeTracker.clear();
+        });
+    }
+
+    /**
+     * Marks a player as changed, for edits the store hears about without the player being added again.
+     */
+    void markChanged(Player player) {
+        changeTracker.markChanged(player.getUuid());
+    }
+
+    /**
+     * Makes a new immutable state from the last one and what changed since, and makes the queued edits to
+     * the search indexes. Only called by the writer.
+     */
+    private void publish() {
+        State last = this.state;
+        SnapshotMap<UUID, Player> players = last.players().with(playerMap, changedPlayers);
+        NavigableMap<Long, List<Player>> weeks = last.playersByLastSeen();
+        if (changedWeeks.stream().anyMatch(week -> week != NEVER_SEEN)) {
+            NavigableMap<Long, List<Player>> copy = new TreeMap<>(weeks);
+            for (long week : changedWeeks) {
+                Map<UUID, Player> members = playersByLastSeen.get(week);
+                if (members != null) {
+                    copy.put(week, List.copyOf(members.values()));
+                } else {
+                    copy.remove(week);
+                }
+            }
+            weeks = Collections.unmodifiableNavigableMap(copy);
+        }
+        // The searches resolve their hits through the state, so anything they find early is left out until it is published.
+        pendingNames.apply();
+        pendingUuids.apply();
+        this.state = new State(players,
+                players != last.players() ? new EntityView<>(players, Player::getUuid, Player.class) : last.playerView(),
+                dungeonMastersChanged ? List.copyOf(dungeonMasters.values()) : last.dungeonMasters(),
+                weeks,
+                changedWeeks.contains(NEVER_SEEN) ? List.copyOf(playersNeverSeen.values()) : last.playersNeverSeen(),
+                last.dormantPlayers().with(dormantPlayers, changedDormantPlayers));
+        forgetChanges();
     }
 
-    public boolean hasPlayer(Player player) { return this.playerMap.containsKey(player.getUuid()); }
-    public void clear() { this.playerMap.clear(); }
+    /**
+     * Puts the working map and indexes back as they were at the last commit, after a change failed halfway.
+     * The players themselves aren't copied, so edits made to them before the failure stay. The state and
+     * the search indexes were never touched, so only the queued edits are dropped. Only called by the writer.
+     */
+    private void rollBack() {
+        playerMap.values().forEach(player -> player.setRelationshipListener(null));
+        playerMap.clear();
+        playerMap.putAll(state.players());
+        relationshipIndex.clear();
+        dungeonMasters.clear();
+        playersByLastSeen.clear();
+        playersNeverSeen.clear();
+        indexedWeeks.clear();
+        dormantPlayers.clear();
+        dormantPlayers.putAll(state.dormantPlayers());
+        playerMap.values().forEach(player -> {
+            relationshipIndex.add(player);
+            index(player);
+        });
+        forgetChanges();
+    }
+
+    private void forgetChanges() {
+        changedPlayers.clear();
+        changedDormantPlayers.clear();
+        changedWeeks.clear();
+        dungeonMastersChanged = false;
+        pendingNames.discard();
+        pendingUuids.discard();
+    }
+
+    private void index(Player player) {
+        UUID uuid = player.getUuid();
+        if (player.isDungeonMaster()) {
+            if (dungeonMasters.put(uuid, player) != player) {
+                dungeonMastersChanged = true;
+            }
+        } else if (dungeonMasters.remove(uuid) != null) {
+            dungeonMastersChanged = true;
+        }
+        long week = player.getLastSeen() != null ? weekOf(player.getLastSeen()) : NEVER_SEEN;
+        Long previousWeek = indexedWeeks.put(uuid, week);
+        if (previousWeek != null && previousWeek != week) {
+            removeFromWeek(uuid, previousWeek);
+        }
+        if (weekMap(week, true).put(uuid, player) != player) {
+            changedWeeks.add(week);
+        }
+        pendingNames.put(uuid, player.getName());
+        pendingUuids.put(uuid, uuid.toString());
+    }
+
+    private void unindex(UUID uuid) {
+        if (dungeonMasters.remove(uuid) != null) {
+            dungeonMastersChanged = true;
+        }
+        Long week = indexedWeeks.remove(uuid);
+        if (week != null) {
+            removeFromWeek(uuid, week);
+        }
+    }
+
+    private void removeFromWeek(UUID uuid, long week) {
+        Map<UUID, Player> players = weekMap(week, false);
+        players.remove(uuid);
+        changedWeeks.add(week);
+        if (players.isEmpty() && week != NEVER_SEEN) {
+            playersByLastSeen.remove(week);
+        }
+    }
+
+    private Map<UUID, Player> weekMap(long week, boolean create) {
+        if (week == NEVER_SEEN) {
+            return playersNeverSeen;
+        }
+        return create ? playersByLastSeen.computeIfAbsent(week, w -> new HashMap<>()) : playersByLastSeen.get(week);
+    }
+
+    /**
+     * @return A fingerprint of everything about the player that is saved with them.
+     */
+    private static long fingerprint(Player player) {
+        long fingerprint = ChangeTracker.mix(0L, player.getName());
+        fingerprint = ChangeTracker.mix(fingerprint, player.isDungeonMaster());
+        fingerprint = ChangeTracker.mix(fingerprint, player.getLastSeen());
+        fingerprint = ChangeTracker.mixAll(fingerprint, player.getCharacters());
+        fingerprint = ChangeTracker.mix(fingerprint, fingerprint(player.getBuddylist()));
+        fingerprint = ChangeTracker.mix(fingerprint, fingerprint(player.getBlacklist()));
+        fingerprint = ChangeTracker.mix(fingerprint, fingerprint(player.getDmBlacklist()));
+        return ChangeTracker.mix(fingerprint, player.getPlayerLog().fingerprint());
+    }
+
+    private static long fingerprint(Set<UUID> players) {
+        return players instanceof PlayerIdSet ids ? ids.fingerprint() : ChangeTracker.mixAll(0L, players);
+    }
+
+    private static long weekOf(LocalDate date) {
+        return Math.floorDiv(date.toEpochDay(), 7);
+    }
 }
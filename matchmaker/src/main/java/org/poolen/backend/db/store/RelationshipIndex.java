@@ -0,0 +1,190 @@
+package org.poolen.backend.db.store;
+
+import org.poolen.backend.db.entities.Player;
+import org.poolen.backend.db.interfaces.IRelationshipListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A long-lived, symmetric index of who is connected to whom among the stored players: buddies, blacklists
+ * and the last time two players shared a table, merged from both players' sides. It is kept up to date
+ * as players play and edit their lists, so the matchmaker can look relationships up per attendee instead
+ * of rebuilding them from every player's maps on each run.
+ * <p>
+ * The last game is kept as an epoch day, and how many weeks ago that was is only worked out when it is
+ * read, so the index never has to be touched just because time passed.
+ * <p>
+ * Every change it hears about also marks the player as changed in the store, so it gets saved.
+ */
+public class RelationshipIndex implements IRelationshipListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelationshipIndex.class);
+    private static final long NEVER = Long.MIN_VALUE;
+
+    /**
+     * Everything known about a pair of players.
+     * @param lastPlayedEpochDay The epoch day of the last shared game, or {@link Long#MIN_VALUE} if none.
+     */
+    public record Relation(boolean buddy, boolean blacklist, long lastPlayedEpochDay) {
+
+        /**
+         * What {@link #weeksSincePlayed} gives for a pair that never played together.
+         */
+        public static final long NEVER_PLAYED = Long.MIN_VALUE;
+
+        public boolean hasPlayedTogether() {
+            return lastPlayedEpochDay != NEVER;
+        }
+
+        public LocalDate getLastPlayed() {
+            return hasPlayedTogether() ? LocalDate.ofEpochDay(lastPlayedEpochDay) : null;
+        }
+
+        /**
+         * @return Whole weeks between the last shared game and the given date, or {@link #NEVER_PLAYED} if they
+         * never played together. A game recorded after the given date gives zero or fewer weeks.
+         */
+        public long weeksSincePlayed(LocalDate asOf) {
+            return hasPlayedTogether() ? (asOf.toEpochDay() - lastPlayedEpochDay) / 7 : NEVER_PLAYED;
+        }
+    }
+
+    private final PlayerStore playerStore;
+    private final Map<UUID, Map<UUID, Relation>> relations = new ConcurrentHashMap<>();
+    private final Set<UUID> indexed = ConcurrentHashMap.newKeySet();
+
+    RelationshipIndex(PlayerStore playerStore) {
+        this.playerStore = playerStore;
+    }
+
+    /**
+     * @return Whether the player's relationships are tracked here.
+     */
+    public boolean isIndexed(UUID player) {
+        return indexed.contains(player);
+    }
+
+    /**
+     * @return Every player the given player has a relationship with. Empty if the player isn't indexed.
+     */
+    public Map<UUID, Relation> getRelations(UUID player) {
+        Map<UUID, Relation> row = relations.get(player);
+        return row != null ? Collections.unmodifiableMap(row) : Map.of();
+    }
+
+    /**
+     * @return The relation between two players, or null if there is none.
+     */
+    public Relation getRelation(UUID player, UUID other) {
+        return relations.getOrDefault(player, Map.of()).get(other);
+    }
+
+    void add(Player player) {
+        player.setRelationshipListener(this);
+        indexed.add(player.getUuid());
+        refresh(player);
+    }
+
+    /**
+     * Forgets the player's own lists. Relations the remaining players still hold towards them are kept,
+     * just as they are still in those players' lists.
+     */
+    void remove(Player player) {
+        player.setRelationshipListener(null);
+        indexed.remove(player.getUuid());
+        Map<UUID, Relation> row = relations.get(player.getUuid());
+        if (row != null) {
+            for (UUID other : Set.copyOf(row.keySet())) {
+                recompute(player.getUuid(), other);
+            }
+        }
+    }
+
+    void clear() {
+        relations.clear();
+        indexed.clear();
+    }
+
+    @Override
+    public void onPlayedTogether(Player player, Player partner, LocalDate date) {
+        playerStore.markChanged(player);
+        recompute(player.getUuid(), partner.getUuid());
+    }
+
+    @Override
+    public void onRelationshipChanged(Player player, Player other) {
+        playerStore.markChanged(player);
+        recompute(player.getUuid(), other.getUuid());
+    }
+
+    @Override
+    public void onRelationshipsReplaced(Player player) {
+        playerStore.markChanged(player);
+        refresh(player);
+    }
+
+    /**
+     * Recomputes every relation the player has, both the old ones and the ones in their current lists.
+     */
+    private void refresh(Player player) {
+        UUID uuid = player.getUuid();
+        if (!indexed.contains(uuid)) return;
+        Set<UUID> others = new HashSet<>(relations.getOrDefault(uuid, Map.of()).keySet());
+        others.addAll(player.getBuddylist());
+        others.addAll(player.getBlacklist());
+        others.addAll(player.getPlayerLog().keySet());
+        for (UUID other : others) {
+            recompute(uuid, other);
+        }
+        logger.trace("Refreshed {} relations of player '{}'.", others.size(), player.getName());
+    }
+
+    /**
+     * Rebuilds the relation between two players from both of their current lists.
+     */
+    private void recompute(UUID first, UUID second) {
+        if (first.equals(second)) return;
+        Player a = playerStore.getWorkingPlayer(first);
+        Player b = playerStore.getWorkingPlayer(second);
+        boolean buddy = lists(a, second, Player::getBuddylist) || lists(b, first, Player::getBuddylist);
+        boolean blacklist = lists(a, second, Player::getBlacklist) || lists(b, first, Player::getBlacklist);
+        long lastPlayed = Math.max(lastPlayed(a, second), lastPlayed(b, first));
+        if (!buddy && !blacklist && lastPlayed == NEVER) {
+            removeRelation(first, second);
+        } else {
+            put(first, second, new Relation(buddy, blacklist, lastPlayed));
+        }
+    }
+
+    private boolean lists(Player player, UUID other, Function<Player, Set<UUID>> list) {
+        return player != null && list.apply(player).contains(other);
+    }
+
+    private long lastPlayed(Player player, UUID other) {
+        if (player == null) return NEVER;
+        int epochDay = player.getPlayerLog().getEpochDay(playerStore.getPlayerIndex().find(other));
+        return epochDay != PlayLog.NEVER ? epochDay : NEVER;
+    }
+
+    private void put(UUID first, UUID second, Relation relation) {
+        // Both sides get a row, even a player not loaded yet, so their relations are already in place once they are.
+        relations.computeIfAbsent(first, uuid -> new ConcurrentHashMap<>()).put(second, relation);
+        relations.computeIfAbsent(second, uuid -> new ConcurrentHashMap<>()).put(first, relation);
+    }
+
+    private void removeRelation(UUID first, UUID second) {
+        Map<UUID, Relation> firstRow = relations.get(first);
+        Map<UUID, Relation> secondRow = relations.get(second);
+        if (firstRow != null && firstRow.remove(second) != null && firstRow.isEmpty()) relations.remove(first);
+        if (secondRow != null && secondRow.remove(first) != null && secondRow.isEmpty()) relations.remove(second);
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.HashMap;
 import java.util.List;
@@ -22,8 +23,19 @@ import static org.poolen.backend.db.constants.Settings.MatchmakerMultiplierSetti
 import static org.poolen.backend.db.constants.Settings.MatchmakerPrioritySettings.*;
 import static org.poolen.backend.db.constants.Settings.PersistenceSettings.*;
 
+/**
+ * Every setting by name, starting out from the defaults. Changes go through the {@link StoreWriter}
+ * one at a time; reads are served from the map as of the last commit, without locking. Every change is
+ * also marked in the {@link ChangeTracker}, so saving only has to write the settings that changed.
+ */
 public class SettingsStore {
+    // The writer's working copy.
     private Map<ISettings, Setting<?>> settingsMap;
+    private final StoreWriter.Publisher publisher = new StoreWriter.Publisher(this::publish, this::rollBack);
+    private volatile Map<ISettings, Setting<?>> publishedSettings;
+    private volatile Set<Setting<?>> publishedSettingsView;
+    private final ChangeTracker<ISettings, Setting<?>> changeTracker =
+            new ChangeTracker<>(Setting::getName, SettingsStore::fingerprint, () -> publishedSettingsView);
 
     private static final SettingsStore INSTANCE = new SettingsStore();
 
@@ -32,28 +44,72 @@ public class SettingsStore {
     // singleton
     private SettingsStore() {
         this.settingsMap = new HashMap<>();
-        setDefaultSettings();
+        putDefaultSettings();
+        publish();
     }
 
     protected static SettingsStore getInstance() {
         return INSTANCE;
     }
 
-        public void init(Set<Setting<?>> settings) {
-            settings.forEach(setting -> settingsMap.put(setting.getName(), setting));
+    /**
+     * Adds settings that were just read from the database. They count as saved.
+     */
+    public void init(Set<Setting<?>> settings) {
+        StoreWriter.write(publisher, () -> {
+            settings.forEach(setting -> {
+                settingsMap.put(setting.getName(), setting);
+                StoreWriter.settingChanged(setting.getName());
+            });
+            changeTracker.markLoaded(settings);
+        });
+    }
+
+    /**
+     * @return Which settings changed since they were last saved.
+     */
+    public ChangeTracker<ISettings, Setting<?>> getChangeTracker() {
+        return changeTracker;
     }
 
     public void saveAll() {
         //service.saveAll(settingsMap.values().stream().collect(Collectors.toCollection(HashSet::new)));
     }
     public Setting getSetting(ISettings setting){
-        return this.settingsMap.get(setting);
+        return this.publishedSettings.get(setting);
     }
     public Set<Setting<?>> getSettings() {
-        return new HashSet<>(settingsMap.values());
+        return publishedSettingsView;
+    }
+
+    /**
+     * @return The settings map as of the last commit.
+     */
+    Map<ISettings, Setting<?>> getSettingsMap() {
+        return publishedSettings;
+    }
+
+    /**
+     * Copies the working map into a new immutable one. Only called by the writer.
+     */
+    private void publish() {
+        this.publishedSettings = Map.copyOf(settingsMap);
+        this.publishedSettingsView = Collections.unmodifiableSet(new HashSet<>(settingsMap.values()));
+    }
+
+    /**
+     * Puts the working map back as it was at the last commit, after a change failed halfway. A setting's value
+     * is only set once it passed every check, so the settings themselves need no undoing. Only called by the writer.
+     */
+    private void rollBack() {
+        this.settingsMap = new HashMap<>(publishedSettings);
     }
 
     public <T> void updateSetting(ISettings setting, T value) {
+        StoreWriter.write(publisher, () -> applySetting(setting, value));
+    }
+
+    private <T> void applySetting(ISettings setting, T value) {
         if (!this.settingsMap.containsKey(setting)) {
             throw new IllegalArgumentException("Oh no! The setting '" + setting.toString() + "' doesn't exist. I can't update something that isn't here!");
         }
@@ -76,15 +132,37 @@ public class SettingsStore {
 
         // If we've made it this far, everything is just fine!
         existingSetting.setSettingValue(value);
+        changeTracker.markChanged(setting);
+        StoreWriter.settingChanged(setting);
     }
 
     public void clear() {
-        this.settingsMap.clear();
-        setDefaultSettings();
+        StoreWriter.write(publisher, () -> {
+            this.settingsMap.clear();
+            this.changeTracker.clear();
+            putDefaultSettings();
+            settingsMap.keySet().forEach(StoreWriter::settingChanged);
+        });
     }
 
 
     public void setDefaultSettings() {
+        StoreWriter.write(publisher, () -> {
+            putDefaultSettings();
+            settingsMap.keySet().forEach(changeTracker::markChanged);
+            settingsMap.keySet().forEach(StoreWriter::settingChanged);
+        });
+    }
+
+    /**
+     * @return A fingerprint of everything about the setting that is saved with it.
+     */
+    private static long fingerprint(Setting<?> setting) {
+        long fingerprint = ChangeTracker.mix(0L, setting.getDescription());
+        return ChangeTracker.mix(fingerprint, setting.getSettingValue());
+    }
+
+    private void putDefaultSettings() {
         List<House> amberPriorities = new ArrayList<>(List.of(House.GARNET, House.OPAL, House.AVENTURINE));
         List<House> aventurinePriorities = new ArrayList<>(List.of(House.OPAL, House.AMBER, House.GARNET));
         List<House> garnetPriorities = new ArrayList<>(List.of(House.AMBER, House.OPAL, House.AVENTURINE));
@@ -136,6 +214,8 @@ public class SettingsStore {
                 OPAL_SHEET_NAME, new Setting<String>(OPAL_SHEET_NAME, "The name of the google sheets tab for Garnet, has to be spelled perfectly!", "Shifting Opal"));
         this.settingsMap.put(
                 DISCORD_WEB_HOOK, new Setting<String>(DISCORD_WEB_HOOK, "Discord webhook URL", ""));
+        this.settingsMap.put(
+                DORMANT_AFTER, new Setting<Integer>(DORMANT_AFTER, "The number of weeks without being seen after which a player is only loaded when they are searched for or imported, 0 loads everyone", 52));
 
     }
 }
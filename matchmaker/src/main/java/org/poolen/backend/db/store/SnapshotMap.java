@@ -0,0 +1,157 @@
+package org.poolen.backend.db.store;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * An immutable map for the stores' published states, cut into shards by the keys' hashes. The next
+ * snapshot is made from the last one and the keys that changed since: only the shards holding those keys
+ * are copied and the rest are shared, so a commit costs about the size of what it changed rather than of
+ * the whole map.
+ */
+final class SnapshotMap<K, V> extends AbstractMap<K, V> {
+
+    // A power of two, so a key's shard is a mask of its hash.
+    private static final int SHARDS = 256;
+    private static final SnapshotMap<?, ?> EMPTY = new SnapshotMap<>(emptyShards(), 0);
+
+    private final Map<K, V>[] shards;
+    private final int size;
+
+    private SnapshotMap(Map<K, V>[] shards, int size) {
+        this.shards = shards;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> SnapshotMap<K, V> empty() {
+        return (SnapshotMap<K, V>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Map<K, V>[] emptyShards() {
+        Map<K, V>[] shards = new Map[SHARDS];
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = Map.of();
+        }
+        return shards;
+    }
+
+    /**
+     * @return A snapshot like this one, with the given keys as they are in the source now: put if the
+     * source has them, removed if it hasn't. Shards none of the keys fall in are shared with this one.
+     */
+    SnapshotMap<K, V> with(Map<K, V> source, Collection<K> changed) {
+        if (changed.isEmpty()) {
+            return this;
+        }
+        Map<K, V>[] copied = shards.clone();
+        boolean[] fresh = new boolean[SHARDS];
+        int newSize = size;
+        for (K key : changed) {
+            int shard = shardOf(key);
+            if (!fresh[shard]) {
+                copied[shard] = new HashMap<>(shards[shard]);
+                fresh[shard] = true;
+            }
+            V value = source.get(key);
+            int before = copied[shard].size();
+            if (value != null) {
+                copied[shard].put(key, value);
+            } else {
+                copied[shard].remove(key);
+            }
+            newSize += copied[shard].size() - before;
+        }
+        return new SnapshotMap<>(copied, newSize);
+    }
+
+    private static int shardOf(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (SHARDS - 1);
+    }
+
+    @Override
+    public V get(Object key) {
+        return key != null ? shards[shardOf(key)].get(key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && shards[shardOf(key)].containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ShardIterator<>(Map::values);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                // The shards' own entries could be set through, so they are handed out read-only.
+                return new ShardIterator<>(shard -> Collections.unmodifiableMap(shard).entrySet());
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Walks one part of every shard in turn. It can't remove, as the shards are shared.
+     */
+    private final class ShardIterator<T> implements Iterator<T> {
+        private final Function<Map<K, V>, Collection<T>> part;
+        private Iterator<T> current = Collections.emptyIterator();
+        private int next;
+
+        ShardIterator(Function<Map<K, V>, Collection<T>> part) {
+            this.part = part;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext() && next < SHARDS) {
+                current = part.apply(shards[next++]).iterator();
+            }
+            return current.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+}
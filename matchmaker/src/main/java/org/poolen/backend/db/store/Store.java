@@ -1,5 +1,6 @@
 package org.poolen.backend.db.store;
 
+import org.poolen.backend.db.interfaces.IStoreChangeListener;
 import org.poolen.backend.db.interfaces.store.CharacterStoreProvider;
 import org.poolen.backend.db.interfaces.store.PlayerStoreProvider;
 import org.poolen.backend.db.interfaces.store.SettingStoreProvider;
@@ -31,5 +32,45 @@ public class Store implements CharacterStoreProvider, PlayerStoreProvider, Setti
         return settingsStore;
     }
 
+    /**
+     * @return Every store as of the last commit. Safe to read from any thread without locking.
+     */
+    public StoreSnapshot getSnapshot() {
+        return StoreWriter.getSnapshot();
+    }
+
+    /**
+     * Runs several changes as one commit: other writers wait until it is done, and readers see either
+     * none or all of it, under a single new version.
+     */
+    public void commit(Runnable changes) {
+        StoreWriter.write(null, changes);
+    }
+
+    /**
+     * @return A new query over the players, using the store's indexes. See {@link StoreQuery}.
+     */
+    public PlayerQuery queryPlayers() {
+        return playerStore.query();
+    }
+
+    /**
+     * @return A new query over the characters, using the store's indexes. See {@link StoreQuery}.
+     */
+    public CharacterQuery queryCharacters() {
+        return characterStore.query();
+    }
+
+    /**
+     * Has the listener told what every commit changed, from now on.
+     */
+    public void addChangeListener(IStoreChangeListener listener) {
+        StoreWriter.addListener(listener);
+    }
+
+    public void removeChangeListener(IStoreChangeListener listener) {
+        StoreWriter.removeListener(listener);
+    }
+
 
 }
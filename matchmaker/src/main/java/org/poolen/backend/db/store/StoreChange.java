@@ -0,0 +1,38 @@
+package org.poolen.backend.db.store;
+
+import org.poolen.backend.db.interfaces.ISettings;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * What one commit changed in the stores, for listeners that follow along instead of reading everything
+ * again. Changes made within the same commit are folded together: an entity added and removed again isn't
+ * in it at all, and one removed and added again, like a reload does, counts as updated. A player whose
+ * characters were added, updated or removed counts as updated too, as players show their characters.
+ * @param version The version of the {@link StoreSnapshot} the commit published.
+ * @param settings The settings that were updated.
+ */
+public record StoreChange(long version,
+                          EntityChanges players,
+                          EntityChanges characters,
+                          Set<ISettings> settings) {
+
+    /**
+     * The UUIDs of the entities of one store that were added, updated or removed.
+     */
+    public record EntityChanges(Set<UUID> added, Set<UUID> updated, Set<UUID> removed) {
+
+        public boolean isEmpty() {
+            return added.isEmpty() && updated.isEmpty() && removed.isEmpty();
+        }
+
+        public int size() {
+            return added.size() + updated.size() + removed.size();
+        }
+    }
+
+    public boolean isEmpty() {
+        return players.isEmpty() && characters.isEmpty() && settings.isEmpty();
+    }
+}
@@ -0,0 +1,81 @@
+package org.poolen.backend.db.store;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * A query over one of the stores. The conditions are collected first; nothing is looked at until the
+ * results are asked for, and then only as far as needed: {@link #page} stops once the page is full.
+ * <p>
+ * The candidates come from whichever of the store's indexes narrows things down the most for the
+ * conditions given, and every candidate is then checked against all of them with {@link #matches}.
+ * The same check can be used on its own, e.g. as a table filter, so every view filters the same way.
+ * Searches by name are looked up in the stores' {@link NameIndex}es once per query, so checking a row
+ * against them allocates nothing.
+ * <p>
+ * Results are read from the stores as of the last commit whenever they are asked for.
+ * @param <T> The entity the query returns.
+ */
+public abstract class StoreQuery<T> implements Iterable<T> {
+
+    /**
+     * @return Whether the entity meets every condition of the query.
+     */
+    public abstract boolean matches(T entity);
+
+    /**
+     * @return A superset of the results, taken from the most selective index available.
+     */
+    abstract Stream<T> candidates();
+
+    public Stream<T> stream() {
+        return candidates().filter(this::matches);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return stream().iterator();
+    }
+
+    /**
+     * @param offset How many results to skip.
+     * @param limit The most results to return.
+     * @return One page of the results. Only the results up to the end of the page are looked at.
+     */
+    public List<T> page(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("A page can't start at %d or hold %d results.".formatted(offset, limit));
+        }
+        return stream().skip(offset).limit(limit).toList();
+    }
+
+    public Optional<T> first() {
+        return stream().findFirst();
+    }
+
+    public int count() {
+        return (int) stream().count();
+    }
+
+    static boolean startsWithIgnoreCase(String text, String prefix) {
+        return text != null && text.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    /**
+     * @return Whether the text could be part of a UUID, so it is worth looking for in the UUID index.
+     */
+    static boolean couldBeUuidPart(String text) {
+        if (text.length() > 36) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.digit(c, 16) < 0 && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
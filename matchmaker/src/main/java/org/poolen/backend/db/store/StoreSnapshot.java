@@ -0,0 +1,21 @@
+package org.poolen.backend.db.store;
+
+import org.poolen.backend.db.entities.Character;
+import org.poolen.backend.db.entities.Player;
+import org.poolen.backend.db.entities.Setting;
+import org.poolen.backend.db.interfaces.ISettings;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Every store as it was after one commit. The maps never change, so a snapshot can be read from any
+ * thread for as long as needed while the stores move on. The entities in it are the live objects;
+ * only which entities the stores hold is frozen.
+ * @param version Goes up by one with every commit.
+ */
+public record StoreSnapshot(long version,
+                            Map<UUID, Player> players,
+                            Map<UUID, Character> characters,
+                            Map<ISettings, Setting<?>> settings) {
+}
@@ -0,0 +1,234 @@
+package org.poolen.backend.db.store;
+
+import org.poolen.backend.db.interfaces.ISettings;
+import org.poolen.backend.db.interfaces.IStoreChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * The one way into the stores for writers. Every change runs under a single lock, and once the outermost
+ * change is done each store that was touched publishes a fresh immutable state, followed by a new
+ * {@link StoreSnapshot} of all of them under the next version. Readers only ever look at published
+ * states, so they never take the lock and never see a change half done.
+ * <p>
+ * Changes nest: a store method called inside {@link Store#commit} joins it, so a whole reload is published
+ * as one version.
+ * <p>
+ * A change that throws is not published. The stores that took part put their working maps back as they
+ * were at the last commit, and nothing is handed to the listeners. If a nested change throws and its caller
+ * carries on anyway, the whole commit is still dropped, as the working maps can't be trusted any more.
+ * <p>
+ * The stores also tell the writer which entities they added, updated and removed. Those are folded into
+ * one {@link StoreChange} per commit, which is handed to the listeners after the lock is let go.
+ */
+final class StoreWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(StoreWriter.class);
+
+    private static final ReentrantLock lock = new ReentrantLock();
+    private static final Set<Publisher> touched = new LinkedHashSet<>();
+    private static int depth;
+    // Whether a change in the commit under way threw.
+    private static boolean failed;
+    private static long version;
+    private static volatile StoreSnapshot snapshot;
+
+    // What the commit under way changed, folded per entity.
+    private static final Map<UUID, Kind> playerChanges = new LinkedHashMap<>();
+    private static final Map<UUID, Kind> characterChanges = new LinkedHashMap<>();
+    private static final Set<ISettings> settingChanges = new LinkedHashSet<>();
+    private static final List<IStoreChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    enum Kind { ADDED, UPDATED, REMOVED }
+
+    /**
+     * Handed in by the stores, to turn their working maps into an immutable state readers can see, or to put
+     * them back as they were at the last commit when a change failed.
+     */
+    record Publisher(Runnable publish, Runnable rollBack) {
+    }
+
+    private StoreWriter() {
+    }
+
+    static void write(Publisher store, Runnable change) {
+        write(store, () -> {
+            change.run();
+            return null;
+        });
+    }
+
+    static <T> T write(Publisher store, Supplier<T> change) {
+        StoreChange published = null;
+        boolean completed = false;
+        lock.lock();
+        depth++;
+        try {
+            if (store != null) {
+                touched.add(store);
+            }
+            T result = change.get();
+            completed = true;
+            return result;
+        } finally {
+            depth--;
+            try {
+                failed |= !completed;
+                if (depth == 0) {
+                    if (failed) {
+                        rollBack();
+                        if (completed) {
+                            // The change that threw was caught inside the commit, so nobody else knows it was dropped.
+                            throw new IllegalStateException("A change inside the commit failed, so none of it was published.");
+                        }
+                    } else {
+                        published = publish();
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (published != null) {
+                notifyListeners(published);
+            }
+        }
+    }
+
+    static void addListener(IStoreChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    static void removeListener(IStoreChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Records that a player was added, updated or removed by the commit under way.
+     */
+    static void playerChanged(UUID uuid, Kind kind) {
+        fold(playerChanges, uuid, kind);
+    }
+
+    /**
+     * Records that a character was added, updated or removed by the commit under way.
+     */
+    static void characterChanged(UUID uuid, Kind kind) {
+        fold(characterChanges, uuid, kind);
+    }
+
+    /**
+     * Records that a setting was updated by the commit under way.
+     */
+    static void settingChanged(ISettings setting) {
+        if (!lock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("Store changes can only be recorded by the writer.");
+        }
+        settingChanges.add(setting);
+    }
+
+    private static void fold(Map<UUID, Kind> changes, UUID uuid, Kind kind) {
+        if (!lock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("Store changes can only be recorded by the writer.");
+        }
+        Kind earlier = changes.get(uuid);
+        if (earlier == null) {
+            changes.put(uuid, kind);
+        } else if (earlier == Kind.ADDED) {
+            // Whatever happens next, it is still new to anyone listening, or was never there at all.
+            if (kind == Kind.REMOVED) {
+                changes.remove(uuid);
+            }
+        } else if (earlier == Kind.REMOVED) {
+            if (kind != Kind.REMOVED) {
+                changes.put(uuid, Kind.UPDATED);
+            }
+        } else if (kind == Kind.REMOVED) {
+            changes.put(uuid, Kind.REMOVED);
+        }
+    }
+
+    private static StoreChange.EntityChanges drain(Map<UUID, Kind> changes) {
+        if (changes.isEmpty()) {
+            return new StoreChange.EntityChanges(Set.of(), Set.of(), Set.of());
+        }
+        Set<UUID> added = new LinkedHashSet<>();
+        Set<UUID> updated = new LinkedHashSet<>();
+        Set<UUID> removed = new LinkedHashSet<>();
+        changes.forEach((uuid, kind) -> (kind == Kind.ADDED ? added : kind == Kind.UPDATED ? updated : removed).add(uuid));
+        changes.clear();
+        return new StoreChange.EntityChanges(Collections.unmodifiableSet(added),
+                Collections.unmodifiableSet(updated), Collections.unmodifiableSet(removed));
+    }
+
+    private static void notifyListeners(StoreChange change) {
+        for (IStoreChangeListener listener : listeners) {
+            try {
+                listener.onStoreChanged(change);
+            } catch (RuntimeException e) {
+                logger.error("A store change listener failed on version {}.", change.version(), e);
+            }
+        }
+    }
+
+    /**
+     * @return The last published snapshot of every store.
+     */
+    static StoreSnapshot getSnapshot() {
+        StoreSnapshot current = snapshot;
+        if (current == null) {
+            // Nothing was written yet, so the stores' initial states are all there is.
+            write(null, () -> {});
+            current = snapshot;
+        }
+        return current;
+    }
+
+    /**
+     * Drops the commit under way: the stores it touched go back to their last published state, and the
+     * changes recorded for the listeners are forgotten.
+     */
+    private static void rollBack() {
+        failed = false;
+        for (Publisher store : touched) {
+            try {
+                store.rollBack().run();
+            } catch (RuntimeException e) {
+                logger.error("A store could not be put back after a failed change.", e);
+            }
+        }
+        touched.clear();
+        playerChanges.clear();
+        characterChanges.clear();
+        settingChanges.clear();
+        logger.warn("A store change failed and was rolled back to version {}.", version);
+    }
+
+    /**
+     * @return What the commit changed, or null if it changed nothing anyone needs to hear about.
+     */
+    private static StoreChange publish() {
+        touched.forEach(store -> store.publish().run());
+        touched.clear();
+        version++;
+        snapshot = new StoreSnapshot(version,
+                PlayerStore.getInstance().getPlayerMap(),
+                CharacterStore.getInstance().getCharacterMap(),
+                SettingsStore.getInstance().getSettingsMap());
+        logger.trace("Published store version {}.", version);
+        StoreChange change = new StoreChange(version, drain(playerChanges), drain(characterChanges),
+                settingChanges.isEmpty() ? Set.of() : Collections.unmodifiableSet(new LinkedHashSet<>(settingChanges)));
+        settingChanges.clear();
+        return change.isEmpty() || listeners.isEmpty() ? null : change;
+    }
+}
@@ -0,0 +1,152 @@
+package org.poolen.backend.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Looks for good seatings around an already solved one. An elite seating is kicked until it is far enough
+ * from every kept seating, and a swap search then improves it without letting it slide back towards them.
+ * Every settled seating is offered to an {@link ElitePool}, so one run ends with several solutions that
+ * are each good and clearly different from one another.
+ */
+class AlternativeSearch {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlternativeSearch.class);
+    private static final double EPSILON = 1e-9;
+    private static final int KICKS_PER_ALTERNATIVE = 10;
+
+    private final MatchSnapshot snapshot;
+    private final int[] groupIndices;
+    private final Random random;
+
+    /**
+     * @param seed Seeds the kicks, so the same input and seed always give the same alternatives.
+     */
+    AlternativeSearch(MatchSnapshot snapshot, int[] groupIndices, long seed) {
+        this.snapshot = snapshot;
+        this.groupIndices = groupIndices.clone();
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @param best The solved seating to start from. It is always the first alternative.
+     * @param count How many alternatives to return at most.
+     * @param minMovedPlayers How many players must sit elsewhere for two seatings to count as different.
+     * @return Up to {@code count} alternatives, best first.
+     */
+    List<MatchAlternative> search(GroupAssignment best, int count, int minMovedPlayers) {
+        int minMoved = Math.max(1, minMovedPlayers);
+        ElitePool pool = new ElitePool(count, minMoved);
+        pool.offer(best.getSeating(), best.totalScore());
+        if (count > 1 && groupIndices.length > 1) {
+            int kicks = KICKS_PER_ALTERNATIVE * count;
+            for (int i = 0; i < kicks; i++) {
+                List<ElitePool.Elite> elites = pool.getElites();
+                ElitePool.Elite start = elites.get(random.nextInt(elites.size()));
+                GroupAssignment candidate = GroupAssignment.fromSeating(snapshot, groupIndices, start.seating());
+                int[] distances = kick(candidate, elites, minMoved);
+                if (distances == null) {
+                    continue;
+                }
+                improveApart(candidate, elites, distances, minMoved);
+                pool.offer(candidate.getSeating(), candidate.totalScore());
+            }
+        }
+        logger.info("Alternative search kept {} of {} requested alternatives.", pool.size(), count);
+
+        List<ElitePool.Elite> elites = pool.getElites();
+        List<MatchAlternative> alternatives = new ArrayList<>();
+        for (int i = 0; i < elites.size(); i++) {
+            int[] seating = elites.get(i).seating();
+            GroupAssignment assignment = GroupAssignment.fromSeating(snapshot, groupIndices, seating);
+            alternatives.add(new MatchAlternative(i + 1, assignment, ElitePool.movedPlayers(elites.get(0).seating(), seating)));
+        }
+        return alternatives;
+    }
+
+    /**
+     * Makes random swaps until the seating is at least {@code minMoved} players away from every elite.
+     * @return The distance to each elite, or null if that could not be reached.
+     */
+    private int[] kick(GroupAssignment assignment, List<ElitePool.Elite> elites, int minMoved) {
+        int players = snapshot.getPlayerCount();
+        int[] distances = new int[elites.size()];
+        int[] seating = assignment.getSeating();
+        for (int e = 0; e < distances.length; e++) {
+            distances[e] = ElitePool.movedPlayers(elites.get(e).seating(), seating);
+        }
+        for (int attempt = 0; attempt < players * 4; attempt++) {
+            if (minDistance(distances) >= minMoved) {
+                return distances;
+            }
+            int p1 = random.nextInt(players);
+            int p2 = random.nextInt(players);
+            if (assignment.groupOf(p1) != -1 && assignment.groupOf(p2) != -1 && assignment.groupOf(p1) != assignment.groupOf(p2)) {
+                applyDistanceChange(assignment, elites, distances, p1, p2);
+                assignment.swap(p1, p2);
+            }
+        }
+        return minDistance(distances) >= minMoved ? distances : null;
+    }
+
+    /**
+     * A first-improvement swap search that skips every swap which would bring the seating closer than
+     * {@code minMoved} players to one of the elites.
+     */
+    private void improveApart(GroupAssignment assignment, List<ElitePool.Elite> elites, int[] distances, int minMoved) {
+        boolean improvementFound;
+        do {
+            improvementFound = false;
+            outer:
+            for (int a = 0; a < groupIndices.length; a++) {
+                for (int b = a + 1; b < groupIndices.length; b++) {
+                    for (int p1 : assignment.membersOf(groupIndices[a])) {
+                        for (int p2 : assignment.membersOf(groupIndices[b])) {
+                            if (assignment.swapDelta(p1, p2) > EPSILON && staysApart(assignment, elites, distances, p1, p2, minMoved)) {
+                                applyDistanceChange(assignment, elites, distances, p1, p2);
+                                assignment.swap(p1, p2);
+                                improvementFound = true;
+                                break outer;
+                            }
+                        }
+                    }
+                }
+            }
+        } while (improvementFound);
+    }
+
+    private boolean staysApart(GroupAssignment assignment, List<ElitePool.Elite> elites, int[] distances, int p1, int p2, int minMoved) {
+        for (int e = 0; e < distances.length; e++) {
+            if (distances[e] + distanceChange(assignment, elites.get(e).seating(), p1, p2) < minMoved) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void applyDistanceChange(GroupAssignment assignment, List<ElitePool.Elite> elites, int[] distances, int p1, int p2) {
+        for (int e = 0; e < distances.length; e++) {
+            distances[e] += distanceChange(assignment, elites.get(e).seating(), p1, p2);
+        }
+    }
+
+    private int distanceChange(GroupAssignment assignment, int[] elite, int p1, int p2) {
+        int g1 = assignment.groupOf(p1);
+        int g2 = assignment.groupOf(p2);
+        int before = (elite[p1] != g1 ? 1 : 0) + (elite[p2] != g2 ? 1 : 0);
+        int after = (elite[p1] != g2 ? 1 : 0) + (elite[p2] != g1 ? 1 : 0);
+        return after - before;
+    }
+
+    private int minDistance(int[] distances) {
+        int min = Integer.MAX_VALUE;
+        for (int distance : distances) {
+            min = Math.min(min, distance);
+        }
+        return min;
+    }
+}
@@ -0,0 +1,57 @@
+package org.poolen.backend.engine;
+
+import java.util.Arrays;
+
+/**
+ * A linear sum assignment problem as a dense cost matrix: every left node has to be matched to a
+ * different right node at the lowest total cost. Kept free of any native solver types, so it can be
+ * solved in this JVM or sent to the solver worker as it is.
+ */
+final class AssignmentProblem {
+
+    /**
+     * Marks a pair that may not be matched at all.
+     */
+    static final long NO_ARC = Long.MIN_VALUE;
+
+    private final int leftCount;
+    private final int rightCount;
+    private final long[] costs;
+
+    AssignmentProblem(int leftCount, int rightCount) {
+        this(leftCount, rightCount, new long[leftCount * rightCount]);
+        Arrays.fill(costs, NO_ARC);
+    }
+
+    AssignmentProblem(int leftCount, int rightCount, long[] costs) {
+        if (costs.length != leftCount * rightCount) {
+            throw new IllegalArgumentException("Expected " + leftCount * rightCount + " costs but got " + costs.length + ".");
+        }
+        this.leftCount = leftCount;
+        this.rightCount = rightCount;
+        this.costs = costs;
+    }
+
+    void setCost(int left, int right, long cost) {
+        costs[left * rightCount + right] = cost;
+    }
+
+    long getCost(int left, int right) {
+        return costs[left * rightCount + right];
+    }
+
+    int getLeftCount() {
+        return leftCount;
+    }
+
+    int getRightCount() {
+        return rightCount;
+    }
+
+    /**
+     * The costs row by row, without a copy.
+     */
+    long[] getCosts() {
+        return costs;
+    }
+}
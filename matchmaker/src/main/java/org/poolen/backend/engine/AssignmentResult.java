@@ -0,0 +1,28 @@
+package org.poolen.backend.engine;
+
+/**
+ * The answer to an {@link AssignmentProblem}.
+ * @param rightMates The right node matched to each left node. Only filled in when the status is optimal.
+ */
+record AssignmentResult(Status status, int[] rightMates, long optimalCost) {
+
+    enum Status {
+        OPTIMAL,
+        INFEASIBLE,
+        POSSIBLE_OVERFLOW,
+        // The solver itself failed, so there is no answer either way.
+        FAILED
+    }
+
+    static AssignmentResult failed() {
+        return new AssignmentResult(Status.FAILED, new int[0], 0);
+    }
+
+    boolean isOptimal() {
+        return status == Status.OPTIMAL;
+    }
+
+    int getRightMate(int left) {
+        return rightMates[left];
+    }
+}
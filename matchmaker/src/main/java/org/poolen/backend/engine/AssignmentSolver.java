@@ -0,0 +1,17 @@
+package org.poolen.backend.engine;
+
+/**
+ * Solves assignment problems, either with OR-Tools in this JVM or by handing them to the solver worker.
+ * Implementations are safe to call from several threads at once.
+ */
+interface AssignmentSolver {
+
+    AssignmentResult solve(AssignmentProblem problem);
+
+    /**
+     * @return The solver currently picked for the application.
+     */
+    static AssignmentSolver get() {
+        return AssignmentSolvers.current();
+    }
+}
@@ -0,0 +1,53 @@
+package org.poolen.backend.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Picks where the matchmaker's assignment problems are solved. By default that is this JVM. With the
+ * solver worker switched on they go to a separate local JVM instead, so a long or crashing native solve
+ * can't take the UI down with it.
+ */
+public final class AssignmentSolvers {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssignmentSolvers.class);
+
+    private static volatile AssignmentSolver current = new LocalAssignmentSolver();
+
+    private AssignmentSolvers() {
+        // This class should not be instantiated.
+    }
+
+    static AssignmentSolver current() {
+        return current;
+    }
+
+    /**
+     * Sends every solve to the solver worker from now on. The worker is started on the first solve and
+     * stopped when the application exits.
+     */
+    public static synchronized void useWorker() {
+        if (current instanceof SolverWorkerClient) {
+            return;
+        }
+        SolverWorkerClient client = new SolverWorkerClient(new LocalAssignmentSolver());
+        Runtime.getRuntime().addShutdownHook(new Thread(client::close, "solver-worker-shutdown"));
+        current = client;
+        logger.info("Assignment problems will be solved by the solver worker.");
+    }
+
+    /**
+     * Solves everything in this JVM again, stopping the solver worker if it was running.
+     */
+    public static synchronized void useLocal() {
+        if (current instanceof SolverWorkerClient client) {
+            client.close();
+        }
+        current = new LocalAssignmentSolver();
+        logger.info("Assignment problems will be solved in process.");
+    }
+
+    public static boolean isUsingWorker() {
+        return current instanceof SolverWorkerClient;
+    }
+}
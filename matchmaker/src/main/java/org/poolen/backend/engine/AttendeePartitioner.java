@@ -0,0 +1,269 @@
+package org.poolen.backend.engine;
+
+import org.poolen.backend.db.constants.House;
+import org.poolen.backend.db.entities.Group;
+import org.poolen.backend.db.entities.Player;
+import org.poolen.backend.db.store.PlayLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Splits a convention-sized roster into pieces the full engine can handle on its own. Players are tied
+ * together by their buddies, blacklists and recent games, and those social clusters are packed into
+ * partitions by the house they fit best. Every partition then gets the share of the groups that suits
+ * its players' houses best.
+ */
+class AttendeePartitioner {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttendeePartitioner.class);
+    private static final double COST_SCALE = 100.0;
+
+    record Partition(List<Player> players, List<Group> groups) {}
+
+    private record Cluster(List<Integer> members, int house) {}
+
+    private final MatchScorer scorer;
+    private final LocalDate asOf;
+
+    AttendeePartitioner(MatchScorer scorer, LocalDate asOf) {
+        this.scorer = scorer;
+        this.asOf = asOf;
+    }
+
+    /**
+     * @param players The attendees to split.
+     * @param groups The groups to share out between the partitions.
+     * @param targetSize Roughly how many players a partition should hold.
+     * @return The partitions, each with at least one group.
+     */
+    List<Partition> partition(List<Player> players, List<Group> groups, int targetSize) {
+        List<List<Player>> bins = packClusters(players, targetSize);
+        while (bins.size() > groups.size()) {
+            mergeSmallestBin(bins);
+        }
+        logger.info("Split {} players into {} partitions.", players.size(), bins.size());
+
+        int[] quotas = groupQuotas(bins, players.size(), groups.size());
+        List<List<Group>> binGroups = distributeGroups(bins, groups, quotas);
+        List<Partition> partitions = new ArrayList<>();
+        for (int b = 0; b < bins.size(); b++) {
+            logger.debug("Partition {}: {} players, {} groups.", b, bins.get(b).size(), binGroups.get(b).size());
+            partitions.add(new Partition(bins.get(b), binGroups.get(b)));
+        }
+        return partitions;
+    }
+
+    /**
+     * Finds the social clusters and packs them into bins of about the target size, keeping clusters
+     * with the same favourite house next to each other. Clusters that are too big are cut up in
+     * breadth-first order, so close friends still tend to end up in the same piece.
+     */
+    private List<List<Player>> packClusters(List<Player> players, int targetSize) {
+        Map<UUID, Integer> index = new HashMap<>();
+        for (int i = 0; i < players.size(); i++) {
+            index.put(players.get(i).getUuid(), i);
+        }
+        List<List<Integer>> neighbours = new ArrayList<>();
+        for (int i = 0; i < players.size(); i++) {
+            neighbours.add(new ArrayList<>());
+        }
+        for (int i = 0; i < players.size(); i++) {
+            Player player = players.get(i);
+            for (UUID other : player.getBuddylist()) link(i, index.get(other), neighbours);
+            for (UUID other : player.getBlacklist()) link(i, index.get(other), neighbours);
+            PlayLog log = player.getPlayerLog();
+            for (int k = 0; k < log.size(); k++) {
+                int day = log.epochDayAt(k);
+                if (day != PlayLog.NEVER && scorer.recencyPenalty((asOf.toEpochDay() - day) / 7) > 0) {
+                    link(i, index.get(log.partnerAt(k)), neighbours);
+                }
+            }
+        }
+
+        House[] favourites = new House[players.size()];
+        for (int i = 0; i < players.size(); i++) {
+            favourites[i] = favouriteHouse(players.get(i));
+        }
+
+        List<List<Integer>> clusters = new ArrayList<>();
+        boolean[] visited = new boolean[players.size()];
+        for (int start = 0; start < players.size(); start++) {
+            if (visited[start]) continue;
+            List<Integer> cluster = new ArrayList<>();
+            Deque<Integer> queue = new ArrayDeque<>();
+            queue.add(start);
+            visited[start] = true;
+            while (!queue.isEmpty()) {
+                int current = queue.poll();
+                cluster.add(current);
+                for (int next : neighbours.get(current)) {
+                    if (!visited[next]) {
+                        visited[next] = true;
+                        queue.add(next);
+                    }
+                }
+            }
+            clusters.add(cluster);
+        }
+        logger.debug("Found {} social clusters among {} players.", clusters.size(), players.size());
+
+        // Clusters are ordered by the house most of their members like best, biggest first.
+        List<Cluster> ordered = new ArrayList<>();
+        for (List<Integer> cluster : clusters) {
+            int[] votes = new int[House.values().length + 1];
+            for (int p : cluster) {
+                votes[favourites[p] != null ? favourites[p].ordinal() : House.values().length]++;
+            }
+            int best = 0;
+            for (int h = 1; h < votes.length; h++) {
+                if (votes[h] > votes[best]) best = h;
+            }
+            ordered.add(new Cluster(cluster, best));
+        }
+        ordered.sort(Comparator.comparingInt(Cluster::house)
+                .thenComparing(Comparator.comparingInt((Cluster cluster) -> cluster.members().size()).reversed()));
+
+        List<List<Player>> bins = new ArrayList<>();
+        List<Player> current = new ArrayList<>();
+        for (Cluster next : ordered) {
+            List<Integer> cluster = next.members();
+            for (int from = 0; from < cluster.size(); from += targetSize) {
+                List<Integer> piece = cluster.subList(from, Math.min(cluster.size(), from + targetSize));
+                if (!current.isEmpty() && current.size() + piece.size() > targetSize) {
+                    bins.add(current);
+                    current = new ArrayList<>();
+                }
+                for (int p : piece) {
+                    current.add(players.get(p));
+                }
+            }
+        }
+        if (!current.isEmpty()) {
+            bins.add(current);
+        }
+        return bins;
+    }
+
+    private void link(int player, Integer other, List<List<Integer>> neighbours) {
+        if (other == null || other == player) return;
+        neighbours.get(player).add(other);
+        neighbours.get(other).add(player);
+    }
+
+    private House favouriteHouse(Player player) {
+        if (!player.hasCharacters()) return null;
+        House favourite = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (House house : House.values()) {
+            double score = scorer.houseScore(player, List.of(house));
+            if (score > bestScore) {
+                bestScore = score;
+                favourite = house;
+            }
+        }
+        return favourite;
+    }
+
+    private void mergeSmallestBin(List<List<Player>> bins) {
+        int smallest = 0;
+        for (int b = 1; b < bins.size(); b++) {
+            if (bins.get(b).size() < bins.get(smallest).size()) smallest = b;
+        }
+        int neighbour;
+        if (smallest == 0) {
+            neighbour = 1;
+        } else if (smallest == bins.size() - 1) {
+            neighbour = smallest - 1;
+        } else {
+            neighbour = bins.get(smallest - 1).size() <= bins.get(smallest + 1).size() ? smallest - 1 : smallest + 1;
+        }
+        List<Player> merged = bins.remove(smallest);
+        bins.get(neighbour > smallest ? neighbour - 1 : neighbour).addAll(merged);
+    }
+
+    /**
+     * Shares the groups out in proportion to the partition sizes, with at least one group each.
+     */
+    private int[] groupQuotas(List<List<Player>> bins, int numPlayers, int numGroups) {
+        int[] quotas = new int[bins.size()];
+        double[] remainders = new double[bins.size()];
+        int handedOut = 0;
+        for (int b = 0; b < bins.size(); b++) {
+            double exact = (double) bins.get(b).size() * numGroups / numPlayers;
+            quotas[b] = Math.max(1, (int) exact);
+            remainders[b] = exact - (int) exact;
+            handedOut += quotas[b];
+        }
+        while (handedOut < numGroups) {
+            int best = 0;
+            for (int b = 1; b < bins.size(); b++) {
+                if (remainders[b] > remainders[best]) best = b;
+            }
+            quotas[best]++;
+            remainders[best] -= 1;
+            handedOut++;
+        }
+        while (handedOut > numGroups) {
+            int largest = 0;
+            for (int b = 1; b < bins.size(); b++) {
+                if (quotas[b] > quotas[largest]) largest = b;
+            }
+            quotas[largest]--;
+            handedOut--;
+        }
+        return quotas;
+    }
+
+    /**
+     * Hands every partition its quota of groups, picking the groups whose themes its players like most.
+     */
+    private List<List<Group>> distributeGroups(List<List<Player>> bins, List<Group> groups, int[] quotas) {
+        List<Integer> slotToBin = new ArrayList<>();
+        for (int b = 0; b < bins.size(); b++) {
+            for (int q = 0; q < quotas[b]; q++) {
+                slotToBin.add(b);
+            }
+        }
+        double[][] fit = new double[groups.size()][bins.size()];
+        double maxFit = Double.NEGATIVE_INFINITY;
+        for (int g = 0; g < groups.size(); g++) {
+            for (int b = 0; b < bins.size(); b++) {
+                double total = 0;
+                for (Player player : bins.get(b)) {
+                    total += scorer.houseScore(player, groups.get(g).getHouses());
+                }
+                fit[g][b] = total / bins.get(b).size();
+                maxFit = Math.max(maxFit, fit[g][b]);
+            }
+        }
+
+        List<List<Group>> binGroups = new ArrayList<>();
+        for (int b = 0; b < bins.size(); b++) {
+            binGroups.add(new ArrayList<>());
+        }
+        AssignmentProblem problem = new AssignmentProblem(groups.size(), slotToBin.size());
+        for (int g = 0; g < groups.size(); g++) {
+            for (int s = 0; s < slotToBin.size(); s++) {
+                problem.setCost(g, s, Math.round((maxFit - fit[g][slotToBin.get(s)]) * COST_SCALE));
+            }
+        }
+        AssignmentResult result = AssignmentSolver.get().solve(problem);
+        if (!result.isOptimal()) {
+            throw new IllegalStateException("Groups could not be shared out between partitions. Solve status: " + result.status());
+        }
+        for (int g = 0; g < groups.size(); g++) {
+            binGroups.get(slotToBin.get(result.getRightMate(g))).add(groups.get(g));
+        }
+        return binGroups;
+    }
+}
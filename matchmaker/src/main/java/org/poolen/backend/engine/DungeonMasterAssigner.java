@@ -0,0 +1,124 @@
+package org.poolen.backend.engine;
+
+import org.poolen.backend.db.entities.Group;
+import org.poolen.backend.db.entities.Player;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hands the available DMs out to the groups that don't have one yet, as a small assignment problem.
+ * A DM is scored against a table by the party's DM blacklists, by how well the DM's own characters
+ * fit the table's themes and by how recently the DM last ran for the players sitting at it.
+ */
+class DungeonMasterAssigner {
+
+    private static final Logger logger = LoggerFactory.getLogger(DungeonMasterAssigner.class);
+    // The solver only takes whole numbers, so keep two decimals of the scores.
+    private static final double COST_SCALE = 100.0;
+
+    private final MatchSnapshot snapshot;
+    private final MatchScorer scorer;
+
+    DungeonMasterAssigner(MatchSnapshot snapshot) {
+        this.snapshot = snapshot;
+        this.scorer = snapshot.getScorer();
+    }
+
+    /**
+     * Assigns DMs to every group without one, leaving DMs picked by hand where they are.
+     * @param assignment The current seating of the players.
+     * @param candidates The DMs that are running a table this session.
+     * @return The DM chosen for each previously open group.
+     */
+    Map<Group, Player> assign(GroupAssignment assignment, Collection<Player> candidates) {
+        Set<Player> takenDms = new HashSet<>();
+        List<Integer> openGroups = new ArrayList<>();
+        for (int g : assignment.getGroupIndices()) {
+            Player dm = snapshot.getGroup(g).getDungeonMaster();
+            if (dm != null) {
+                takenDms.add(dm);
+            } else {
+                openGroups.add(g);
+            }
+        }
+        List<Player> freeDms = candidates.stream()
+                .filter(dm -> !takenDms.contains(dm) && snapshot.indexOf(dm) == -1)
+                .toList();
+
+        Map<Group, Player> result = new LinkedHashMap<>();
+        if (openGroups.isEmpty() || freeDms.isEmpty()) {
+            logger.info("No DM assignment needed. Open groups: {}, free DMs: {}.", openGroups.size(), freeDms.size());
+            return result;
+        }
+        logger.info("Assigning {} free DMs to {} open groups.", freeDms.size(), openGroups.size());
+
+        double[][] scores = new double[openGroups.size()][freeDms.size()];
+        double maxScore = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < openGroups.size(); i++) {
+            for (int d = 0; d < freeDms.size(); d++) {
+                scores[i][d] = dmScore(freeDms.get(d), openGroups.get(i), assignment);
+                maxScore = Math.max(maxScore, scores[i][d]);
+            }
+        }
+
+        // Groups are the left side so each of them gets a partner. If there are fewer DMs than groups,
+        // the extra "nobody" columns cost more than any real DM so they are only used as a last resort.
+        int dummyColumns = Math.max(0, openGroups.size() - freeDms.size());
+        long worstRealCost = 0;
+        AssignmentProblem problem = new AssignmentProblem(openGroups.size(), freeDms.size() + dummyColumns);
+        for (int i = 0; i < openGroups.size(); i++) {
+            for (int d = 0; d < freeDms.size(); d++) {
+                long cost = Math.round((maxScore - scores[i][d]) * COST_SCALE);
+                worstRealCost = Math.max(worstRealCost, cost);
+                problem.setCost(i, d, cost);
+            }
+        }
+        for (int i = 0; i < openGroups.size(); i++) {
+            for (int d = 0; d < dummyColumns; d++) {
+                problem.setCost(i, freeDms.size() + d, worstRealCost + 1);
+            }
+        }
+
+        AssignmentResult solution = AssignmentSolver.get().solve(problem);
+        logger.info("DM assignment solve status: {}", solution.status());
+        if (!solution.isOptimal()) {
+            logger.error("DM assignment could not be solved. Groups keep their open DM seats.");
+            return result;
+        }
+        for (int i = 0; i < openGroups.size(); i++) {
+            int dmIndex = solution.getRightMate(i);
+            if (dmIndex < 0 || dmIndex >= freeDms.size()) {
+                logger.warn("Group '{}' could not be given a DM. Not enough DMs available.", snapshot.getGroup(openGroups.get(i)).getUuid());
+                continue;
+            }
+            int groupIndex = openGroups.get(i);
+            Group group = snapshot.getGroup(groupIndex);
+            Player dm = freeDms.get(dmIndex);
+            group.setDungeonMaster(dm);
+            assignment.dungeonMasterChanged(groupIndex);
+            result.put(group, dm);
+            logger.info("Assigned DM '{}' to group '{}' (score {}).", dm.getName(), group.getUuid(), scores[i][dmIndex]);
+        }
+        return result;
+    }
+
+    private double dmScore(Player dm, int groupIndex, GroupAssignment assignment) {
+        Group group = snapshot.getGroup(groupIndex);
+        double score = dm.hasCharacters() ? scorer.houseScore(dm, group.getHouses()) : scorer.getHouseDefaultScore();
+        for (int p : assignment.membersOf(groupIndex)) {
+            Player player = snapshot.getPlayer(p);
+            score += scorer.dmBlacklistScore(player, dm);
+            score += scorer.reunionScore(dm, player, snapshot.getAsOf());
+        }
+        logger.trace("DM '{}' scored {} for group '{}'.", dm.getName(), score, group.getUuid());
+        return score;
+    }
+}
@@ -0,0 +1,70 @@
+package org.poolen.backend.engine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Keeps the best seatings seen during a search, but only ones that are really different from each other.
+ * Two seatings count as the same solution if fewer than {@code minMovedPlayers} players sit in a different
+ * group, and then only the better of the two is kept.
+ */
+class ElitePool {
+
+    private static final double EPSILON = 1e-9;
+
+    record Elite(int[] seating, double score) {}
+
+    private final int capacity;
+    private final int minMovedPlayers;
+    private final List<Elite> elites = new ArrayList<>();
+
+    ElitePool(int capacity, int minMovedPlayers) {
+        this.capacity = capacity;
+        this.minMovedPlayers = minMovedPlayers;
+    }
+
+    /**
+     * @return Whether the seating made it into the pool.
+     */
+    boolean offer(int[] seating, double score) {
+        List<Elite> replaced = new ArrayList<>();
+        for (Elite elite : elites) {
+            if (movedPlayers(elite.seating(), seating) < minMovedPlayers) {
+                if (elite.score() >= score - EPSILON) {
+                    return false;
+                }
+                replaced.add(elite);
+            }
+        }
+        if (replaced.isEmpty() && elites.size() >= capacity && elites.get(elites.size() - 1).score() >= score - EPSILON) {
+            return false;
+        }
+        elites.removeAll(replaced);
+        elites.add(new Elite(seating.clone(), score));
+        elites.sort(Comparator.comparingDouble(Elite::score).reversed());
+        if (elites.size() > capacity) {
+            elites.remove(elites.size() - 1);
+        }
+        return true;
+    }
+
+    /**
+     * @return The kept seatings, best first.
+     */
+    List<Elite> getElites() {
+        return List.copyOf(elites);
+    }
+
+    int size() {
+        return elites.size();
+    }
+
+    static int movedPlayers(int[] a, int[] b) {
+        int moved = 0;
+        for (int p = 0; p < a.length; p++) {
+            if (a[p] != b[p]) moved++;
+        }
+        return moved;
+    }
+}
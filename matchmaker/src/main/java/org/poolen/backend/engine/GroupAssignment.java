@@ -0,0 +1,283 @@
+package org.poolen.backend.engine;
+
+import org.poolen.backend.db.entities.Group;
+import org.poolen.backend.db.entities.Player;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The mutable player-to-group state the solvers work on. It keeps, for every player and group, how far the
+ * player's pair scores with that group's members are from the default pair score, so the score change of a
+ * swap is known in O(1) and applying it only touches the two players' relationships.
+ */
+class GroupAssignment {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupAssignment.class);
+    private static final double EPSILON = 1e-9;
+
+    private final MatchSnapshot snapshot;
+    private final int[] groupIndices;
+    private final int[] groupOf;
+    private final int[][] members;
+    private final int[] sizes;
+    private final SparseAffinity pairs;
+    // edgeAffinity[p][g] = sum of the sparse deltas between p and every q seated in g (q != p)
+    private final double[][] edgeAffinity;
+    // Records every move when set, see MatchJournal.
+    private MatchJournal journal;
+
+    GroupAssignment(MatchSnapshot snapshot) {
+        this(snapshot, allGroups(snapshot));
+    }
+
+    /**
+     * Creates an assignment that only seats players in some of the snapshot's groups.
+     * @param groupIndices The snapshot indices of the groups this assignment may use.
+     */
+    GroupAssignment(MatchSnapshot snapshot, int[] groupIndices) {
+        this.snapshot = snapshot;
+        this.groupIndices = groupIndices.clone();
+        int numPlayers = snapshot.getPlayerCount();
+        int numGroups = snapshot.getGroupCount();
+        this.groupOf = new int[numPlayers];
+        Arrays.fill(groupOf, -1);
+        this.members = new int[numGroups][numPlayers];
+        this.sizes = new int[numGroups];
+        this.pairs = snapshot.getAffinity();
+        this.edgeAffinity = new double[numPlayers][numGroups];
+    }
+
+    /**
+     * Rebuilds an assignment from a plain player-to-group array, e.g. one that was kept aside as the best so far.
+     */
+    static GroupAssignment fromSeating(MatchSnapshot snapshot, int[] groupIndices, int[] seating) {
+        GroupAssignment assignment = new GroupAssignment(snapshot, groupIndices);
+        for (int p = 0; p < seating.length; p++) {
+            if (seating[p] != -1) {
+                assignment.assign(p, seating[p]);
+            }
+        }
+        return assignment;
+    }
+
+    static int[] allGroups(MatchSnapshot snapshot) {
+        int[] indices = new int[snapshot.getGroupCount()];
+        for (int g = 0; g < indices.length; g++) {
+            indices[g] = g;
+        }
+        return indices;
+    }
+
+    void assign(int player, int group) {
+        if (groupOf[player] != -1) {
+            throw new IllegalStateException("Player index %d is already seated in group index %d.".formatted(player, groupOf[player]));
+        }
+        if (journal != null) {
+            journal.seat(player, group);
+        }
+        groupOf[player] = group;
+        members[group][sizes[group]++] = player;
+        for (int k = pairs.rowStart(player); k < pairs.rowEnd(player); k++) {
+            edgeAffinity[pairs.neighbour(k)][group] += pairs.delta(k);
+        }
+    }
+
+    /**
+     * @return How much the total score would change if p1 and p2 traded places.
+     */
+    double swapDelta(int p1, int p2) {
+        int g1 = groupOf[p1];
+        int g2 = groupOf[p2];
+        if (g1 == g2) return 0;
+        // The default pair score cancels out, as both groups keep their size.
+        double pair = pairs.pairScore(p1, p2) - pairs.defaultScore();
+        double social = (edgeAffinity[p2][g1] - pair - edgeAffinity[p1][g1])
+                + (edgeAffinity[p1][g2] - pair - edgeAffinity[p2][g2]);
+        double seats = snapshot.seatScore(p2, g1) + snapshot.seatScore(p1, g2)
+                - snapshot.seatScore(p1, g1) - snapshot.seatScore(p2, g2);
+        return social + seats;
+    }
+
+    void swap(int p1, int p2) {
+        if (journal != null) {
+            journal.swap(p1, p2);
+        }
+        int g1 = groupOf[p1];
+        int g2 = groupOf[p2];
+        replaceMember(g1, p1, p2);
+        replaceMember(g2, p2, p1);
+        groupOf[p1] = g2;
+        groupOf[p2] = g1;
+        for (int k = pairs.rowStart(p1); k < pairs.rowEnd(p1); k++) {
+            int q = pairs.neighbour(k);
+            edgeAffinity[q][g1] -= pairs.delta(k);
+            edgeAffinity[q][g2] += pairs.delta(k);
+        }
+        for (int k = pairs.rowStart(p2); k < pairs.rowEnd(p2); k++) {
+            int q = pairs.neighbour(k);
+            edgeAffinity[q][g2] -= pairs.delta(k);
+            edgeAffinity[q][g1] += pairs.delta(k);
+        }
+    }
+
+    /**
+     * Re-reads the group's DM into the snapshot after one was handed out, and journals it.
+     */
+    void dungeonMasterChanged(int group) {
+        snapshot.refreshDungeonMaster(group);
+        if (journal != null) {
+            double[] dmScores = new double[groupOf.length];
+            for (int p = 0; p < dmScores.length; p++) {
+                dmScores[p] = snapshot.dmScore(p, group);
+            }
+            journal.dungeonMaster(group, dmScores);
+        }
+    }
+
+    void setJournal(MatchJournal journal) {
+        this.journal = journal;
+    }
+
+    private void replaceMember(int group, int oldPlayer, int newPlayer) {
+        for (int i = 0; i < sizes[group]; i++) {
+            if (members[group][i] == oldPlayer) {
+                members[group][i] = newPlayer;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Keeps making the first improving swap it can find until none is left, just like the original
+     * holistic swap pass, but using the cached affinities instead of rebuilding groups.
+     * @return The number of swaps that were applied.
+     */
+    int improveBySwaps() {
+        int swaps = 0;
+        boolean improvementFound;
+        do {
+            improvementFound = false;
+            outer:
+            for (int a = 0; a < groupIndices.length; a++) {
+                for (int b = a + 1; b < groupIndices.length; b++) {
+                    int g1 = groupIndices[a];
+                    int g2 = groupIndices[b];
+                    for (int i = 0; i < sizes[g1]; i++) {
+                        for (int j = 0; j < sizes[g2]; j++) {
+                            int p1 = members[g1][i];
+                            int p2 = members[g2][j];
+                            double delta = swapDelta(p1, p2);
+                            if (delta > EPSILON) {
+                                swap(p1, p2);
+                                logger.debug("Holistic Swap: Swapped '{}' and '{}'. Score improved by {}.",
+                                        snapshot.getPlayer(p1).getName(), snapshot.getPlayer(p2).getName(), delta);
+                                swaps++;
+                                improvementFound = true;
+                                break outer;
+                            }
+                        }
+                    }
+                }
+            }
+        } while (improvementFound);
+        return swaps;
+    }
+
+    /**
+     * The sum of the player's pair scores with everyone else seated in the group.
+     */
+    private double affinity(int player, int group) {
+        int others = sizes[group] - (groupOf[player] == group ? 1 : 0);
+        return others * pairs.defaultScore() + edgeAffinity[player][group];
+    }
+
+    double groupScore(int group) {
+        double score = 0;
+        for (int i = 0; i < sizes[group]; i++) {
+            int p = members[group][i];
+            // Each pair is counted from both sides in the affinity sums, hence the half.
+            score += affinity(p, group) / 2 + snapshot.seatScore(p, group);
+        }
+        return score;
+    }
+
+    /**
+     * The same score as {@link #groupScore(int)}, split into where it comes from.
+     */
+    ScoreBreakdown groupBreakdown(int group) {
+        double house = 0;
+        double social = 0;
+        double dungeonMaster = 0;
+        for (int i = 0; i < sizes[group]; i++) {
+            int p = members[group][i];
+            house += snapshot.houseScore(p, group);
+            social += affinity(p, group) / 2;
+            dungeonMaster += snapshot.dmScore(p, group);
+        }
+        return new ScoreBreakdown(house, social, dungeonMaster);
+    }
+
+    double totalScore() {
+        double total = 0;
+        for (int g : groupIndices) {
+            total += groupScore(g);
+        }
+        return total;
+    }
+
+    MatchSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return A copy of the player-to-group array, with -1 for players that aren't seated.
+     */
+    int[] getSeating() {
+        return groupOf.clone();
+    }
+
+    int[] getGroupIndices() {
+        return groupIndices.clone();
+    }
+
+    int groupOf(int player) {
+        return groupOf[player];
+    }
+
+    int[] membersOf(int group) {
+        return Arrays.copyOf(members[group], sizes[group]);
+    }
+
+    /**
+     * @return The players without a seat, e.g. because they were put on the waitlist.
+     */
+    List<Player> getUnseatedPlayers() {
+        List<Player> unseated = new ArrayList<>();
+        for (int p = 0; p < groupOf.length; p++) {
+            if (groupOf[p] == -1) {
+                unseated.add(snapshot.getPlayer(p));
+            }
+        }
+        return unseated;
+    }
+
+    /**
+     * Writes the seating back into the snapshot's Group objects.
+     */
+    void applyToGroups() {
+        for (int p = 0; p < groupOf.length; p++) {
+            if (groupOf[p] == -1) {
+                logger.debug("Player '{}' (index {}) has no seat and stays on the waitlist.", snapshot.getPlayer(p).getName(), p);
+                continue;
+            }
+            Group group = snapshot.getGroup(groupOf[p]);
+            group.addPartyMember(snapshot.getPlayer(p));
+            group.setCharacter(snapshot.getPlayer(p), snapshot.characterFor(p, groupOf[p]));
+            logger.debug("Assigned player '{}' to group '{}'.", snapshot.getPlayer(p).getName(), group.getUuid());
+        }
+    }
+}
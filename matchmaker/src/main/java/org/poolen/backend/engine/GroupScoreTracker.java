@@ -0,0 +1,127 @@
+package org.poolen.backend.engine;
+
+import org.poolen.backend.db.entities.Group;
+import org.poolen.backend.db.entities.Player;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the score of every group of an event up to date while players are moved around by hand, so the
+ * organiser can see what a move does before and after making it. Groups are scored the same way the
+ * matchmaker scores them: how well each player's best character fits the table, the DM blacklists and
+ * the pair scores of everyone sitting together.
+ * <p>
+ * Moving a player only rescores the two tables involved, in time linear in their party sizes. Anything
+ * else that changes the groups (new groups, another DM, a new event date) needs a {@link #reset}.
+ */
+public class GroupScoreTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupScoreTracker.class);
+
+    private final MatchScorer scorer;
+    private final Map<Group, Double> groupScores = new IdentityHashMap<>();
+    private LocalDate asOf = LocalDate.now();
+    private double totalScore;
+
+    GroupScoreTracker(MatchScorer scorer) {
+        this.scorer = scorer;
+    }
+
+    /**
+     * Scores the given groups from scratch.
+     */
+    public void reset(List<Group> groups, LocalDate asOf) {
+        this.asOf = asOf != null ? asOf : LocalDate.now();
+        groupScores.clear();
+        totalScore = 0;
+        for (Group group : groups) {
+            double score = scoreGroup(group);
+            groupScores.put(group, score);
+            totalScore += score;
+        }
+        logger.debug("Scored {} groups as of {}. Total score: {}.", groups.size(), this.asOf, totalScore);
+    }
+
+    public double getGroupScore(Group group) {
+        return groupScores.getOrDefault(group, 0.0);
+    }
+
+    public double getTotalScore() {
+        return totalScore;
+    }
+
+    /**
+     * @return How much the total score would change if the player moved from one group to the other.
+     */
+    public double previewMove(Player player, Group from, Group to) {
+        if (from == to) {
+            return 0;
+        }
+        return joinScore(player, to) - leaveScore(player, from);
+    }
+
+    /**
+     * Moves the player to the other group, bringing their best character for it, and updates both groups' scores.
+     * @return How much the total score changed.
+     */
+    public double move(Player player, Group from, Group to) {
+        if (from == to) {
+            return 0;
+        }
+        double left = leaveScore(player, from);
+        double joined = joinScore(player, to);
+        from.movePlayerTo(player, to);
+        to.setCharacter(player, scorer.bestCharacter(player, to.getHouses()));
+
+        groupScores.merge(from, -left, Double::sum);
+        groupScores.merge(to, joined, Double::sum);
+        totalScore += joined - left;
+        logger.debug("Moved '{}' from group '{}' to group '{}'. Score change: {}.", player.getName(), from.getUuid(), to.getUuid(), joined - left);
+        return joined - left;
+    }
+
+    /**
+     * What the player currently adds to a group they sit at.
+     */
+    private double leaveScore(Player player, Group group) {
+        double score = seatScore(player, group);
+        for (Player other : group.getParty().values()) {
+            if (other != player) {
+                score += scorer.pairScore(player, other, asOf);
+            }
+        }
+        return score;
+    }
+
+    /**
+     * What the player would add by joining a group.
+     */
+    private double joinScore(Player player, Group group) {
+        double score = seatScore(player, group);
+        for (Player other : group.getParty().values()) {
+            score += scorer.pairScore(player, other, asOf);
+        }
+        return score;
+    }
+
+    private double seatScore(Player player, Group group) {
+        return scorer.seatScore(player, group);
+    }
+
+    private double scoreGroup(Group group) {
+        List<Player> party = List.copyOf(group.getParty().values());
+        double score = 0;
+        for (int i = 0; i < party.size(); i++) {
+            score += seatScore(party.get(i), group);
+            for (int j = i + 1; j < party.size(); j++) {
+                score += scorer.pairScore(party.get(i), party.get(j), asOf);
+            }
+        }
+        return score;
+    }
+}
@@ -1,6 +1,5 @@
 package org.poolen.backend.engine;
 
-import com.google.ortools.graph.LinearSumAssignment;
 import org.poolen.backend.db.constants.House;
 import org.poolen.backend.db.entities.Character;
 import org.poolen.backend.db.entities.Player;
@@ -106,29 +105,26 @@ public class GroupSuggester {
                 slotToGroupMap.add(i);
             }
         }
-        LinearSumAssignment assignment = new LinearSumAssignment();
-        long totalCost = Long.MAX_VALUE;
-        try {
-            logger.trace("Building cost matrix for {} players and {} total slots.", numPlayers, totalSlots);
-            for (int i = 0; i < numPlayers; i++) {
-                for (int j = 0; j < totalSlots; j++) {
-                    Player player = players.get(i);
-                    int groupIndex = slotToGroupMap.get(j);
-                    House house = themeCombination.get(groupIndex);
-                    double score = calculateScoreForHouse(player, house);
-                    double cost = MAX_SCORE - score;
-                    assignment.addArcWithCost(i, j, (long) cost);
-                }
+        logger.trace("Building cost matrix for {} players and {} total slots.", numPlayers, totalSlots);
+        AssignmentProblem problem = new AssignmentProblem(numPlayers, totalSlots);
+        for (int i = 0; i < numPlayers; i++) {
+            for (int j = 0; j < totalSlots; j++) {
+                Player player = players.get(i);
+                int groupIndex = slotToGroupMap.get(j);
+                House house = themeCombination.get(groupIndex);
+                double score = calculateScoreForHouse(player, house);
+                double cost = MAX_SCORE - score;
+                problem.setCost(i, j, (long) cost);
             }
+        }
 
-            if (assignment.solve() == LinearSumAssignment.Status.OPTIMAL) {
-                totalCost = assignment.getOptimalCost();
-                logger.trace("Optimal assignment found for combination. Total cost: {}", totalCost);
-            } else {
-                logger.warn("Optimal assignment not found for combination {}. Solve status: {}", themeCombination, assignment.solve());
-            }
-        } finally {
-            assignment.delete();
+        long totalCost = Long.MAX_VALUE;
+        AssignmentResult result = AssignmentSolver.get().solve(problem);
+        if (result.isOptimal()) {
+            totalCost = result.optimalCost();
+            logger.trace("Optimal assignment found for combination. Total cost: {}", totalCost);
+        } else {
+            logger.warn("Optimal assignment not found for combination {}. Solve status: {}", themeCombination, result.status());
         }
         return totalCost;
     }
@@ -0,0 +1,40 @@
+package org.poolen.backend.engine;
+
+import com.google.ortools.Loader;
+import com.google.ortools.graph.LinearSumAssignment;
+
+/**
+ * Solves assignment problems with the OR-Tools native library, inside this JVM.
+ */
+class LocalAssignmentSolver implements AssignmentSolver {
+
+    @Override
+    public AssignmentResult solve(AssignmentProblem problem) {
+        // Only loads the natives the first time. When the worker is in use this JVM may not have them yet.
+        Loader.loadNativeLibraries();
+        LinearSumAssignment solver = new LinearSumAssignment();
+        try {
+            for (int left = 0; left < problem.getLeftCount(); left++) {
+                for (int right = 0; right < problem.getRightCount(); right++) {
+                    long cost = problem.getCost(left, right);
+                    if (cost != AssignmentProblem.NO_ARC) {
+                        solver.addArcWithCost(left, right, cost);
+                    }
+                }
+            }
+            LinearSumAssignment.Status status = solver.solve();
+            if (status != LinearSumAssignment.Status.OPTIMAL) {
+                return new AssignmentResult(status == LinearSumAssignment.Status.INFEASIBLE
+                        ? AssignmentResult.Status.INFEASIBLE
+                        : AssignmentResult.Status.POSSIBLE_OVERFLOW, new int[0], 0);
+            }
+            int[] rightMates = new int[problem.getLeftCount()];
+            for (int left = 0; left < rightMates.length; left++) {
+                rightMates[left] = solver.getRightMate(left);
+            }
+            return new AssignmentResult(AssignmentResult.Status.OPTIMAL, rightMates, solver.getOptimalCost());
+        } finally {
+            solver.delete();
+        }
+    }
+}
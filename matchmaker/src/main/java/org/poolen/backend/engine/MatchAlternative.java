@@ -0,0 +1,100 @@
+package org.poolen.backend.engine;
+
+import org.poolen.backend.db.entities.Character;
+import org.poolen.backend.db.entities.Group;
+import org.poolen.backend.db.entities.Player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * One of the alternative seatings returned by {@link Matchmaker#matchAlternatives(int, int)}.
+ * Nothing is written to the groups until {@link #applyToGroups()} is called.
+ */
+public class MatchAlternative {
+
+    private final int rank;
+    private final int movedPlayers;
+    private final Map<Group, List<Player>> parties;
+    private final Map<UUID, Character> characters;
+    private final Map<Group, ScoreBreakdown> groupScores;
+    private final ScoreBreakdown score;
+
+    MatchAlternative(int rank, GroupAssignment assignment, int movedPlayers) {
+        this.rank = rank;
+        this.movedPlayers = movedPlayers;
+        MatchSnapshot snapshot = assignment.getSnapshot();
+        Map<Group, List<Player>> parties = new LinkedHashMap<>();
+        Map<Group, ScoreBreakdown> groupScores = new LinkedHashMap<>();
+        Map<UUID, Character> characters = new HashMap<>();
+        ScoreBreakdown total = ScoreBreakdown.ZERO;
+        for (int g : assignment.getGroupIndices()) {
+            List<Player> party = new ArrayList<>();
+            for (int p : assignment.membersOf(g)) {
+                party.add(snapshot.getPlayer(p));
+                characters.put(snapshot.getPlayer(p).getUuid(), snapshot.characterFor(p, g));
+            }
+            ScoreBreakdown breakdown = assignment.groupBreakdown(g);
+            parties.put(snapshot.getGroup(g), Collections.unmodifiableList(party));
+            groupScores.put(snapshot.getGroup(g), breakdown);
+            total = total.plus(breakdown);
+        }
+        this.parties = Collections.unmodifiableMap(parties);
+        this.groupScores = Collections.unmodifiableMap(groupScores);
+        this.characters = Collections.unmodifiableMap(characters);
+        this.score = total;
+    }
+
+    /**
+     * Replaces the parties of the groups with this alternative.
+     */
+    public void applyToGroups() {
+        for (Group group : parties.keySet()) {
+            for (List<Player> party : parties.values()) {
+                party.forEach(group::removePartyMember);
+            }
+        }
+        parties.forEach((group, party) -> party.forEach(player -> {
+            group.addPartyMember(player);
+            group.setCharacter(player, characters.get(player.getUuid()));
+        }));
+    }
+
+    /**
+     * @return 1 for the best alternative, 2 for the next one and so on.
+     */
+    public int getRank() {
+        return rank;
+    }
+
+    /**
+     * @return How many players sit in a different group than in the best alternative.
+     */
+    public int getMovedPlayers() {
+        return movedPlayers;
+    }
+
+    public Map<Group, List<Player>> getParties() {
+        return parties;
+    }
+
+    /**
+     * @return The character the player would bring in this alternative, or null if they have no active characters.
+     */
+    public Character getCharacter(Player player) {
+        return characters.get(player.getUuid());
+    }
+
+    public Map<Group, ScoreBreakdown> getGroupScores() {
+        return groupScores;
+    }
+
+    public ScoreBreakdown getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,284 @@
+package org.poolen.backend.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * A record of one matchmaking run: the session as it was before the first move, and every move the
+ * solvers then made to it, in order. Saved to a file it can be replayed somewhere else against the same
+ * session without the store or the settings, to reproduce an odd result or to profile the solvers on a
+ * real night.
+ * <p>
+ * Moves are kept as a compact binary stream: a seat (player, group), a swap (player, player), or a DM
+ * handed to a group, with the DM blacklist scores that changed because of it.
+ * <p>
+ * The matchmaker saves one for every run when started with {@code -Dmatchmaker.journalDir=<dir>}. Running
+ * this class with the application's classpath and the journal files as arguments replays them.
+ */
+public class MatchJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatchJournal.class);
+    private static final int MAGIC = 0x4D4D4A4E; // "MMJN"
+    private static final int VERSION = 1;
+    private static final byte SEAT = 1;
+    private static final byte SWAP = 2;
+    private static final byte DUNGEON_MASTER = 3;
+    private static final double EPSILON = 1e-6;
+
+    private final long seed;
+    private final String weightsVersion;
+    private final byte[] session;
+    private final int[] groupIndices;
+    private final ByteArrayOutputStream moveBytes;
+    private final DataOutputStream moves;
+    private int moveCount;
+    private double finalScore = Double.NaN;
+
+    /**
+     * Replays every journal given and prints how long it took and whether it ended on the recorded score.
+     * Exits with 1 if any of them could not be read or ended elsewhere.
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: MatchJournal <journal file>...");
+            System.exit(2);
+        }
+        int failures = 0;
+        for (String arg : args) {
+            try {
+                MatchJournal journal = load(Path.of(arg));
+                long start = System.nanoTime();
+                double score = journal.replay();
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                boolean same = Double.isNaN(journal.getFinalScore()) || Math.abs(score - journal.getFinalScore()) <= EPSILON;
+                System.out.printf("%s: %d moves in %d ms, seed %d, as of %s. Score %s (recorded %s)%s%n",
+                        arg, journal.getMoveCount(), millis, journal.getSeed(), journal.getAsOf(), score,
+                        journal.getFinalScore(), same ? "" : " DIFFERS");
+                if (!same) failures++;
+            } catch (IOException | RuntimeException e) {
+                System.err.println(arg + ": could not be replayed, " + e);
+                failures++;
+            }
+        }
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Starts a journal for a run on the given snapshot. The snapshot is written out right away, before
+     * any DM is handed out and changes it.
+     */
+    MatchJournal(long seed, String weightsVersion, MatchSnapshot snapshot, int[] groupIndices) {
+        this.seed = seed;
+        this.weightsVersion = weightsVersion;
+        this.groupIndices = groupIndices.clone();
+        ByteArrayOutputStream sessionBytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(sessionBytes)) {
+            snapshot.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.session = sessionBytes.toByteArray();
+        this.moveBytes = new ByteArrayOutputStream();
+        this.moves = new DataOutputStream(moveBytes);
+    }
+
+    private MatchJournal(long seed, String weightsVersion, byte[] session, int[] groupIndices, byte[] moves,
+                         int moveCount, double finalScore) {
+        this.seed = seed;
+        this.weightsVersion = weightsVersion;
+        this.session = session;
+        this.groupIndices = groupIndices;
+        this.moveBytes = new ByteArrayOutputStream(moves.length);
+        this.moveBytes.writeBytes(moves);
+        this.moves = new DataOutputStream(moveBytes);
+        this.moveCount = moveCount;
+        this.finalScore = finalScore;
+    }
+
+    void seat(int player, int group) {
+        try {
+            moves.writeByte(SEAT);
+            moves.writeInt(player);
+            moves.writeInt(group);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        moveCount++;
+    }
+
+    void swap(int p1, int p2) {
+        try {
+            moves.writeByte(SWAP);
+            moves.writeInt(p1);
+            moves.writeInt(p2);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        moveCount++;
+    }
+
+    /**
+     * Records a DM handed to a group, as the DM blacklist scores it gave the group's column. Only the
+     * players it actually affects are written.
+     */
+    void dungeonMaster(int group, double[] dmScores) {
+        try {
+            moves.writeByte(DUNGEON_MASTER);
+            moves.writeInt(group);
+            int affected = 0;
+            for (double score : dmScores) {
+                if (score != 0) affected++;
+            }
+            moves.writeInt(affected);
+            for (int p = 0; p < dmScores.length; p++) {
+                if (dmScores[p] != 0) {
+                    moves.writeInt(p);
+                    moves.writeDouble(dmScores[p]);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        moveCount++;
+    }
+
+    /**
+     * Closes the journal with the score the run ended on, which a replay is checked against.
+     */
+    void finish(double score) {
+        this.finalScore = score;
+        logger.info("Match journal finished with {} moves ({} bytes). Final score: {}.", moveCount, moveBytes.size(), score);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public String getWeightsVersion() {
+        return weightsVersion;
+    }
+
+    public LocalDate getAsOf() {
+        return readSession().getAsOf();
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public double getFinalScore() {
+        return finalScore;
+    }
+
+    public void save(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(seed);
+            out.writeUTF(weightsVersion);
+            out.writeDouble(finalScore);
+            out.writeInt(groupIndices.length);
+            for (int group : groupIndices) {
+                out.writeInt(group);
+            }
+            out.writeInt(session.length);
+            out.write(session);
+            out.writeInt(moveCount);
+            out.writeInt(moveBytes.size());
+            moveBytes.writeTo(out);
+        }
+        logger.info("Saved match journal with {} moves to '{}'.", moveCount, path);
+    }
+
+    public static MatchJournal load(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("'" + path + "' is not a match journal.");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported match journal version " + version + ".");
+            }
+            long seed = in.readLong();
+            String weightsVersion = in.readUTF();
+            double finalScore = in.readDouble();
+            int[] groupIndices = new int[in.readInt()];
+            for (int i = 0; i < groupIndices.length; i++) {
+                groupIndices[i] = in.readInt();
+            }
+            byte[] session = in.readNBytes(in.readInt());
+            int moveCount = in.readInt();
+            byte[] moves = in.readNBytes(in.readInt());
+            return new MatchJournal(seed, weightsVersion, session, groupIndices, moves, moveCount, finalScore);
+        }
+    }
+
+    /**
+     * Replays every move against the recorded session.
+     * @return The score the replayed seating ends on. It is logged as a warning if it differs from the original run.
+     */
+    public double replay() {
+        long start = System.nanoTime();
+        GroupAssignment assignment = replayAssignment();
+        double score = assignment.totalScore();
+        if (!Double.isNaN(finalScore) && Math.abs(score - finalScore) > EPSILON) {
+            logger.warn("Replayed score {} differs from the recorded score {}.", score, finalScore);
+        }
+        logger.info("Replayed {} moves in {} ms. Score: {}.", moveCount, (System.nanoTime() - start) / 1_000_000, score);
+        return score;
+    }
+
+    /**
+     * @return The recorded session, freshly read, before any move.
+     */
+    MatchSnapshot readSession() {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(session))) {
+            return MatchSnapshot.read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("The recorded session could not be read.", e);
+        }
+    }
+
+    int[] getGroupIndices() {
+        return groupIndices.clone();
+    }
+
+    GroupAssignment replayAssignment() {
+        MatchSnapshot snapshot = readSession();
+        GroupAssignment assignment = new GroupAssignment(snapshot, groupIndices);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(moveBytes.toByteArray()))) {
+            for (int i = 0; i < moveCount; i++) {
+                byte type = in.readByte();
+                switch (type) {
+                    case SEAT -> assignment.assign(in.readInt(), in.readInt());
+                    case SWAP -> assignment.swap(in.readInt(), in.readInt());
+                    case DUNGEON_MASTER -> {
+                        int group = in.readInt();
+                        double[] scores = new double[snapshot.getPlayerCount()];
+                        int affected = in.readInt();
+                        for (int k = 0; k < affected; k++) {
+                            scores[in.readInt()] = in.readDouble();
+                        }
+                        snapshot.setDungeonMasterScores(group, scores);
+                    }
+                    default -> throw new IOException("Unknown move type " + type + " at move " + i + ".");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("The recorded moves could not be read.", e);
+        }
+        return assignment;
+    }
+}
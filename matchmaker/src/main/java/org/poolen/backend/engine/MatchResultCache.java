@@ -0,0 +1,196 @@
+package org.poolen.backend.engine;
+
+import org.poolen.backend.db.entities.Character;
+import org.poolen.backend.db.entities.Group;
+import org.poolen.backend.db.entities.Player;
+import org.poolen.backend.db.store.ChangeTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Remembers the last few results of {@link Matchmaker#match()}, so pressing auto-populate again with the
+ * same attendance gives the same groups straight away.
+ * <p>
+ * Results are keyed by a fingerprint of everything the engine reads: the attendees and free DMs by their
+ * revisions, which move on with any edit to their characters, relationships or play logs, the groups with
+ * their themes, DMs and size limits, the weights and the date. Any such change gives a new fingerprint, so
+ * a stale result is never returned; it just ages out of the cache.
+ */
+class MatchResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatchResultCache.class);
+
+    /**
+     * A finished match, stored by UUID so it can be put back into the same groups.
+     */
+    record CachedResult(Map<UUID, UUID> seats, Map<UUID, UUID> characters, Map<UUID, UUID> dungeonMasters, List<UUID> waitlist) {}
+
+    private final int capacity;
+    private final Map<Long, CachedResult> results;
+    private long hits;
+    private long misses;
+
+    MatchResultCache(int capacity) {
+        this.capacity = capacity;
+        this.results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedResult> eldest) {
+                return size() > MatchResultCache.this.capacity;
+            }
+        };
+    }
+
+    synchronized CachedResult get(long fingerprint) {
+        CachedResult result = results.get(fingerprint);
+        if (result != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        logger.info("Match cache {}. Hit rate: {}% ({} hits, {} misses, {} cached).",
+                result != null ? "hit" : "miss", Math.round(getHitRate() * 100), hits, misses, results.size());
+        return result;
+    }
+
+    synchronized void put(long fingerprint, CachedResult result) {
+        results.put(fingerprint, result);
+    }
+
+    synchronized void clear() {
+        results.clear();
+        logger.info("Match cache cleared.");
+    }
+
+    private double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Captures the groups as they are after a match.
+     */
+    static CachedResult capture(List<Group> groups, Collection<Group> openGroups, List<Player> waitlist) {
+        Map<UUID, UUID> seats = new HashMap<>();
+        Map<UUID, UUID> characters = new HashMap<>();
+        Map<UUID, UUID> dungeonMasters = new HashMap<>();
+        for (Group group : groups) {
+            for (Player player : group.getParty().values()) {
+                seats.put(player.getUuid(), group.getUuid());
+                Character character = group.getCharacter(player);
+                if (character != null) {
+                    characters.put(player.getUuid(), character.getUuid());
+                }
+            }
+        }
+        for (Group group : openGroups) {
+            if (group.getDungeonMaster() != null) {
+                dungeonMasters.put(group.getUuid(), group.getDungeonMaster().getUuid());
+            }
+        }
+        return new CachedResult(seats, characters, dungeonMasters, waitlist.stream().map(Player::getUuid).toList());
+    }
+
+    /**
+     * Puts a cached result back into the groups. The fingerprint means the same players, groups and DMs,
+     * but if any of them can't be found the groups are left alone and the result counts as a miss.
+     * @return The players on the waitlist, or null if the result no longer fits the groups.
+     */
+    static List<Player> restore(CachedResult result, List<Group> groups, List<Player> players, List<Player> availableDms) {
+        Map<UUID, Group> groupsByUuid = new HashMap<>();
+        groups.forEach(group -> groupsByUuid.put(group.getUuid(), group));
+        Map<UUID, Player> dmsByUuid = new HashMap<>();
+        if (availableDms != null) {
+            availableDms.forEach(dm -> dmsByUuid.put(dm.getUuid(), dm));
+        }
+        Set<UUID> waitlisted = new HashSet<>(result.waitlist());
+        if (!fits(result, groupsByUuid, dmsByUuid, players, waitlisted)) {
+            logger.warn("Cached match result no longer fits the groups, running the match instead.");
+            return null;
+        }
+
+        result.dungeonMasters().forEach((groupUuid, dmUuid) -> {
+            Group group = groupsByUuid.get(groupUuid);
+            // The group may still have the DM from the run that was cached.
+            if (group.getDungeonMaster() == null) {
+                group.setDungeonMaster(dmsByUuid.get(dmUuid));
+            }
+        });
+        List<Player> waitlist = new ArrayList<>();
+        for (Player player : players) {
+            if (waitlisted.contains(player.getUuid())) {
+                waitlist.add(player);
+                continue;
+            }
+            Group group = groupsByUuid.get(result.seats().get(player.getUuid()));
+            group.addPartyMember(player);
+            UUID characterUuid = result.characters().get(player.getUuid());
+            player.getCharacters().stream()
+                    .filter(character -> character.getUuid().equals(characterUuid))
+                    .findFirst()
+                    .ifPresent(character -> group.setCharacter(player, character));
+        }
+        return waitlist;
+    }
+
+    /**
+     * Checks that every group, DM and seat the result refers to is still there, before anything is changed.
+     */
+    private static boolean fits(CachedResult result, Map<UUID, Group> groupsByUuid, Map<UUID, Player> dmsByUuid,
+                                List<Player> players, Set<UUID> waitlisted) {
+        for (Map.Entry<UUID, UUID> entry : result.dungeonMasters().entrySet()) {
+            Group group = groupsByUuid.get(entry.getKey());
+            if (group == null || (group.getDungeonMaster() == null && !dmsByUuid.containsKey(entry.getValue()))) {
+                return false;
+            }
+        }
+        for (Player player : players) {
+            if (!waitlisted.contains(player.getUuid()) && !groupsByUuid.containsKey(result.seats().get(player.getUuid()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A fingerprint of the match input. Players stand in by their UUID and {@link Player#getRevision() revision},
+     * which changes with any edit to them, so this costs the same however long their histories are.
+     * Players and DMs are folded in no particular order; groups in list order, as that order is part of the input.
+     */
+    static long fingerprint(MatchScorer scorer, LocalDate asOf, List<Player> players, List<Group> groups, List<Player> availableDms) {
+        long fingerprint = ChangeTracker.mix(0L, scorer.getWeightsVersion());
+        fingerprint = ChangeTracker.mix(fingerprint, asOf);
+        fingerprint = ChangeTracker.mix(fingerprint, describePlayers(players));
+        for (Group group : groups) {
+            fingerprint = ChangeTracker.mix(fingerprint, group.getUuid());
+            fingerprint = ChangeTracker.mix(fingerprint, group.getHouses());
+            fingerprint = ChangeTracker.mix(fingerprint, group.getDate());
+            fingerprint = ChangeTracker.mix(fingerprint, group.getMinSize());
+            fingerprint = ChangeTracker.mix(fingerprint, group.getMaxSize());
+            fingerprint = ChangeTracker.mix(fingerprint, group.getDungeonMaster() != null ? describePlayer(group.getDungeonMaster()) : -1L);
+        }
+        return ChangeTracker.mix(fingerprint, availableDms != null ? describePlayers(availableDms) : -1L);
+    }
+
+    private static long describePlayers(List<Player> players) {
+        long sum = 0;
+        for (Player player : players) {
+            sum += describePlayer(player);
+        }
+        return ChangeTracker.mix(players.size(), sum);
+    }
+
+    private static long describePlayer(Player player) {
+        return ChangeTracker.mix(ChangeTracker.mix(0L, player.getUuid()), player.getRevision());
+    }
+}
@@ -0,0 +1,287 @@
+package org.poolen.backend.engine;
+
+import org.poolen.backend.db.constants.House;
+import org.poolen.backend.db.entities.Character;
+import org.poolen.backend.db.entities.Group;
+import org.poolen.backend.db.entities.Player;
+import org.poolen.backend.db.store.PlayLog;
+import org.poolen.backend.db.store.RelationshipIndex;
+import org.poolen.backend.db.store.SettingsStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.poolen.backend.db.constants.Settings.MatchmakerBonusSettings.BLACKLIST_BONUS;
+import static org.poolen.backend.db.constants.Settings.MatchmakerBonusSettings.BUDDY_BONUS;
+import static org.poolen.backend.db.constants.Settings.MatchmakerBonusSettings.HOUSE_BONUS;
+import static org.poolen.backend.db.constants.Settings.MatchmakerBonusSettings.MAX_REUNION_BONUS;
+import static org.poolen.backend.db.constants.Settings.MatchmakerBonusSettings.RECENCY_GRUDGE;
+import static org.poolen.backend.db.constants.Settings.MatchmakerMultiplierSettings.HOUSE_FOURTH_CHOICE_MULTIPLIER;
+import static org.poolen.backend.db.constants.Settings.MatchmakerMultiplierSettings.HOUSE_SECOND_CHOICE_MULTIPLIER;
+import static org.poolen.backend.db.constants.Settings.MatchmakerMultiplierSettings.HOUSE_THIRD_CHOICE_MULTIPLIER;
+import static org.poolen.backend.db.constants.Settings.MatchmakerMultiplierSettings.MAIN_CHARACTER_MULTIPLIER;
+import static org.poolen.backend.db.constants.Settings.MatchmakerPrioritySettings.AMBER_PRIORITIES;
+import static org.poolen.backend.db.constants.Settings.MatchmakerPrioritySettings.AVENTURINE_PRIORITIES;
+import static org.poolen.backend.db.constants.Settings.MatchmakerPrioritySettings.GARNET_PRIORITIES;
+import static org.poolen.backend.db.constants.Settings.MatchmakerPrioritySettings.OPAL_PRIORITIES;
+
+/**
+ * Holds the matchmaking weights and the scoring rules for single players, pairs and DMs.
+ * Everything that builds score tables for the engine goes through here, so the rules only live in one place.
+ */
+public class MatchScorer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatchScorer.class);
+
+    // --- Scoring Weights ---
+    private final double HOUSE_MATCH_BONUS;
+    private final double HOUSE_DEFAULT_SCORE;
+    private final double BUDDY_MATCH_BONUS;
+    private final double BLACKLIST_MATCH_BONUS;
+
+    private final double RECENCY_GRUDGE_PERIOD;
+    private final double MAX_REUNION_MATCH_BONUS;
+    private final double MAIN_CHARACTER_MATCH_MULTIPLIER;
+    private final double HOUSE_SECOND_CHOICE_MATCH_MULTIPLIER;
+    private final double HOUSE_THIRD_CHOICE_MATCH_MULTIPLIER;
+    private final double HOUSE_FOURTH_CHOICE_MATCH_MULTIPLIER;
+
+    // --- House Priority Map ---
+    // This defines the "second best" choices for autofilling.
+    private final Map<House, List<House>> housePriorityMap = new EnumMap<>(House.class);
+
+    public MatchScorer(SettingsStore settingsStore) {
+        logger.debug("Loading settings and populating house priority map...");
+        housePriorityMap.put(House.GARNET, (List<House>) settingsStore.getSetting(GARNET_PRIORITIES).getSettingValue());
+        housePriorityMap.put(House.AMBER, (List<House>) settingsStore.getSetting(AMBER_PRIORITIES).getSettingValue());
+        housePriorityMap.put(House.AVENTURINE, (List<House>) settingsStore.getSetting(AVENTURINE_PRIORITIES).getSettingValue());
+        housePriorityMap.put(House.OPAL, (List<House>) settingsStore.getSetting(OPAL_PRIORITIES).getSettingValue());
+
+        HOUSE_MATCH_BONUS = (double) settingsStore.getSetting(HOUSE_BONUS).getSettingValue();
+        HOUSE_DEFAULT_SCORE = 1.0;
+        BUDDY_MATCH_BONUS = (double) settingsStore.getSetting(BUDDY_BONUS).getSettingValue();
+        BLACKLIST_MATCH_BONUS = (double) settingsStore.getSetting(BLACKLIST_BONUS).getSettingValue();
+
+        RECENCY_GRUDGE_PERIOD = (double) settingsStore.getSetting(RECENCY_GRUDGE).getSettingValue();
+        MAX_REUNION_MATCH_BONUS = (double) settingsStore.getSetting(MAX_REUNION_BONUS).getSettingValue();
+        MAIN_CHARACTER_MATCH_MULTIPLIER = (double) settingsStore.getSetting(MAIN_CHARACTER_MULTIPLIER).getSettingValue();
+        HOUSE_SECOND_CHOICE_MATCH_MULTIPLIER = (double) settingsStore.getSetting(HOUSE_SECOND_CHOICE_MULTIPLIER).getSettingValue();
+        HOUSE_THIRD_CHOICE_MATCH_MULTIPLIER = (double) settingsStore.getSetting(HOUSE_THIRD_CHOICE_MULTIPLIER).getSettingValue();
+        HOUSE_FOURTH_CHOICE_MATCH_MULTIPLIER = (double) settingsStore.getSetting(HOUSE_FOURTH_CHOICE_MULTIPLIER).getSettingValue();
+
+        logger.debug("Matchmaker settings loaded:");
+        logger.debug("HOUSE_MATCH_BONUS: {}", HOUSE_MATCH_BONUS);
+        logger.debug("BUDDY_MATCH_BONUS: {}", BUDDY_MATCH_BONUS);
+        logger.debug("BLACKLIST_MATCH_BONUS: {}", BLACKLIST_MATCH_BONUS);
+        logger.debug("RECENCY_GRUDGE_PERIOD: {}", RECENCY_GRUDGE_PERIOD);
+        logger.debug("MAX_REUNION_MATCH_BONUS: {}", MAX_REUNION_MATCH_BONUS);
+        logger.debug("MAIN_CHARACTER_MATCH_MULTIPLIER: {}", MAIN_CHARACTER_MATCH_MULTIPLIER);
+        logger.debug("HOUSE_SECOND_CHOICE_MATCH_MULTIPLIER: {}", HOUSE_SECOND_CHOICE_MATCH_MULTIPLIER);
+        logger.debug("HOUSE_THIRD_CHOICE_MATCH_MULTIPLIER: {}", HOUSE_THIRD_CHOICE_MATCH_MULTIPLIER);
+        logger.debug("HOUSE_FOURTH_CHOICE_MATCH_MULTIPLIER: {}", HOUSE_FOURTH_CHOICE_MATCH_MULTIPLIER);
+    }
+
+    /**
+     * The social score of seating two players at the same table: blacklist and buddy bonuses plus
+     * the reunion bonus, which is withheld on a sliding scale while the recency grudge is active.
+     * The play log is read from both sides and the most recent date wins.
+     */
+    public double pairScore(Player p1, Player p2, LocalDate asOf) {
+        double pairScore = 0;
+
+        if (p1.hasBlacklisted(p2) || p2.hasBlacklisted(p1)) {
+            pairScore += BLACKLIST_MATCH_BONUS;
+        }
+        if (p1.hasBuddy(p2) || p2.hasBuddy(p1)) {
+            pairScore += BUDDY_MATCH_BONUS;
+        }
+        pairScore += reunionScore(p1, p2, asOf);
+
+        logger.trace("... (p1 '{}', p2 '{}'): Pair score: {}", p1.getName(), p2.getName(), pairScore);
+        return pairScore;
+    }
+
+    /**
+     * The same pair score, worked out from what is already known about the pair rather than from the players' lists.
+     * @param weeksSincePlayed Whole weeks since they last played together, as given by
+     *                         {@link RelationshipIndex.Relation#weeksSincePlayed}, so {@link RelationshipIndex.Relation#NEVER_PLAYED}
+     *                         if they never have.
+     */
+    public double pairScore(boolean buddy, boolean blacklist, long weeksSincePlayed) {
+        double pairScore = 0;
+        if (blacklist) {
+            pairScore += BLACKLIST_MATCH_BONUS;
+        }
+        if (buddy) {
+            pairScore += BUDDY_MATCH_BONUS;
+        }
+        pairScore += weeksSincePlayed == RelationshipIndex.Relation.NEVER_PLAYED
+                ? MAX_REUNION_MATCH_BONUS
+                // Like reunionScore, a game dated after asOf counts as the most recent there is.
+                : MAX_REUNION_MATCH_BONUS - recencyPenalty(weeksSincePlayed);
+        return pairScore;
+    }
+
+    /**
+     * The reunion part of the pair score on its own. Also used to rate how recently a DM ran for a player.
+     */
+    public double reunionScore(Player p1, Player p2, LocalDate asOf) {
+        int lastPlayed = Math.max(p1.lastPlayedEpochDay(p2), p2.lastPlayedEpochDay(p1));
+        if (lastPlayed == PlayLog.NEVER) {
+            return MAX_REUNION_MATCH_BONUS; // Max bonus for never having played together
+        }
+        // The same whole weeks as ChronoUnit.WEEKS.between, without making a LocalDate.
+        long weeksAgo = (asOf.toEpochDay() - lastPlayed) / 7;
+        double reunionPenalty = recencyPenalty(weeksAgo);
+        if (reunionPenalty > 0) {
+            logger.trace("... (p1 '{}', p2 '{}'): Recency grudge applied. Weeks ago: {}. Penalty: {}", p1.getName(), p2.getName(), weeksAgo, reunionPenalty);
+        }
+        return MAX_REUNION_MATCH_BONUS - reunionPenalty;
+    }
+
+    /**
+     * The part of the reunion bonus that is withheld from two players who played together the given
+     * number of weeks apart. Max penalty for playing the same week, nothing once the grudge has passed.
+     */
+    public double recencyPenalty(long weeksApart) {
+        if (weeksApart < RECENCY_GRUDGE_PERIOD) {
+            // Apply a sliding scale penalty.
+            return MAX_REUNION_MATCH_BONUS * (1.0 - ((double) weeksApart / RECENCY_GRUDGE_PERIOD));
+        }
+        return 0;
+    }
+
+    /**
+     * The score a player contributes by sitting at a table run by the given DM.
+     */
+    public double dmBlacklistScore(Player player, Player dungeonMaster) {
+        if (dungeonMaster != null && player.hasDmBlacklisted(dungeonMaster)) {
+            logger.trace("... (p '{}', DM '{}'): DM Blacklist bonus applied.", player.getName(), dungeonMaster.getName());
+            return BLACKLIST_MATCH_BONUS;
+        }
+        return 0;
+    }
+
+    /**
+     * Everything a player would contribute to a group on their own, without the social pairs: the best
+     * fit of their active characters (the default if they have none) and the group DM's blacklist.
+     * This is what {@link MatchSnapshot#seatScore} holds for each player and group.
+     */
+    public double seatScore(Player player, Group group) {
+        Character character = bestCharacter(player, group.getHouses());
+        double houseScore = character != null
+                ? Math.max(HOUSE_DEFAULT_SCORE, characterScore(character, group.getHouses()))
+                : HOUSE_DEFAULT_SCORE;
+        return houseScore + dmBlacklistScore(player, group.getDungeonMaster());
+    }
+
+    /**
+     * Finds the best score any of the player's active characters can get for a group with the given themes.
+     */
+    public double houseScore(Player player, List<House> groupHouses) {
+        Character bestCharacter = bestCharacter(player, groupHouses);
+        if (bestCharacter == null) {
+            logger.error("Player '{}' (UUID: {}) has no active characters. Cannot calculate house score. Returning default.", player.getName(), player.getUuid());
+            return HOUSE_DEFAULT_SCORE;
+        }
+        double bestScoreForPlayer = Math.max(HOUSE_DEFAULT_SCORE, characterScore(bestCharacter, groupHouses));
+        logger.trace("... Player '{}': Best score from all characters: {}.", player.getName(), bestScoreForPlayer);
+        return bestScoreForPlayer;
+    }
+
+    /**
+     * Picks the character the player should bring to a group with the given themes. Retired characters
+     * are never picked.
+     * @return The best scoring active character, or null if the player has none.
+     */
+    public Character bestCharacter(Player player, List<House> groupHouses) {
+        logger.trace("... Calculating tiered house score for player '{}'.", player.getName());
+        Character bestCharacter = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        // Iterate through all of the player's characters to find their best possible score
+        for (Character character : player.getCharacters()) {
+            if (character.isRetired()) {
+                continue;
+            }
+            double score = characterScore(character, groupHouses);
+            if (score > bestScore) {
+                bestScore = score;
+                bestCharacter = character;
+            }
+        }
+        return bestCharacter;
+    }
+
+    /**
+     * Scores a single character against a group's themes, including the main character bonus.
+     */
+    public double characterScore(Character character, List<House> groupHouses) {
+        House playerHouse = character.getHouse();
+        double bestScoreForThisCharacter;
+        logger.trace("... ... Checking character '{}' (House: {}).", character.getName(), playerHouse);
+
+        // First, check if this character is a perfect match for ANY of the group's themes.
+        if (groupHouses.contains(playerHouse)) {
+            bestScoreForThisCharacter = HOUSE_MATCH_BONUS;
+            logger.trace("... ... ... Perfect house match found. Score: {}", bestScoreForThisCharacter);
+        } else {
+            // If not a perfect match, find the best possible tiered score.
+            double bestTieredScore = HOUSE_DEFAULT_SCORE;
+            List<House> preferences = housePriorityMap.get(playerHouse);
+            if (preferences != null) {
+                // Check against each of the group's houses to find the best secondary match.
+                for (House groupHouse : groupHouses) {
+                    double currentTieredScore = tieredScore(preferences.indexOf(groupHouse));
+                    if (currentTieredScore > bestTieredScore) {
+                        bestTieredScore = currentTieredScore;
+                        logger.trace("... ... ... Tiered match found: GroupHouse '{}', Score '{}'.", groupHouse, currentTieredScore);
+                    }
+                }
+            }
+            bestScoreForThisCharacter = bestTieredScore;
+        }
+
+        // Add the main character bonus if this is their first character
+        if (character.isMain()) {
+            bestScoreForThisCharacter += MAIN_CHARACTER_MATCH_MULTIPLIER;
+            logger.trace("... ... ... Added main character bonus ({}). New score: {}", MAIN_CHARACTER_MATCH_MULTIPLIER, bestScoreForThisCharacter);
+        }
+        return bestScoreForThisCharacter;
+    }
+
+    private double tieredScore(int priorityIndex) {
+        switch (priorityIndex) {
+            case 0:
+                return HOUSE_MATCH_BONUS * HOUSE_SECOND_CHOICE_MATCH_MULTIPLIER;
+            case 1:
+                return HOUSE_MATCH_BONUS * HOUSE_THIRD_CHOICE_MATCH_MULTIPLIER;
+            case 2:
+                return HOUSE_MATCH_BONUS * HOUSE_FOURTH_CHOICE_MATCH_MULTIPLIER;
+            default:
+                return HOUSE_DEFAULT_SCORE;
+        }
+    }
+
+    /**
+     * A description of every weight the scores depend on. Two scorers with the same version always
+     * score the same input the same way.
+     */
+    public String getWeightsVersion() {
+        return List.of(HOUSE_MATCH_BONUS, HOUSE_DEFAULT_SCORE, BUDDY_MATCH_BONUS, BLACKLIST_MATCH_BONUS,
+                RECENCY_GRUDGE_PERIOD, MAX_REUNION_MATCH_BONUS, MAIN_CHARACTER_MATCH_MULTIPLIER,
+                HOUSE_SECOND_CHOICE_MATCH_MULTIPLIER, HOUSE_THIRD_CHOICE_MATCH_MULTIPLIER,
+                HOUSE_FOURTH_CHOICE_MATCH_MULTIPLIER) + housePriorityMap.toString();
+    }
+
+    public double getHouseDefaultScore() {
+        return HOUSE_DEFAULT_SCORE;
+    }
+
+    public double getMaxReunionBonus() {
+        return MAX_REUNION_MATCH_BONUS;
+    }
+}
@@ -0,0 +1,277 @@
+package org.poolen.backend.engine;
+
+import org.poolen.backend.db.constants.House;
+import org.poolen.backend.db.entities.Character;
+import org.poolen.backend.db.entities.Group;
+import org.poolen.backend.db.entities.Player;
+import org.poolen.backend.db.store.PlayerIndex;
+import org.poolen.backend.db.store.RelationshipIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A frozen view of one matchmaking session. Players and groups get dense indices and every score the
+ * engine needs is looked up once into primitive tables, so the solvers never touch the domain maps again.
+ * Pair scores are kept sparse, see {@link SparseAffinity}.
+ * <p>
+ * Players are indexed in UUID order, whatever order they came in, so the same session always gets the
+ * same indices and the solvers walk it the same way. Groups keep the order they were given in.
+ */
+public class MatchSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatchSnapshot.class);
+
+    private final MatchScorer scorer;
+    private final List<Player> players;
+    private final List<Group> groups;
+    private final Map<UUID, Integer> playerIndex;
+    private final LocalDate asOf;
+
+    private final SparseAffinity affinity;
+    private final double[][] houseScores;
+    private final Character[][] characters;
+    private final double[][] dmScores;
+
+    MatchSnapshot(MatchScorer scorer, List<Player> players, List<Group> groups, LocalDate asOf) {
+        this(scorer, players, groups, asOf, null);
+    }
+
+    /**
+     * @param relationships The store's relationship index to read pair scores from, or null to read the players' lists.
+     */
+    MatchSnapshot(MatchScorer scorer, List<Player> players, List<Group> groups, LocalDate asOf, RelationshipIndex relationships) {
+        this.scorer = scorer;
+        this.players = players.stream().sorted(Comparator.comparing(Player::getUuid)).toList();
+        this.groups = List.copyOf(groups);
+        this.asOf = asOf;
+
+        int numPlayers = this.players.size();
+        int numGroups = this.groups.size();
+        logger.debug("Building match snapshot for {} players and {} groups as of {}.", numPlayers, numGroups, asOf);
+
+        this.playerIndex = new HashMap<>();
+        for (int i = 0; i < numPlayers; i++) {
+            playerIndex.put(this.players.get(i).getUuid(), i);
+        }
+
+        this.affinity = SparseAffinity.build(scorer, this.players, playerIndex, asOf, relationships);
+
+        this.houseScores = new double[numPlayers][numGroups];
+        this.characters = new Character[numPlayers][numGroups];
+        this.dmScores = new double[numPlayers][numGroups];
+        for (int g = 0; g < numGroups; g++) {
+            Group group = this.groups.get(g);
+            for (int i = 0; i < numPlayers; i++) {
+                // The character is picked here once, so the score and the character brought always agree.
+                Character character = scorer.bestCharacter(this.players.get(i), group.getHouses());
+                characters[i][g] = character;
+                houseScores[i][g] = character != null
+                        ? Math.max(scorer.getHouseDefaultScore(), scorer.characterScore(character, group.getHouses()))
+                        : scorer.getHouseDefaultScore();
+            }
+            refreshDungeonMaster(g);
+        }
+        logger.debug("Match snapshot built.");
+    }
+
+    /**
+     * A snapshot read back from {@link #write}. It has no scorer and no characters, only the scores, so its
+     * DM scores can only be set from a journal, see {@link #setDungeonMasterScores}.
+     */
+    private MatchSnapshot(List<Player> players, List<Group> groups, LocalDate asOf, SparseAffinity affinity,
+                          double[][] houseScores, double[][] dmScores) {
+        this.scorer = null;
+        this.players = players;
+        this.groups = groups;
+        this.asOf = asOf;
+        this.playerIndex = new HashMap<>();
+        for (int i = 0; i < players.size(); i++) {
+            playerIndex.put(players.get(i).getUuid(), i);
+        }
+        this.affinity = affinity;
+        this.houseScores = houseScores;
+        this.characters = new Character[players.size()][groups.size()];
+        this.dmScores = dmScores;
+    }
+
+    /**
+     * Writes the session's players, groups and score tables, so it can be read back and solved again
+     * somewhere else, e.g. to replay a {@link MatchJournal}.
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeLong(asOf.toEpochDay());
+        out.writeInt(players.size());
+        for (Player player : players) {
+            out.writeLong(player.getUuid().getMostSignificantBits());
+            out.writeLong(player.getUuid().getLeastSignificantBits());
+            out.writeUTF(player.getName() != null ? player.getName() : "");
+            out.writeLong(player.getLastSeen() != null ? player.getLastSeen().toEpochDay() : Long.MIN_VALUE);
+        }
+        out.writeInt(groups.size());
+        for (Group group : groups) {
+            out.writeInt(group.getHouses().size());
+            for (House house : group.getHouses()) {
+                out.writeInt(house.ordinal());
+            }
+            out.writeLong(group.getDate() != null ? group.getDate().toEpochDay() : Long.MIN_VALUE);
+            out.writeInt(group.getMinSize());
+            out.writeInt(group.getMaxSize());
+        }
+        for (int p = 0; p < players.size(); p++) {
+            for (int g = 0; g < groups.size(); g++) {
+                out.writeDouble(houseScores[p][g]);
+                out.writeDouble(dmScores[p][g]);
+            }
+        }
+        affinity.write(out);
+    }
+
+    static MatchSnapshot read(DataInputStream in) throws IOException {
+        LocalDate asOf = LocalDate.ofEpochDay(in.readLong());
+        int numPlayers = in.readInt();
+        List<Player> players = new ArrayList<>(numPlayers);
+        // The players read back never go into the store, so they get an index of their own.
+        PlayerIndex playerIndex = new PlayerIndex();
+        for (int p = 0; p < numPlayers; p++) {
+            Player player = new Player(new UUID(in.readLong(), in.readLong()), in.readUTF(), false, playerIndex);
+            long lastSeen = in.readLong();
+            player.setLastSeen(lastSeen != Long.MIN_VALUE ? LocalDate.ofEpochDay(lastSeen) : null);
+            players.add(player);
+        }
+        int numGroups = in.readInt();
+        List<Group> groups = new ArrayList<>(numGroups);
+        for (int g = 0; g < numGroups; g++) {
+            int houseCount = in.readInt();
+            List<House> houses = new ArrayList<>(houseCount);
+            for (int h = 0; h < houseCount; h++) {
+                houses.add(House.values()[in.readInt()]);
+            }
+            long date = in.readLong();
+            Group group = new Group(null, houses, date != Long.MIN_VALUE ? LocalDate.ofEpochDay(date) : null, null);
+            group.setMinSize(in.readInt());
+            group.setMaxSize(in.readInt());
+            groups.add(group);
+        }
+        double[][] houseScores = new double[numPlayers][numGroups];
+        double[][] dmScores = new double[numPlayers][numGroups];
+        for (int p = 0; p < numPlayers; p++) {
+            for (int g = 0; g < numGroups; g++) {
+                houseScores[p][g] = in.readDouble();
+                dmScores[p][g] = in.readDouble();
+            }
+        }
+        return new MatchSnapshot(List.copyOf(players), List.copyOf(groups), asOf, SparseAffinity.read(in), houseScores, dmScores);
+    }
+
+    /**
+     * Overwrites the DM blacklist column of a group, for replaying a DM handed out in the original run.
+     */
+    void setDungeonMasterScores(int groupIndex, double[] scores) {
+        for (int i = 0; i < players.size(); i++) {
+            dmScores[i][groupIndex] = scores[i];
+        }
+    }
+
+    /**
+     * Re-reads the DM of a group after it has been (re)assigned and updates the DM blacklist column.
+     * @throws IllegalStateException For a snapshot read back with {@link #read}, which has no scorer.
+     */
+    void refreshDungeonMaster(int groupIndex) {
+        if (scorer == null) {
+            // Its players are bare UUIDs and names, so there is no DM blacklist to read anyway.
+            throw new IllegalStateException("A snapshot read back from a journal can't re-read a DM; replay the journaled DM scores instead.");
+        }
+        Player dungeonMaster = groups.get(groupIndex).getDungeonMaster();
+        if (dungeonMaster == null) {
+            logger.debug("Group {} has no DM yet. DM blacklist scores left at zero.", groups.get(groupIndex).getUuid());
+        }
+        for (int i = 0; i < players.size(); i++) {
+            dmScores[i][groupIndex] = scorer.dmBlacklistScore(players.get(i), dungeonMaster);
+        }
+    }
+
+    public int getPlayerCount() {
+        return players.size();
+    }
+
+    public int getGroupCount() {
+        return groups.size();
+    }
+
+    public Player getPlayer(int index) {
+        return players.get(index);
+    }
+
+    public Group getGroup(int index) {
+        return groups.get(index);
+    }
+
+    public List<Player> getPlayers() {
+        return players;
+    }
+
+    public List<Group> getGroups() {
+        return groups;
+    }
+
+    /**
+     * @return The dense index of the player, or -1 if they are not part of this session.
+     */
+    public int indexOf(Player player) {
+        Integer index = playerIndex.get(player.getUuid());
+        return index != null ? index : -1;
+    }
+
+    public int indexOf(Group group) {
+        return groups.indexOf(group);
+    }
+
+    public LocalDate getAsOf() {
+        return asOf;
+    }
+
+    public MatchScorer getScorer() {
+        return scorer;
+    }
+
+    public double pairScore(int p1, int p2) {
+        return affinity.pairScore(p1, p2);
+    }
+
+    SparseAffinity getAffinity() {
+        return affinity;
+    }
+
+    public double houseScore(int player, int group) {
+        return houseScores[player][group];
+    }
+
+    /**
+     * @return The character the player would bring to the group, or null if they have no active characters.
+     */
+    public Character characterFor(int player, int group) {
+        return characters[player][group];
+    }
+
+    public double dmScore(int player, int group) {
+        return dmScores[player][group];
+    }
+
+    /**
+     * Everything a player contributes to a group on their own, without the social pairs.
+     */
+    public double seatScore(int player, int group) {
+        return houseScores[player][group] + dmScores[player][group];
+    }
+}
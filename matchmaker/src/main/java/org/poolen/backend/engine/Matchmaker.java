@@ -1,37 +1,32 @@
 package org.poolen.backend.engine;
 
-import com.google.ortools.graph.LinearSumAssignment;
-import org.poolen.backend.db.constants.House;
-import org.poolen.backend.db.entities.Character;
 import org.poolen.backend.db.entities.Group;
 import org.poolen.backend.db.entities.Player;
-import org.poolen.backend.db.store.SettingsStore;
+import org.poolen.backend.db.store.RelationshipIndex;
 import org.poolen.backend.db.store.Store;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.EnumMap;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-
-import static org.poolen.backend.db.constants.Settings.MatchmakerPrioritySettings.AMBER_PRIORITIES;
-import static org.poolen.backend.db.constants.Settings.MatchmakerPrioritySettings.AVENTURINE_PRIORITIES;
-import static org.poolen.backend.db.constants.Settings.MatchmakerPrioritySettings.OPAL_PRIORITIES;
-import static org.poolen.backend.db.constants.Settings.MatchmakerPrioritySettings.GARNET_PRIORITIES;
-import static org.poolen.backend.db.constants.Settings.MatchmakerBonusSettings.HOUSE_BONUS;
-import static org.poolen.backend.db.constants.Settings.MatchmakerBonusSettings.BUDDY_BONUS;
-import static org.poolen.backend.db.constants.Settings.MatchmakerBonusSettings.BLACKLIST_BONUS;
-import static org.poolen.backend.db.constants.Settings.MatchmakerBonusSettings.MAX_REUNION_BONUS;
-import static org.poolen.backend.db.constants.Settings.MatchmakerBonusSettings.RECENCY_GRUDGE;
-import static org.poolen.backend.db.constants.Settings.MatchmakerMultiplierSettings.HOUSE_SECOND_CHOICE_MULTIPLIER;
-import static org.poolen.backend.db.constants.Settings.MatchmakerMultiplierSettings.HOUSE_FOURTH_CHOICE_MULTIPLIER;
-import static org.poolen.backend.db.constants.Settings.MatchmakerMultiplierSettings.HOUSE_THIRD_CHOICE_MULTIPLIER;
-import static org.poolen.backend.db.constants.Settings.MatchmakerMultiplierSettings.MAIN_CHARACTER_MULTIPLIER;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Service
 @Lazy
@@ -41,68 +36,56 @@ public class Matchmaker {
 
     private List<Group> groups;
     private List<Player> players;
-
-    private SettingsStore settingsStore;
-    // --- Scoring Weights ---
-    // The House Score is now part of this balanced system.
-    private final double HOUSE_MATCH_BONUS;
-    private final double HOUSE_DEFAULT_SCORE;
-    private final double BUDDY_MATCH_BONUS;
-    private final double BLACKLIST_MATCH_BONUS;
-
-    private final double RECENCY_GRUDGE_PERIOD;
-    private final double MAX_REUNION_MATCH_BONUS;
-    private final double MAIN_CHARACTER_MATCH_MULTIPLIER;
-    private final double HOUSE_SECOND_CHOICE_MATCH_MULTIPLIER;
-    private final double HOUSE_THIRD_CHOICE_MATCH_MULTIPLIER;
-    private final double HOUSE_FOURTH_CHOICE_MATCH_MULTIPLIER;
-
+    private List<Player> dungeonMasters;
+    private List<Player> waitlist = List.of();
+    // Null means the day of the run.
+    private final LocalDate asOf;
+    private final long seed;
+    // Where every match() run is journaled to, or null to not journal at all.
+    private final Path journalDirectory;
+
+    private final MatchScorer scorer;
+    private final RelationshipIndex relationships;
+    private final MatchResultCache resultCache = new MatchResultCache(RESULT_CACHE_SIZE);
 
     // Constants for the initial assignment pass
     private static final double MAX_INITIAL_SCORE = 1000.0;
-
-    // --- House Priority Map ---
-    // This defines the "second best" choices for autofilling.
-    private final Map<House, List<House>> housePriorityMap = new EnumMap<>(House.class);
-
-
-
+    private static final long DEFAULT_SEED = 20_240_917L;
+    private static final int RESULT_CACHE_SIZE = 16;
+    // Rosters this big are split into partitions of about PARTITION_SIZE players.
+    private static final int DECOMPOSITION_THRESHOLD = 400;
+    private static final int PARTITION_SIZE = 150;
+    // Anyone away for longer than this is equally overdue for a seat.
+    private static final long MAX_WAITLIST_DAYS = 3650;
+    // System properties to reproduce a run with, see the constructor.
+    private static final String SEED_PROPERTY = "matchmaker.seed";
+    private static final String AS_OF_PROPERTY = "matchmaker.asOf";
+    private static final String JOURNAL_DIRECTORY_PROPERTY = "matchmaker.journalDir";
+
+    /**
+     * Three system properties are there to reproduce a run: {@code matchmaker.seed} seeds everything random,
+     * {@code matchmaker.asOf} fixes the date players are scored against (e.g. 2024-09-17, to rerun a past
+     * night), and {@code matchmaker.journalDir} saves a {@link MatchJournal} of every run to that directory.
+     * Journaled runs skip the result cache, and rosters big enough to be split into partitions are solved
+     * whole instead, which is slower.
+     */
     public Matchmaker(Store store) {
         logger.info("Matchmaker initialising...");
-        this.settingsStore = store.getSettingsStore();
-
-        logger.debug("Loading settings and populating house priority map...");
-        housePriorityMap.put(House.GARNET, (List<House>) settingsStore.getSetting(GARNET_PRIORITIES).getSettingValue());
-        housePriorityMap.put(House.AMBER, (List<House>) settingsStore.getSetting(AMBER_PRIORITIES).getSettingValue());
-        housePriorityMap.put(House.AVENTURINE, (List<House>) settingsStore.getSetting(AVENTURINE_PRIORITIES).getSettingValue());
-        housePriorityMap.put(House.OPAL, (List<House>) settingsStore.getSetting(OPAL_PRIORITIES).getSettingValue());
-
-        HOUSE_MATCH_BONUS = (double) settingsStore.getSetting(HOUSE_BONUS).getSettingValue();
-        HOUSE_DEFAULT_SCORE = 1.0;
-        BUDDY_MATCH_BONUS = (double) settingsStore.getSetting(BUDDY_BONUS).getSettingValue();
-        BLACKLIST_MATCH_BONUS = (double) settingsStore.getSetting(BLACKLIST_BONUS).getSettingValue();
-
-        RECENCY_GRUDGE_PERIOD = (double) settingsStore.getSetting(RECENCY_GRUDGE).getSettingValue();
-        MAX_REUNION_MATCH_BONUS = (double) settingsStore.getSetting(MAX_REUNION_BONUS).getSettingValue();
-        MAIN_CHARACTER_MATCH_MULTIPLIER = (double) settingsStore.getSetting(MAIN_CHARACTER_MULTIPLIER).getSettingValue();
-        HOUSE_SECOND_CHOICE_MATCH_MULTIPLIER = (double) settingsStore.getSetting(HOUSE_SECOND_CHOICE_MULTIPLIER).getSettingValue();
-        HOUSE_THIRD_CHOICE_MATCH_MULTIPLIER = (double) settingsStore.getSetting(HOUSE_THIRD_CHOICE_MULTIPLIER).getSettingValue();
-        HOUSE_FOURTH_CHOICE_MATCH_MULTIPLIER = (double) settingsStore.getSetting(HOUSE_FOURTH_CHOICE_MULTIPLIER).getSettingValue();
-
-        logger.debug("Matchmaker settings loaded:");
-        logger.debug("HOUSE_MATCH_BONUS: {}", HOUSE_MATCH_BONUS);
-        logger.debug("BUDDY_MATCH_BONUS: {}", BUDDY_MATCH_BONUS);
-        logger.debug("BLACKLIST_MATCH_BONUS: {}", BLACKLIST_MATCH_BONUS);
-        logger.debug("RECENCY_GRUDGE_PERIOD: {}", RECENCY_GRUDGE_PERIOD);
-        logger.debug("MAX_REUNION_MATCH_BONUS: {}", MAX_REUNION_MATCH_BONUS);
-        logger.debug("MAIN_CHARACTER_MATCH_MULTIPLIER: {}", MAIN_CHARACTER_MATCH_MULTIPLIER);
-        logger.debug("HOUSE_SECOND_CHOICE_MATCH_MULTIPLIER: {}", HOUSE_SECOND_CHOICE_MATCH_MULTIPLIER);
-        logger.debug("HOUSE_THIRD_CHOICE_MATCH_MULTIPLIER: {}", HOUSE_THIRD_CHOICE_MATCH_MULTIPLIER);
-        logger.debug("HOUSE_FOURTH_CHOICE_MATCH_MULTIPLIER: {}", HOUSE_FOURTH_CHOICE_MATCH_MULTIPLIER);
+        this.scorer = new MatchScorer(store.getSettingsStore());
+        this.relationships = store.getPlayerStore().getRelationshipIndex();
+        this.seed = Long.getLong(SEED_PROPERTY, DEFAULT_SEED);
+        this.asOf = parseAsOf(System.getProperty(AS_OF_PROPERTY));
+        String journalDirectory = System.getProperty(JOURNAL_DIRECTORY_PROPERTY);
+        this.journalDirectory = journalDirectory != null && !journalDirectory.isBlank() ? Path.of(journalDirectory) : null;
+        if (this.journalDirectory != null) {
+            logger.info("Journaling every match to '{}' with seed {}.", this.journalDirectory, seed);
+        }
         logger.info("Matchmaker initialised with all settings.");
     }
 
     public List<Group> match() {
+        this.waitlist = List.of();
+        boolean journaling = journalDirectory != null;
         logger.info("Matchmaking started for {} players and {} groups.",
                 (players != null ? players.size() : 0), (groups != null ? groups.size() : 0));
         if (players == null || groups == null || players.isEmpty() || groups.isEmpty()) {
@@ -110,268 +93,373 @@ public class Matchmaker {
             return this.groups;
         }
 
-        runOptimalHouseMatch();
-        applyHolisticSwaps();
-
-        logger.info("Matchmaking finished.");
-        return this.groups;
-    }
-
-    private void runOptimalHouseMatch() {
-        logger.info("Running optimal house match...");
-        int numPlayers = this.players.size();
-        int numGroups = this.groups.size();
-        int baseSize = numPlayers / numGroups;
-        int remainder = numPlayers % numGroups;
-        logger.debug("Calculating group sizes. {} players, {} groups. Base size: {}, Remainder: {}", numPlayers, numGroups, baseSize, remainder);
-
-        List<Integer> groupSizes = new ArrayList<>();
-        for (int i = 0; i < numGroups; i++) {
-            groupSizes.add(baseSize + (i < remainder ? 1 : 0));
-        }
-        int totalSlots = groupSizes.stream().mapToInt(Integer::intValue).sum();
-        logger.debug("Total available slots: {}. Group sizes: {}", totalSlots, groupSizes);
-
-        if (numPlayers > totalSlots) {
-            logger.error("Matchmaking error: More players ({}) than available slots ({}).", numPlayers, totalSlots);
-            return;
+        LocalDate asOf = runDate();
+        long fingerprint = MatchResultCache.fingerprint(scorer, asOf, players, groups, dungeonMasters);
+        // A journaled run has to actually run, so it never comes from the cache.
+        MatchResultCache.CachedResult cached = journaling ? null : resultCache.get(fingerprint);
+        List<Player> restoredWaitlist = cached != null ? MatchResultCache.restore(cached, groups, players, dungeonMasters) : null;
+        if (restoredWaitlist != null) {
+            this.waitlist = restoredWaitlist;
+            logger.info("Matchmaking finished from cache. {} players waitlisted.", waitlist.size());
+            return this.groups;
         }
+        List<Group> openGroups = groups.stream().filter(group -> group.getDungeonMaster() == null).toList();
 
-        List<Integer> slotToGroupMap = new ArrayList<>();
-        for (int i = 0; i < numGroups; i++) {
-            for (int j = 0; j < groupSizes.get(i); j++) {
-                slotToGroupMap.add(i);
+        // A journaled run is solved whole, however big, so that every journal can be replayed.
+        if (!journaling && players.size() >= DECOMPOSITION_THRESHOLD && groups.size() > 1) {
+            matchDecomposed(asOf);
+        } else {
+            MatchSnapshot snapshot = createSnapshot(players, groups);
+            int[] groupIndices = GroupAssignment.allGroups(snapshot);
+            MatchJournal journal = journaling ? new MatchJournal(seed, scorer.getWeightsVersion(), snapshot, groupIndices) : null;
+            GroupAssignment assignment = solve(snapshot, groupIndices, dungeonMasters, journal);
+            if (assignment == null) {
+                logger.info("Matchmaking finished without a result.");
+                return this.groups;
+            }
+            assignment.applyToGroups();
+            this.waitlist = assignment.getUnseatedPlayers();
+            if (journal != null) {
+                journal.finish(assignment.totalScore());
+                saveJournal(journal);
             }
         }
 
-        LinearSumAssignment assignment = new LinearSumAssignment();
+        MatchResultCache.CachedResult result = MatchResultCache.capture(groups, openGroups, waitlist);
+        resultCache.put(fingerprint, result);
+        // Auto-populate keeps the DMs it handed out, so the next run starts from exactly this state.
+        List<Player> remainingDms = dungeonMasters == null ? null : dungeonMasters.stream()
+                .filter(dm -> !result.dungeonMasters().containsValue(dm.getUuid()))
+                .toList();
+        resultCache.put(MatchResultCache.fingerprint(scorer, asOf, players, groups, remainingDms), result);
+        logger.info("Matchmaking finished. {} players waitlisted.", waitlist.size());
+        return this.groups;
+    }
+
+    /**
+     * The convention-sized version of {@link #match()}. The roster is split into partitions of social
+     * clusters with similar houses, every partition is solved on its own in parallel, and afterwards
+     * neighbouring partitions get one bounded chance to swap players across their border.
+     * Each step only ever sees a partition or two, so the run time grows about linearly with attendance.
+     */
+    private void matchDecomposed(LocalDate asOf) {
+        List<AttendeePartitioner.Partition> partitions = new AttendeePartitioner(scorer, asOf)
+                .partition(players, groups, PARTITION_SIZE);
+
+        int threads = Math.max(1, Math.min(partitions.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
         try {
-            logger.debug("Building cost matrix for {} players and {} total slots.", numPlayers, totalSlots);
-            for (int i = 0; i < numPlayers; i++) {
-                for (int j = 0; j < totalSlots; j++) {
-                    Player player = this.players.get(i);
-                    int groupIndex = slotToGroupMap.get(j);
-                    Group group = this.groups.get(groupIndex);
-                    double score = initialHouseScore(player, group);
-                    double cost = MAX_INITIAL_SCORE - score;
-                    logger.trace("Cost for Player '{}' -> Group '{}' (Slot {}): {} (Score: {})", player.getName(), group.getUuid(), j, cost, score);
-                    assignment.addArcWithCost(i, j, (long) cost);
+            List<Future<GroupAssignment>> futures = new ArrayList<>();
+            for (AttendeePartitioner.Partition partition : partitions) {
+                MatchSnapshot snapshot = new MatchSnapshot(scorer, partition.players(), partition.groups(), asOf, relationships);
+                // DMs are handed out afterwards, one partition at a time, so no DM ends up at two tables.
+                futures.add(executor.submit(() -> solve(snapshot, GroupAssignment.allGroups(snapshot), null)));
+            }
+
+            List<Player> freeDms = dungeonMasters != null ? new ArrayList<>(dungeonMasters) : new ArrayList<>();
+            Map<UUID, Group> seats = new ConcurrentHashMap<>();
+            for (Future<GroupAssignment> future : futures) {
+                GroupAssignment assignment = future.get();
+                if (assignment == null) {
+                    continue;
+                }
+                MatchSnapshot snapshot = assignment.getSnapshot();
+                if (!freeDms.isEmpty()) {
+                    Map<Group, Player> assignedDms = new DungeonMasterAssigner(snapshot).assign(assignment, freeDms);
+                    if (!assignedDms.isEmpty()) {
+                        freeDms.removeAll(assignedDms.values());
+                        applyHolisticSwaps(assignment);
+                    }
+                }
+                for (int p = 0; p < snapshot.getPlayerCount(); p++) {
+                    if (assignment.groupOf(p) != -1) {
+                        seats.put(snapshot.getPlayer(p).getUuid(), snapshot.getGroup(assignment.groupOf(p)));
+                    }
                 }
             }
 
-            LinearSumAssignment.Status solveStatus = assignment.solve();
-            logger.info("LinearSumAssignment solve status: {}", solveStatus);
-            if (solveStatus == LinearSumAssignment.Status.OPTIMAL) {
-                logger.info("Optimal house match found. Assigning players to groups.");
-                for (int i = 0; i < numPlayers; i++) {
-                    int slotIndex = assignment.getRightMate(i);
-                    if (slotIndex != -1) {
-                        Player player = this.players.get(i);
-                        int groupIndex = slotToGroupMap.get(slotIndex);
-                        this.groups.get(groupIndex).addPartyMember(player);
-                        logger.debug("Assigned player '{}' to group '{}' (slot index {}).", player.getName(), this.groups.get(groupIndex).getUuid(), slotIndex);
-                    } else {
-                        logger.warn("Player '{}' (index {}) was not assigned a slot.", this.players.get(i).getName(), i);
+            Map<Group, Integer> groupPartition = new IdentityHashMap<>();
+            for (int i = 0; i < partitions.size(); i++) {
+                for (Group group : partitions.get(i).groups()) {
+                    groupPartition.put(group, i);
+                }
+            }
+            // Even borders first, then odd ones, so the repairs running side by side never share a partition.
+            for (int parity = 0; parity < 2; parity++) {
+                // A repair moves players between partitions, so look up who sits where before every pass.
+                List<List<Player>> seated = new ArrayList<>();
+                for (int i = 0; i < partitions.size(); i++) {
+                    seated.add(new ArrayList<>());
+                }
+                for (Player player : players) {
+                    Group group = seats.get(player.getUuid());
+                    if (group != null) {
+                        seated.get(groupPartition.get(group)).add(player);
                     }
                 }
-            } else {
-                logger.error("Optimal house match could not be found. Solve status: {}", solveStatus);
+                List<Future<Integer>> repairs = new ArrayList<>();
+                for (int i = parity; i + 1 < partitions.size(); i += 2) {
+                    List<Player> borderPlayers = new ArrayList<>(seated.get(i));
+                    borderPlayers.addAll(seated.get(i + 1));
+                    List<Group> borderGroups = new ArrayList<>(partitions.get(i).groups());
+                    borderGroups.addAll(partitions.get(i + 1).groups());
+                    repairs.add(executor.submit(() -> repairBoundary(borderPlayers, borderGroups, seats, asOf)));
+                }
+                int swaps = 0;
+                for (Future<Integer> repair : repairs) {
+                    swaps += repair.get();
+                }
+                logger.info("Boundary repair pass {} made {} swaps across {} borders.", parity + 1, swaps, repairs.size());
             }
+
+            List<Player> unseated = new ArrayList<>();
+            for (Player player : players) {
+                Group group = seats.get(player.getUuid());
+                if (group != null) {
+                    group.addPartyMember(player);
+                    group.setCharacter(player, scorer.bestCharacter(player, group.getHouses()));
+                } else {
+                    unseated.add(player);
+                }
+            }
+            this.waitlist = unseated;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Matchmaking was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Matchmaking failed: " + e.getCause().getMessage(), e.getCause());
         } finally {
-            assignment.delete();
+            executor.shutdown();
         }
     }
 
-    private void applyHolisticSwaps() {
-        logger.info("Applying holistic swaps to improve social scores...");
-        boolean improvementFound;
-        int iteration = 0;
-        do {
-            iteration++;
-            logger.debug("Starting swap iteration {}.", iteration);
-            improvementFound = false;
-            for (int i = 0; i < groups.size(); i++) {
-                for (int j = i + 1; j < groups.size(); j++) {
-                    Group g1 = groups.get(i);
-                    Group g2 = groups.get(j);
-                    for (Player p1 : new ArrayList<>(g1.getParty().values())) {
-                        for (Player p2 : new ArrayList<>(g2.getParty().values())) {
-                            logger.trace("Checking swap between p1 '{}' (group {}) and p2 '{}' (group {}).", p1.getName(), g1.getUuid(), p2.getName(), g2.getUuid());
-
-                            // Calculate the total "happiness" score of the two groups as they are now.
-                            double currentTotalScore = calculateTotalScoreForGroup(g1) + calculateTotalScoreForGroup(g2);
-                            // Calculate what the score would be if we swapped these two players.
-                            double newTotalScore = calculateHypotheticalTotalScore(g1, p1, p2) + calculateHypotheticalTotalScore(g2, p2, p1);
-
-                            logger.trace("Current score: {}. Hypothetical score: {}.", currentTotalScore, newTotalScore);
-                            if (newTotalScore > currentTotalScore) {
-                                g1.removePartyMember(p1);
-                                g2.removePartyMember(p2);
-                                g1.addPartyMember(p2);
-                                g2.addPartyMember(p1);
-                                logger.info("Holistic Swap: Swapped '{}' (from group {}) and '{}' (from group {}). Score improved from {} to {}.",
-                                        p1.getName(), g1.getUuid(), p2.getName(), g2.getUuid(), currentTotalScore, newTotalScore);
-                                improvementFound = true;
-                                break;
-                            }
-                        }
-                        if (improvementFound) break;
-                    }
-                    if (improvementFound) break;
-                }
-                if (improvementFound) break;
-            }
-        } while (improvementFound);
-        logger.info("Finished holistic swap iterations after {} loops. No further improvements found.", iteration);
+    /**
+     * Lets the players seated at the groups of two neighbouring partitions swap tables with each other.
+     * @return The number of swaps that were made.
+     */
+    private int repairBoundary(List<Player> borderPlayers, List<Group> borderGroups, Map<UUID, Group> seats, LocalDate asOf) {
+        MatchSnapshot snapshot = new MatchSnapshot(scorer, borderPlayers, borderGroups, asOf, relationships);
+        int[] seating = new int[borderPlayers.size()];
+        for (int p = 0; p < seating.length; p++) {
+            seating[p] = snapshot.indexOf(seats.get(snapshot.getPlayer(p).getUuid()));
+        }
+        GroupAssignment assignment = GroupAssignment.fromSeating(snapshot, GroupAssignment.allGroups(snapshot), seating);
+        int swaps = assignment.improveBySwaps();
+        for (int p = 0; p < seating.length; p++) {
+            seats.put(snapshot.getPlayer(p).getUuid(), snapshot.getGroup(assignment.groupOf(p)));
+        }
+        return swaps;
     }
 
-    private double calculateHypotheticalTotalScore(Group originalGroup, Player playerToRemove, Player playerToAdd) {
-        logger.trace("Calculating hypothetical score for group '{}' with player '{}' added and '{}' removed.", originalGroup.getUuid(), playerToAdd.getName(), playerToRemove.getName());
-        List<Player> hypotheticalParty = new ArrayList<>(originalGroup.getParty().values());
-        hypotheticalParty.remove(playerToRemove);
-        hypotheticalParty.add(playerToAdd);
+    /**
+     * Matches the players like {@link #match()}, but keeps searching around the result and returns several
+     * good seatings that differ from each other, so the organiser has something to pick from if the first
+     * one doesn't work out. DMs are still handed out, but no party is written to the groups; call
+     * {@link MatchAlternative#applyToGroups()} on the one that is picked.
+     * @param count How many alternatives to return at most.
+     * @param minMovedPlayers How many players at least must sit elsewhere between any two alternatives.
+     * @return The alternatives, best first. Empty if the players could not be seated at all.
+     */
+    public List<MatchAlternative> matchAlternatives(int count, int minMovedPlayers) {
+        logger.info("Alternative matchmaking started for {} players and {} groups. Looking for {} alternatives at least {} moves apart.",
+                (players != null ? players.size() : 0), (groups != null ? groups.size() : 0), count, minMovedPlayers);
+        if (players == null || groups == null || players.isEmpty() || groups.isEmpty() || count < 1) {
+            logger.warn("Alternative matchmaking aborted: No players or no groups provided.");
+            return List.of();
+        }
+
+        MatchSnapshot snapshot = createSnapshot(players, groups);
+        int[] groupIndices = GroupAssignment.allGroups(snapshot);
+        GroupAssignment best = solve(snapshot, groupIndices, dungeonMasters);
+        if (best == null) {
+            return List.of();
+        }
+        List<MatchAlternative> alternatives = new AlternativeSearch(snapshot, groupIndices, seed).search(best, count, minMovedPlayers);
+        for (MatchAlternative alternative : alternatives) {
+            logger.info("Alternative {}: score {} ({} players moved). {}", alternative.getRank(),
+                    alternative.getScore().total(), alternative.getMovedPlayers(), alternative.getScore());
+        }
+        return alternatives;
+    }
 
-        // --- The Fix! ---
-        // The new Group constructor needs the list of houses from the original group.
-        Group hypotheticalGroup = new Group(originalGroup.getDungeonMaster(), originalGroup.getHouses(), LocalDate.now(), null);
-        hypotheticalParty.forEach(hypotheticalGroup::addPartyMember);
+    /**
+     * Seats every player of the snapshot in the given groups and hands out DMs to the ones without.
+     * @return The finished assignment, or null if no valid seating could be found.
+     */
+    private GroupAssignment solve(MatchSnapshot snapshot, int[] groupIndices, List<Player> availableDms) {
+        return solve(snapshot, groupIndices, availableDms, null);
+    }
 
-        return calculateTotalScoreForGroup(hypotheticalGroup);
+    /**
+     * @param journal Records every move of the run, or null.
+     */
+    private GroupAssignment solve(MatchSnapshot snapshot, int[] groupIndices, List<Player> availableDms, MatchJournal journal) {
+        GroupAssignment assignment = new GroupAssignment(snapshot, groupIndices);
+        assignment.setJournal(journal);
+        if (!runOptimalHouseMatch(snapshot, assignment)) {
+            return null;
+        }
+        applyHolisticSwaps(assignment);
+        assignDungeonMasters(snapshot, assignment, availableDms);
+        return assignment;
     }
 
-    private double calculateTotalScoreForGroup(Group group) {
-        logger.trace("Calculating total score for group '{}' with {} members.", group.getUuid(), group.getParty().size());
-        double totalScore = 0;
-        List<Player> party = new ArrayList<>(group.getParty().values());
+    private void assignDungeonMasters(MatchSnapshot snapshot, GroupAssignment assignment, List<Player> availableDms) {
+        if (availableDms != null && !availableDms.isEmpty()) {
+            Map<Group, Player> assignedDms = new DungeonMasterAssigner(snapshot).assign(assignment, availableDms);
+            if (!assignedDms.isEmpty()) {
+                // The new DMs change the DM blacklist scores, so give the players one more chance to settle.
+                applyHolisticSwaps(assignment);
+            }
+        }
+    }
 
-        // Part 1: Calculate Social Score between players
-        for (int i = 0; i < party.size(); i++) {
-            for (int j = i + 1; j < party.size(); j++) {
-                Player p1 = party.get(i);
-                Player p2 = party.get(j);
-                double pairScore = 0;
+    /**
+     * @return A tracker that scores groups with this matchmaker's weights, for following manual edits.
+     */
+    public GroupScoreTracker createScoreTracker() {
+        return new GroupScoreTracker(scorer);
+    }
 
-                if (p1.getBlacklist().contains(p2.getUuid()) || p2.getBlacklist().contains(p1.getUuid())) {
-                    pairScore += BLACKLIST_MATCH_BONUS;
-                }
-                if (p1.getBuddylist().contains(p2.getUuid()) || p2.getBuddylist().contains(p1.getUuid())) {
-                    pairScore += BUDDY_MATCH_BONUS;
-                }
+    /**
+     * Freezes the given players and groups into a snapshot with all of their scores precomputed.
+     * @param players The players to be seated.
+     * @param groups The groups to seat them in.
+     * @return A snapshot that the solvers and trackers can share.
+     */
+    public MatchSnapshot createSnapshot(List<Player> players, List<Group> groups) {
+        return new MatchSnapshot(scorer, players, groups, runDate(), relationships);
+    }
 
-                // Assuming p1.getPlayerLog() now returns Map<UUID, LocalDate>
-                LocalDate lastPlayed = p1.getPlayerLog().get(p2.getUuid());
-                if (lastPlayed != null) {
-                    long weeksAgo = ChronoUnit.WEEKS.between(lastPlayed, LocalDate.now());
-                    if (weeksAgo < RECENCY_GRUDGE_PERIOD) {
-                        // Apply a sliding scale penalty. Max penalty for playing this week.
-                        double reunionPenalty = MAX_REUNION_MATCH_BONUS * (1.0 - ((double) weeksAgo / RECENCY_GRUDGE_PERIOD));
-                        pairScore += MAX_REUNION_MATCH_BONUS - reunionPenalty;
-                        logger.trace("... (p1 '{}', p2 '{}'): Recency grudge applied. Weeks ago: {}. Penalty: {}", p1.getName(), p2.getName(), weeksAgo, reunionPenalty);
-                    } else {
-                        pairScore += MAX_REUNION_MATCH_BONUS;
-                    }
-                } else {
-                    pairScore += MAX_REUNION_MATCH_BONUS; // Max bonus for never having played together
-                }
-                logger.trace("... (p1 '{}', p2 '{}'): Pair score: {}", p1.getName(), p2.getName(), pairScore);
-                totalScore += pairScore;
-            } // <-- End of the player-pair loop
-        } // <-- End of the outer player loop
-
-        // Part 2: Calculate DM Blacklist score (now runs just once per group!)
-        if (group.getDungeonMaster() != null) {
-            for (Player player : party) {
-                if (player.getDmBlacklist().contains(group.getDungeonMaster().getUuid())) {
-                    totalScore += BLACKLIST_MATCH_BONUS;
-                    logger.trace("... (p '{}', DM '{}'): DM Blacklist bonus applied.", player.getName(), group.getDungeonMaster().getName());
-                }
+    private boolean runOptimalHouseMatch(MatchSnapshot snapshot, GroupAssignment groupAssignment) {
+        logger.info("Running optimal house match...");
+        int[] groupIndices = groupAssignment.getGroupIndices();
+        int numPlayers = snapshot.getPlayerCount();
+        int numGroups = groupIndices.length;
+        int[][] capacities = groupCapacities(snapshot, groupIndices);
+        int[] minSizes = capacities[0];
+        int[] maxSizes = capacities[1];
+
+        // Every group gets its required seats first and its optional ones after. Whoever doesn't fit
+        // anywhere goes to the waitlist, which costs more than any seat.
+        List<Integer> slotToGroupMap = new ArrayList<>();
+        List<Boolean> slotIsRequired = new ArrayList<>();
+        for (int i = 0; i < numGroups; i++) {
+            for (int j = 0; j < maxSizes[i]; j++) {
+                slotToGroupMap.add(groupIndices[i]);
+                slotIsRequired.add(j < minSizes[i]);
             }
-        } else {
-            logger.warn("Group {} has no DM. Skipping DM blacklist check.", group.getUuid());
+        }
+        int totalSlots = slotToGroupMap.size();
+        int waitlistSlots = Math.max(0, numPlayers - totalSlots);
+        int requiredSlots = Arrays.stream(minSizes).sum();
+        logger.debug("Group sizes. Minimum: {}, maximum: {}. {} players for {} seats, {} of them required.",
+                Arrays.toString(minSizes), Arrays.toString(maxSizes), numPlayers, totalSlots, requiredSlots);
+        if (waitlistSlots > 0) {
+            logger.warn("More players ({}) than available seats ({}). {} players will be waitlisted.", numPlayers, totalSlots, waitlistSlots);
+        }
+        if (numPlayers < requiredSlots) {
+            logger.warn("Fewer players ({}) than required seats ({}). Some groups will be below their minimum size.", numPlayers, requiredSlots);
         }
 
-
-        // Part 3: Add House Preference Score
-        for (Player player : party) {
-            totalScore += getTieredHouseScore(player, group);
+        logger.debug("Building cost matrix for {} players, {} seats and {} waitlist places.", numPlayers, totalSlots, waitlistSlots);
+        AssignmentProblem problem = new AssignmentProblem(numPlayers, totalSlots + waitlistSlots);
+        for (int i = 0; i < numPlayers; i++) {
+            for (int j = 0; j < totalSlots; j++) {
+                int groupIndex = slotToGroupMap.get(j);
+                double score = snapshot.houseScore(i, groupIndex);
+                double cost = (slotIsRequired.get(j) ? MAX_INITIAL_SCORE : 2 * MAX_INITIAL_SCORE) - score;
+                logger.trace("Cost for Player '{}' -> Group '{}' (Slot {}): {} (Score: {})", snapshot.getPlayer(i).getName(), snapshot.getGroup(groupIndex).getUuid(), j, cost, score);
+                problem.setCost(i, j, (long) cost);
+            }
+            long waitlistCost = waitlistCost(snapshot.getPlayer(i), snapshot.getAsOf());
+            for (int j = 0; j < waitlistSlots; j++) {
+                problem.setCost(i, totalSlots + j, waitlistCost);
+            }
         }
 
-        logger.trace("Total score for group '{}' calculated: {}", group.getUuid(), totalScore);
-        return totalScore;
+        AssignmentResult result = AssignmentSolver.get().solve(problem);
+        logger.info("House match solve status: {}", result.status());
+        if (!result.isOptimal()) {
+            logger.error("Optimal house match could not be found. Solve status: {}", result.status());
+            return false;
+        }
+        logger.info("Optimal house match found. Assigning players to groups.");
+        for (int i = 0; i < numPlayers; i++) {
+            int slotIndex = result.getRightMate(i);
+            if (slotIndex >= 0 && slotIndex < totalSlots) {
+                groupAssignment.assign(i, slotToGroupMap.get(slotIndex));
+            } else {
+                logger.info("Player '{}' (index {}) was put on the waitlist.", snapshot.getPlayer(i).getName(), i);
+            }
+        }
+        return true;
     }
 
-    private double getTieredHouseScore(Player player, Group group) {
-        if (player.getCharacters().isEmpty()) {
-            logger.error("Player '{}' (UUID: {}) has no characters. Cannot calculate house score. Returning default.", player.getName(), player.getUuid());
-            return HOUSE_DEFAULT_SCORE;
+    /**
+     * Works out how many players each group must and may take. Groups without limits of their own
+     * share the players evenly, like before, and also take in whoever a smaller capped group leaves over.
+     * @return The minimum sizes in [0] and the maximum sizes in [1], in the order of the group indices.
+     */
+    private int[][] groupCapacities(MatchSnapshot snapshot, int[] groupIndices) {
+        List<Group> sessionGroups = new ArrayList<>();
+        for (int groupIndex : groupIndices) {
+            sessionGroups.add(snapshot.getGroup(groupIndex));
         }
-        logger.trace("... Calculating tiered house score for player '{}'.", player.getName());
-
-        double bestScoreForPlayer = HOUSE_DEFAULT_SCORE;
-        List<House> groupHouses = group.getHouses(); // Get the list of themes for the group
-
-        // Iterate through all of the player's characters to find their best possible score
-        for (Character character : player.getCharacters()) {
-            House playerHouse = character.getHouse();
-            double bestScoreForThisCharacter = 0;
-            logger.trace("... ... Checking character '{}' (House: {}).", character.getName(), playerHouse);
+        return groupCapacities(snapshot.getPlayerCount(), sessionGroups);
+    }
 
-            // First, check if this character is a perfect match for ANY of the group's themes.
-            boolean isPerfectMatch = groupHouses.contains(playerHouse);
+    /**
+     * The same as above, for the given number of players and groups.
+     */
+    private static int[][] groupCapacities(int numPlayers, List<Group> groups) {
+        int numGroups = groups.size();
+        int baseSize = numPlayers / numGroups;
+        int remainder = numPlayers % numGroups;
 
-            if (isPerfectMatch) {
-                bestScoreForThisCharacter = HOUSE_MATCH_BONUS;
-                logger.trace("... ... ... Perfect house match found. Score: {}", bestScoreForThisCharacter);
+        int[] minSizes = new int[numGroups];
+        int[] maxSizes = new int[numGroups];
+        int leftOver = 0;
+        int uncappedGroups = 0;
+        for (int i = 0; i < numGroups; i++) {
+            Group group = groups.get(i);
+            int evenShare = baseSize + (i < remainder ? 1 : 0);
+            minSizes[i] = group.getMinSize() > 0 ? group.getMinSize() : evenShare;
+            if (group.getMaxSize() > 0) {
+                maxSizes[i] = group.getMaxSize();
+                minSizes[i] = Math.min(minSizes[i], maxSizes[i]);
+                leftOver += Math.max(0, evenShare - maxSizes[i]);
             } else {
-                // If not a perfect match, find the best possible tiered score.
-                double bestTieredScore = HOUSE_DEFAULT_SCORE;
-                List<House> preferences = housePriorityMap.get(playerHouse);
-                if (preferences != null) {
-                    // Check against each of the group's houses to find the best secondary match.
-                    for (House groupHouse : groupHouses) {
-                        double currentTieredScore = 0;
-                        int priorityIndex = preferences.indexOf(groupHouse);
-                        switch (priorityIndex) {
-                            case 0:
-                                currentTieredScore = HOUSE_MATCH_BONUS * HOUSE_SECOND_CHOICE_MATCH_MULTIPLIER;
-                                break;
-                            case 1:
-                                currentTieredScore = HOUSE_MATCH_BONUS * HOUSE_THIRD_CHOICE_MATCH_MULTIPLIER;
-                                break;
-                            case 2:
-                                currentTieredScore = HOUSE_MATCH_BONUS * HOUSE_FOURTH_CHOICE_MATCH_MULTIPLIER;
-                                break;
-                            default:
-                                currentTieredScore = HOUSE_DEFAULT_SCORE; // Changed from HOUSE_MATCH_BONUS, as default is 1.0
-                                break;
-                        }
-                        if (currentTieredScore > bestTieredScore) {
-                            bestTieredScore = currentTieredScore;
-                            logger.trace("... ... ... Tiered match found: GroupHouse '{}', PrefIndex '{}', Score '{}'.", groupHouse, priorityIndex, currentTieredScore);
-                        }
-                    }
-                }
-                bestScoreForThisCharacter = bestTieredScore;
+                maxSizes[i] = -1;
+                uncappedGroups++;
             }
-
-            // Add the main character bonus if this is their first character
-            if (character.isMain()) {
-                bestScoreForThisCharacter += MAIN_CHARACTER_MATCH_MULTIPLIER;
-                logger.trace("... ... ... Added main character bonus ({}). New score: {}", MAIN_CHARACTER_MATCH_MULTIPLIER, bestScoreForThisCharacter);
-            }
-
-            // The player's overall best score is the best they can get from any of their characters.
-            if (bestScoreForThisCharacter > bestScoreForPlayer) {
-                bestScoreForPlayer = bestScoreForThisCharacter;
+        }
+        int extraSeats = uncappedGroups > 0 ? (leftOver + uncappedGroups - 1) / uncappedGroups : 0;
+        for (int i = 0; i < numGroups; i++) {
+            if (maxSizes[i] == -1) {
+                int evenShare = baseSize + (i < remainder ? 1 : 0);
+                maxSizes[i] = Math.max(minSizes[i], evenShare) + extraSeats;
             }
         }
+        return new int[][] { minSizes, maxSizes };
+    }
 
-        logger.trace("... Player '{}': Best score from all characters: {}.", player.getName(), bestScoreForPlayer);
-        return bestScoreForPlayer;
+    /**
+     * The longer a player hasn't been seen, the more it costs to leave them waiting. Whoever played most
+     * recently goes to the waitlist first; the table fit only breaks ties. Players never seen come first.
+     */
+    private long waitlistCost(Player player, LocalDate asOf) {
+        long daysAway = player.getLastSeen() == null
+                ? MAX_WAITLIST_DAYS
+                : Math.min(MAX_WAITLIST_DAYS, Math.max(0, ChronoUnit.DAYS.between(player.getLastSeen(), asOf)));
+        return (long) (4 * MAX_INITIAL_SCORE) * (1 + daysAway);
     }
 
-    private double initialHouseScore(Player player, Group group) {
-        return getTieredHouseScore(player, group);
+    private void applyHolisticSwaps(GroupAssignment assignment) {
+        logger.info("Applying holistic swaps to improve social scores...");
+        double scoreBefore = assignment.totalScore();
+        int swaps = assignment.improveBySwaps();
+        logger.info("Finished holistic swaps after {} swaps. Score improved from {} to {}.", swaps, scoreBefore, assignment.totalScore());
     }
 
     public List<Group> getGroups() {
@@ -393,6 +481,71 @@ public class Matchmaker {
         if (players != null) {
             logger.debug("Setting {} players for matchmaker.", players.size());
         }
-        this.players = players;
+        this.players = players != null ? sortedByUuid(players) : null;
+    }
+
+    /**
+     * @return The players that didn't fit into any group in the last {@link #match()}.
+     */
+    public List<Player> getWaitlist() {
+        return waitlist;
+    }
+
+    /**
+     * Forgets every cached result, e.g. after settings were changed in a way the fingerprint can't see.
+     */
+    public void clearResultCache() {
+        resultCache.clear();
+    }
+
+    public List<Player> getDungeonMasters() {
+        return dungeonMasters;
+    }
+
+    /**
+     * Sets the DMs that may be handed to groups which don't have a DM yet.
+     * Groups that already have a DM keep them.
+     */
+    public void setDungeonMasters(List<Player> dungeonMasters) {
+        if (dungeonMasters != null) {
+            logger.debug("Setting {} DMs for matchmaker.", dungeonMasters.size());
+        }
+        this.dungeonMasters = dungeonMasters != null ? sortedByUuid(dungeonMasters) : null;
+    }
+
+    /**
+     * Writes the journal next to the ones of earlier runs. A journal that can't be saved doesn't fail the match.
+     */
+    private void saveJournal(MatchJournal journal) {
+        Path path = journalDirectory.resolve("match-" + System.currentTimeMillis() + ".mmj");
+        try {
+            Files.createDirectories(journalDirectory);
+            journal.save(path);
+        } catch (IOException e) {
+            logger.warn("Could not save the match journal to '{}'.", path, e);
+        }
+    }
+
+    private static LocalDate parseAsOf(String asOf) {
+        if (asOf == null || asOf.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(asOf.trim());
+        } catch (DateTimeParseException e) {
+            logger.warn("Ignoring {}='{}', it is not a date like 2024-09-17.", AS_OF_PROPERTY, asOf);
+            return null;
+        }
+    }
+
+    private LocalDate runDate() {
+        return asOf != null ? asOf : LocalDate.now();
+    }
+
+    /**
+     * The engine walks players in UUID order, so the order they were handed over in never changes a result.
+     */
+    private static List<Player> sortedByUuid(List<Player> players) {
+        return players.stream().sorted(Comparator.comparing(Player::getUuid)).toList();
     }
 }
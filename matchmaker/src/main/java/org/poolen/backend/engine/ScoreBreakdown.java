@@ -0,0 +1,20 @@
+package org.poolen.backend.engine;
+
+/**
+ * Where the score of a group (or a whole seating) comes from.
+ * @param house What the players' characters add for fitting the group's themes.
+ * @param social What the pairs at the table add: buddies, blacklists and how long ago they played together.
+ * @param dungeonMaster What the players' DM blacklists take away.
+ */
+public record ScoreBreakdown(double house, double social, double dungeonMaster) {
+
+    public static final ScoreBreakdown ZERO = new ScoreBreakdown(0, 0, 0);
+
+    public double total() {
+        return house + social + dungeonMaster;
+    }
+
+    public ScoreBreakdown plus(ScoreBreakdown other) {
+        return new ScoreBreakdown(house + other.house, social + other.social, dungeonMaster + other.dungeonMaster);
+    }
+}
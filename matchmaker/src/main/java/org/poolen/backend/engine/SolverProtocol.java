@@ -0,0 +1,105 @@
+package org.poolen.backend.engine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The binary protocol between the application and the solver worker, over a loopback socket.
+ * Everything is big-endian, as written by {@link DataOutputStream}.
+ * <pre>
+ * handshake (worker to app): int magic, int version, long token
+ * request   (app to worker): long id, int leftCount, int rightCount, long[leftCount * rightCount] costs
+ * response  (worker to app): long id, byte status, long optimalCost, int count, int[count] rightMates
+ * </pre>
+ * Requests carry an id so several can be in flight at once and answered in any order.
+ */
+final class SolverProtocol {
+
+    static final int MAGIC = 0x4D4D5357; // "MMSW"
+    static final int VERSION = 1;
+
+    record Request(long id, AssignmentProblem problem) {
+    }
+
+    record Response(long id, AssignmentResult result) {
+    }
+
+    private SolverProtocol() {
+        // This class should not be instantiated.
+    }
+
+    static void writeHandshake(DataOutputStream out, long token) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(token);
+        out.flush();
+    }
+
+    /**
+     * Reads the worker's handshake and checks it is the worker that was started with this token.
+     */
+    static void readHandshake(DataInputStream in, long expectedToken) throws IOException {
+        int magic = in.readInt();
+        int version = in.readInt();
+        long token = in.readLong();
+        if (magic != MAGIC || version != VERSION) {
+            throw new IOException("Unexpected solver worker handshake: magic " + Integer.toHexString(magic) + ", version " + version + ".");
+        }
+        if (token != expectedToken) {
+            throw new IOException("The solver worker presented the wrong token.");
+        }
+    }
+
+    static void writeRequest(DataOutputStream out, Request request) throws IOException {
+        AssignmentProblem problem = request.problem();
+        out.writeLong(request.id());
+        out.writeInt(problem.getLeftCount());
+        out.writeInt(problem.getRightCount());
+        for (long cost : problem.getCosts()) {
+            out.writeLong(cost);
+        }
+        out.flush();
+    }
+
+    static Request readRequest(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        int leftCount = in.readInt();
+        int rightCount = in.readInt();
+        if (leftCount < 0 || rightCount < 0 || (long) leftCount * rightCount > Integer.MAX_VALUE) {
+            throw new IOException("Invalid problem size " + leftCount + "x" + rightCount + ".");
+        }
+        long[] costs = new long[leftCount * rightCount];
+        for (int i = 0; i < costs.length; i++) {
+            costs[i] = in.readLong();
+        }
+        return new Request(id, new AssignmentProblem(leftCount, rightCount, costs));
+    }
+
+    static void writeResponse(DataOutputStream out, Response response) throws IOException {
+        AssignmentResult result = response.result();
+        out.writeLong(response.id());
+        out.writeByte(result.status().ordinal());
+        out.writeLong(result.optimalCost());
+        out.writeInt(result.rightMates().length);
+        for (int mate : result.rightMates()) {
+            out.writeInt(mate);
+        }
+        out.flush();
+    }
+
+    static Response readResponse(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        int status = in.readUnsignedByte();
+        long optimalCost = in.readLong();
+        int count = in.readInt();
+        if (status >= AssignmentResult.Status.values().length || count < 0) {
+            throw new IOException("Malformed solver worker response for request " + id + ".");
+        }
+        int[] rightMates = new int[count];
+        for (int i = 0; i < count; i++) {
+            rightMates[i] = in.readInt();
+        }
+        return new Response(id, new AssignmentResult(AssignmentResult.Status.values()[status], rightMates, optimalCost));
+    }
+}
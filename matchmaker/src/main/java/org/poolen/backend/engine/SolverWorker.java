@@ -0,0 +1,91 @@
+package org.poolen.backend.engine;
+
+import com.google.ortools.Loader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The entry point of the solver worker JVM, started by {@link SolverWorkerClient}. It connects back to
+ * the application on the given loopback port, then solves every problem it is sent on a pool of threads
+ * and writes the answers back as they finish. It exits as soon as the application hangs up.
+ * <p>
+ * Arguments: the port to connect to and the token to identify itself with.
+ */
+public final class SolverWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(SolverWorker.class);
+
+    private SolverWorker() {
+        // This class should not be instantiated.
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: SolverWorker <port> <token>");
+            System.exit(2);
+        }
+        int port = Integer.parseInt(args[0]);
+        long token = Long.parseLong(args[1]);
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        Loader.loadNativeLibraries();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "solver-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AssignmentSolver solver = new LocalAssignmentSolver();
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            SolverProtocol.writeHandshake(out, token);
+            logger.info("Solver worker connected on port {} with {} threads.", port, threads);
+
+            while (true) {
+                SolverProtocol.Request request;
+                try {
+                    request = SolverProtocol.readRequest(in);
+                } catch (EOFException e) {
+                    logger.info("The application closed the connection. Solver worker shutting down.");
+                    break;
+                }
+                pool.execute(() -> answer(solver, request, out));
+            }
+        } catch (IOException e) {
+            logger.error("Solver worker lost its connection to the application.", e);
+        } finally {
+            pool.shutdownNow();
+        }
+        System.exit(0);
+    }
+
+    private static void answer(AssignmentSolver solver, SolverProtocol.Request request, DataOutputStream out) {
+        AssignmentResult result;
+        try {
+            result = solver.solve(request.problem());
+        } catch (RuntimeException e) {
+            logger.error("Solve of request {} failed.", request.id(), e);
+            result = AssignmentResult.failed();
+        }
+        try {
+            synchronized (out) {
+                SolverProtocol.writeResponse(out, new SolverProtocol.Response(request.id(), result));
+            }
+        } catch (IOException e) {
+            logger.warn("Could not send the answer to request {}.", request.id(), e);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package org.poolen.backend.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends assignment problems to a {@link SolverWorker} running in its own JVM. The worker is started on
+ * demand, and if it dies or takes longer than {@link #SOLVE_TIMEOUT_MS} to answer it is killed, started
+ * again and the solve is retried. Should that fail as well the problem is solved in this JVM after all,
+ * so a match never fails because of the worker. If the worker fails to start several times in a row,
+ * no new one is started for {@link #START_COOLDOWN_MS} and every problem is solved in this JVM meanwhile.
+ * <p>
+ * Several threads can solve at the same time; their requests share the one connection.
+ */
+class SolverWorkerClient implements AssignmentSolver, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SolverWorkerClient.class);
+    private static final int STARTUP_TIMEOUT_MS = 30_000;
+    // How often the start checks whether the worker process exited instead of connecting back.
+    private static final int STARTUP_POLL_MS = 200;
+    private static final long SOLVE_TIMEOUT_MS = 60_000;
+    private static final int MAX_ATTEMPTS = 2;
+    private static final int MAX_START_FAILURES = 3;
+    private static final long START_COOLDOWN_MS = 5 * 60_000;
+
+    private final AssignmentSolver fallback;
+    private final AtomicLong nextRequestId = new AtomicLong();
+    private final SecureRandom random = new SecureRandom();
+    private final Object lifecycleLock = new Object();
+    private Connection connection;
+    private boolean closed;
+    private int startFailures;
+    // System.nanoTime() before which no worker is started, while startFailures is at the limit.
+    private long cooldownUntil;
+
+    SolverWorkerClient(AssignmentSolver fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public AssignmentResult solve(AssignmentProblem problem) {
+        if (isCoolingDown()) {
+            logger.debug("The solver worker is cooling down. Solving {}x{} problem in process.",
+                    problem.getLeftCount(), problem.getRightCount());
+            return fallback.solve(problem);
+        }
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            Connection current = null;
+            try {
+                current = connect();
+                return current.solve(problem);
+            } catch (IOException e) {
+                logger.warn("Solver worker failed on attempt {} of {}.", attempt, MAX_ATTEMPTS, e);
+                if (current != null) {
+                    current.close();
+                }
+            }
+        }
+        logger.error("The solver worker is unavailable. Solving {}x{} problem in process instead.",
+                problem.getLeftCount(), problem.getRightCount());
+        return fallback.solve(problem);
+    }
+
+    /**
+     * @return A live connection to the worker, starting a new worker if there is none.
+     */
+    private Connection connect() throws IOException {
+        synchronized (lifecycleLock) {
+            if (closed) {
+                throw new IOException("The solver worker client has been closed.");
+            }
+            if (connection == null || !connection.isAlive()) {
+                connection = null;
+                if (isCoolingDown()) {
+                    throw new IOException("The solver worker failed to start %d times in a row.".formatted(startFailures));
+                }
+                try {
+                    connection = start();
+                    startFailures = 0;
+                } catch (IOException e) {
+                    startFailures++;
+                    if (startFailures >= MAX_START_FAILURES) {
+                        cooldownUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(START_COOLDOWN_MS);
+                        logger.error("The solver worker failed to start {} times in a row. Solving in process for the next {} s.",
+                                startFailures, START_COOLDOWN_MS / 1000);
+                    }
+                    throw e;
+                }
+            }
+            return connection;
+        }
+    }
+
+    /**
+     * @return True while no new worker may be started, after it failed to start too often.
+     */
+    private boolean isCoolingDown() {
+        synchronized (lifecycleLock) {
+            if (startFailures < MAX_START_FAILURES) {
+                return false;
+            }
+            if (System.nanoTime() - cooldownUntil < 0) {
+                return true;
+            }
+            // The cooldown is over; the next start gets one more chance before the next cooldown.
+            startFailures = MAX_START_FAILURES - 1;
+            return false;
+        }
+    }
+
+    private Connection start() throws IOException {
+        long token = random.nextLong();
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(STARTUP_POLL_MS);
+            String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+            ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    SolverWorker.class.getName(), Integer.toString(server.getLocalPort()), Long.toString(token));
+            builder.redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.INHERIT);
+            logger.info("Starting solver worker on port {}.", server.getLocalPort());
+            Process process = builder.start();
+            try {
+                Socket socket = accept(server, process);
+                socket.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+                SolverProtocol.readHandshake(in, token);
+                Connection started = new Connection(process, socket, in, out);
+                logger.info("Solver worker started (pid {}).", process.pid());
+                return started;
+            } catch (IOException e) {
+                process.destroyForcibly();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Waits for the worker to connect back, giving up as soon as its process exits rather than
+     * waiting out the whole startup timeout.
+     */
+    private static Socket accept(ServerSocket server, Process process) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STARTUP_TIMEOUT_MS);
+        while (true) {
+            try {
+                return server.accept();
+            } catch (SocketTimeoutException e) {
+                if (!process.isAlive()) {
+                    throw new IOException("The solver worker exited with code %d before connecting.".formatted(process.exitValue()));
+                }
+                if (System.nanoTime() - deadline >= 0) {
+                    throw new IOException("The solver worker did not connect within %d ms.".formatted(STARTUP_TIMEOUT_MS), e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (lifecycleLock) {
+            closed = true;
+            if (connection != null) {
+                connection.close();
+                connection = null;
+            }
+        }
+    }
+
+    /**
+     * One running worker and the requests waiting on it.
+     */
+    private final class Connection {
+
+        private final Process process;
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final Map<Long, CompletableFuture<AssignmentResult>> pending = new ConcurrentHashMap<>();
+        private volatile boolean alive = true;
+
+        Connection(Process process, Socket socket, DataInputStream in, DataOutputStream out) {
+            this.process = process;
+            this.socket = socket;
+            this.in = in;
+            this.out = out;
+            Thread reader = new Thread(this::readResponses, "solver-worker-reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        AssignmentResult solve(AssignmentProblem problem) throws IOException {
+            long id = nextRequestId.incrementAndGet();
+            CompletableFuture<AssignmentResult> future = new CompletableFuture<>();
+            pending.put(id, future);
+            try {
+                synchronized (out) {
+                    SolverProtocol.writeRequest(out, new SolverProtocol.Request(id, problem));
+                }
+                // The worker may have died between the check and the put, in which case nobody completes the future.
+                if (!alive) {
+                    future.completeExceptionally(new IOException("The solver worker stopped."));
+                }
+                return future.get(SOLVE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                logger.warn("The solver worker (pid {}) did not answer within {} ms. Killing it.", process.pid(), SOLVE_TIMEOUT_MS);
+                kill();
+                throw new IOException("The solver worker timed out.", e);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the solver worker.", e);
+            } finally {
+                pending.remove(id);
+            }
+        }
+
+        boolean isAlive() {
+            return alive && process.isAlive();
+        }
+
+        private void readResponses() {
+            try {
+                while (true) {
+                    SolverProtocol.Response response = SolverProtocol.readResponse(in);
+                    CompletableFuture<AssignmentResult> future = pending.get(response.id());
+                    if (future != null) {
+                        future.complete(response.result());
+                    }
+                }
+            } catch (IOException e) {
+                if (alive) {
+                    logger.warn("Lost the connection to the solver worker (pid {}).", process.pid(), e);
+                }
+            } finally {
+                close();
+            }
+        }
+
+        /**
+         * Closes the connection and kills the worker without giving it a chance to finish, for a worker
+         * that stopped answering.
+         */
+        void kill() {
+            process.destroyForcibly();
+            close();
+        }
+
+        void close() {
+            alive = false;
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("Could not close the solver worker socket cleanly.", e);
+            }
+            process.destroy();
+            IOException stopped = new IOException("The solver worker stopped.");
+            pending.values().forEach(future -> future.completeExceptionally(stopped));
+        }
+    }
+}
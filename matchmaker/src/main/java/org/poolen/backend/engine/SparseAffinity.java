@@ -0,0 +1,221 @@
+package org.poolen.backend.engine;
+
+import org.poolen.backend.db.entities.Player;
+import org.poolen.backend.db.store.RelationshipIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The pair scores of a session, stored sparsely. Two players who have never played together and are not
+ * on each other's buddy or blacklists always score the full reunion bonus, so only the pairs that differ
+ * from that default are kept, as a row per player in compressed sparse row form (neighbours sorted).
+ * Memory grows with the number of relationships instead of with the square of the roster.
+ */
+class SparseAffinity {
+
+    private static final Logger logger = LoggerFactory.getLogger(SparseAffinity.class);
+
+    private final double defaultScore;
+    private final int[] rowStart;
+    private final int[] neighbours;
+    private final double[] deltas;
+
+    private SparseAffinity(double defaultScore, int[] rowStart, int[] neighbours, double[] deltas) {
+        this.defaultScore = defaultScore;
+        this.rowStart = rowStart;
+        this.neighbours = neighbours;
+        this.deltas = deltas;
+    }
+
+    /**
+     * Builds the structure from the store's relationship index when every player is in it, which only
+     * looks at each attendee's own relations, and from the players' lists otherwise.
+     * @param relationships The store's relationship index, or null to always read the players' lists.
+     */
+    static SparseAffinity build(MatchScorer scorer, List<Player> players, Map<UUID, Integer> index, LocalDate asOf,
+                                RelationshipIndex relationships) {
+        if (relationships == null || !players.stream().allMatch(player -> relationships.isIndexed(player.getUuid()))) {
+            return build(scorer, players, index, asOf);
+        }
+        int numPlayers = players.size();
+        double defaultScore = scorer.getMaxReunionBonus();
+        int[] rowStart = new int[numPlayers + 1];
+        int[] neighbours = new int[16];
+        double[] deltas = new double[16];
+        int edges = 0;
+        for (int i = 0; i < numPlayers; i++) {
+            rowStart[i] = edges;
+            Map<UUID, RelationshipIndex.Relation> relations = relationships.getRelations(players.get(i).getUuid());
+            int[] row = new int[relations.size()];
+            double[] rowDeltas = new double[relations.size()];
+            int count = 0;
+            for (Map.Entry<UUID, RelationshipIndex.Relation> entry : relations.entrySet()) {
+                Integer j = index.get(entry.getKey());
+                if (j == null || j == i) continue;
+                RelationshipIndex.Relation relation = entry.getValue();
+                double delta = scorer.pairScore(relation.buddy(), relation.blacklist(), relation.weeksSincePlayed(asOf)) - defaultScore;
+                if (delta == 0) continue;
+                row[count] = j;
+                rowDeltas[count] = delta;
+                count++;
+            }
+            // Keep the neighbours sorted for the binary search in pairScore.
+            Integer[] order = new Integer[count];
+            for (int k = 0; k < count; k++) order[k] = k;
+            Arrays.sort(order, (a, b) -> Integer.compare(row[a], row[b]));
+            if (edges + count > neighbours.length) {
+                int capacity = Math.max(neighbours.length * 2, edges + count);
+                neighbours = Arrays.copyOf(neighbours, capacity);
+                deltas = Arrays.copyOf(deltas, capacity);
+            }
+            for (int k = 0; k < count; k++) {
+                neighbours[edges] = row[order[k]];
+                deltas[edges] = rowDeltas[order[k]];
+                edges++;
+            }
+        }
+        rowStart[numPlayers] = edges;
+        logger.debug("Built sparse affinity for {} players from the relationship index with {} non-default pair entries.", numPlayers, edges);
+        return new SparseAffinity(defaultScore, rowStart, Arrays.copyOf(neighbours, edges), Arrays.copyOf(deltas, edges));
+    }
+
+    /**
+     * Builds the structure from the buddy lists, blacklists and play logs of the players. Only pairs that
+     * appear in one of those are ever scored.
+     * @param index The dense index of every player, by UUID.
+     */
+    static SparseAffinity build(MatchScorer scorer, List<Player> players, Map<UUID, Integer> index, LocalDate asOf) {
+        int numPlayers = players.size();
+        // First collect every candidate edge from both ends, as the lists aren't always mutual.
+        int[][] candidates = new int[numPlayers][];
+        int[] candidateCounts = new int[numPlayers];
+        for (int i = 0; i < numPlayers; i++) {
+            candidates[i] = new int[4];
+        }
+        for (int i = 0; i < numPlayers; i++) {
+            Player player = players.get(i);
+            for (UUID other : player.getBuddylist()) addCandidate(candidates, candidateCounts, i, index.get(other));
+            for (UUID other : player.getBlacklist()) addCandidate(candidates, candidateCounts, i, index.get(other));
+            for (UUID other : player.getPlayerLog().keySet()) addCandidate(candidates, candidateCounts, i, index.get(other));
+        }
+
+        double defaultScore = scorer.getMaxReunionBonus();
+        int[] rowStart = new int[numPlayers + 1];
+        int[] neighbours = new int[0];
+        double[] deltas = new double[0];
+        int edges = 0;
+        for (int i = 0; i < numPlayers; i++) {
+            rowStart[i] = edges;
+            int[] row = Arrays.copyOf(candidates[i], candidateCounts[i]);
+            Arrays.sort(row);
+            for (int k = 0; k < row.length; k++) {
+                int j = row[k];
+                if (k > 0 && row[k - 1] == j) continue;
+                double delta = scorer.pairScore(players.get(i), players.get(j), asOf) - defaultScore;
+                if (delta == 0) continue;
+                if (edges == neighbours.length) {
+                    int capacity = Math.max(16, edges * 2);
+                    neighbours = Arrays.copyOf(neighbours, capacity);
+                    deltas = Arrays.copyOf(deltas, capacity);
+                }
+                neighbours[edges] = j;
+                deltas[edges] = delta;
+                edges++;
+            }
+        }
+        rowStart[numPlayers] = edges;
+        logger.debug("Built sparse affinity for {} players with {} non-default pair entries.", numPlayers, edges);
+        return new SparseAffinity(defaultScore, rowStart, Arrays.copyOf(neighbours, edges), Arrays.copyOf(deltas, edges));
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeDouble(defaultScore);
+        out.writeInt(rowStart.length);
+        for (int start : rowStart) {
+            out.writeInt(start);
+        }
+        out.writeInt(neighbours.length);
+        for (int k = 0; k < neighbours.length; k++) {
+            out.writeInt(neighbours[k]);
+            out.writeDouble(deltas[k]);
+        }
+    }
+
+    static SparseAffinity read(DataInputStream in) throws IOException {
+        double defaultScore = in.readDouble();
+        int[] rowStart = new int[in.readInt()];
+        for (int i = 0; i < rowStart.length; i++) {
+            rowStart[i] = in.readInt();
+        }
+        int entries = in.readInt();
+        int[] neighbours = new int[entries];
+        double[] deltas = new double[entries];
+        for (int k = 0; k < entries; k++) {
+            neighbours[k] = in.readInt();
+            deltas[k] = in.readDouble();
+        }
+        return new SparseAffinity(defaultScore, rowStart, neighbours, deltas);
+    }
+
+    private static void addCandidate(int[][] candidates, int[] counts, int player, Integer other) {
+        if (other == null || other == player) return;
+        append(candidates, counts, player, other);
+        append(candidates, counts, other, player);
+    }
+
+    private static void append(int[][] candidates, int[] counts, int row, int value) {
+        if (counts[row] == candidates[row].length) {
+            candidates[row] = Arrays.copyOf(candidates[row], counts[row] * 2);
+        }
+        candidates[row][counts[row]++] = value;
+    }
+
+    /**
+     * The score of any pair without a relationship.
+     */
+    double defaultScore() {
+        return defaultScore;
+    }
+
+    double pairScore(int p1, int p2) {
+        if (p1 == p2) return 0;
+        int k = Arrays.binarySearch(neighbours, rowStart[p1], rowStart[p1 + 1], p2);
+        return k >= 0 ? defaultScore + deltas[k] : defaultScore;
+    }
+
+    /**
+     * Rows are iterated as {@code for (int k = rowStart(p); k < rowEnd(p); k++)} with
+     * {@link #neighbour(int)} and {@link #delta(int)}.
+     */
+    int rowStart(int player) {
+        return rowStart[player];
+    }
+
+    int rowEnd(int player) {
+        return rowStart[player + 1];
+    }
+
+    int neighbour(int entry) {
+        return neighbours[entry];
+    }
+
+    /**
+     * How far the pair score of this entry is from the default score.
+     */
+    double delta(int entry) {
+        return deltas[entry];
+    }
+
+    int entryCount() {
+        return neighbours.length;
+    }
+}
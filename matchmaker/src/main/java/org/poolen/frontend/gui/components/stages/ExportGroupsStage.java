@@ -263,11 +263,15 @@ public class ExportGroupsStage extends Stage {
 
     private void updatePlayerLogs() {
         logger.info("Updating player logs for {} groups before export.", groups.size());
-        groups.forEach(group ->
-                group.getParty().values().forEach(player ->
-                        player.updatePlayerLog(group)
-                )
-        );
+        groups.forEach(group -> {
+            group.getParty().values().forEach(player ->
+                    player.updatePlayerLog(group)
+            );
+            // The DM keeps a log of who they ran for, which the matchmaker uses when handing out DMs.
+            if (group.getDungeonMaster() != null) {
+                group.getDungeonMaster().updatePlayerLog(group);
+            }
+        });
         logger.debug("Player log updates complete.");
     }
 
@@ -25,6 +25,7 @@ import javafx.stage.Stage;
 import org.poolen.backend.db.constants.House;
 import org.poolen.backend.db.constants.Settings;
 import org.poolen.backend.db.entities.Character;
+import org.poolen.backend.db.entities.DormantPlayer;
 import org.poolen.backend.db.entities.Player;
 import org.poolen.backend.db.factories.CharacterFactory;
 import org.poolen.backend.db.factories.PlayerFactory;
@@ -577,6 +578,18 @@ public class ImportMatcherStage extends Stage {
         List<ImportMatchTask> tasksThatNeedReview = new ArrayList<>();
         int perfectMatchCount = 0;
 
+        // Players that haven't been seen in a while are only held as stubs; read the imported ones in full,
+        // with their characters, so they match like everyone else.
+        List<UUID> importedPlayerUuids = new ArrayList<>();
+        for (PlayerData item : data) {
+            try {
+                if (!item.playerUuid().isEmpty()) {
+                    importedPlayerUuids.add(UUID.fromString(item.playerUuid()));
+                }
+            } catch (IllegalArgumentException e) { /* Not a UUID, so not a match either */ }
+        }
+        playerStore.wakePlayers(importedPlayerUuids);
+
         for (PlayerData item : data) {
             boolean playerIsPerfect = false;
             boolean charIsPerfect = false;
@@ -662,6 +675,8 @@ public class ImportMatcherStage extends Stage {
             }
         }
 
+        // Dormant players with this name could be the same person coming back, so they're offered too.
+        playerStore.wakePlayers(playerStore.findDormant(item.player()).stream().map(DormantPlayer::uuid).toList());
         List<Player> allPlayers = new ArrayList<>(playerStore.getAllPlayers());
         promptChoice(
                 "Match Player: '" + item.player() + "'",
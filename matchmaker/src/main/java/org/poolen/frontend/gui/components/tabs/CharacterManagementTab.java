@@ -178,7 +178,6 @@ public class CharacterManagementTab extends Tab {
             logger.debug("Character data is valid. Proceeding with persistence service.");
             uiPersistenceService.saveCharacters(character.getPlayer(), getTabPane().getScene().getWindow());
             onPlayerListChanged.run();
-            rosterView.updateRoster();
             characterForm.clearForm();
             rosterView.filterByPlayer(null); // Also clear filter after a successful action
             logger.info("Successfully created/updated character '{}'.", character.getName());
@@ -196,7 +195,6 @@ public class CharacterManagementTab extends Tab {
             characterStore.addCharacter(character);
             uiPersistenceService.saveCharacters(character.getPlayer(), getTabPane().getScene().getWindow());
             onPlayerListChanged.run();
-            rosterView.updateRoster();
             characterForm.clearForm();
             rosterView.filterByPlayer(null);
         } else {
@@ -214,7 +212,6 @@ public class CharacterManagementTab extends Tab {
             characterStore.addCharacter(character);
             uiPersistenceService.saveCharacters(character.getPlayer(), getTabPane().getScene().getWindow());
             onPlayerListChanged.run();
-            rosterView.updateRoster();
             characterForm.clearForm();
             rosterView.filterByPlayer(null);
         } else {
@@ -244,7 +241,6 @@ public class CharacterManagementTab extends Tab {
                 characterStore.removeCharacter(characterToDelete);
                 uiPersistenceService.deleteCharacter(characterToDelete, getTabPane().getScene().getWindow());
                 onPlayerListChanged.run();
-                rosterView.updateRoster();
                 characterForm.clearForm();
                 rosterView.filterByPlayer(null);
                 logger.info("Character '{}' successfully deleted.", characterToDelete.getName());
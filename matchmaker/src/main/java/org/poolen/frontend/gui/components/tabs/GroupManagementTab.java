@@ -1,6 +1,7 @@
 package org.poolen.frontend.gui.components.tabs;
 
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ChoiceDialog;
 import javafx.scene.control.SplitPane;
 import javafx.scene.control.Tab;
 import javafx.stage.Window;
@@ -8,7 +9,9 @@ import org.poolen.backend.db.constants.House;
 import org.poolen.backend.db.entities.Group;
 import org.poolen.backend.db.entities.Player;
 import org.poolen.backend.db.factories.GroupFactory;
+import org.poolen.backend.engine.GroupScoreTracker;
 import org.poolen.backend.engine.GroupSuggester;
+import org.poolen.backend.engine.MatchAlternative;
 import org.poolen.backend.engine.Matchmaker;
 import org.poolen.frontend.gui.components.dialogs.BaseDialog;
 import org.poolen.frontend.gui.components.dialogs.BaseDialog.DialogType;
@@ -32,6 +35,7 @@ import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -46,6 +50,9 @@ public class GroupManagementTab extends Tab implements PlayerUpdateListener {
 
     private static final Logger logger = LoggerFactory.getLogger(GroupManagementTab.class);
     private static final GroupFactory groupFactory = GroupFactory.getInstance();
+    // How many seatings "Compare Seatings" offers, and how many players must sit elsewhere between two of them.
+    private static final int ALTERNATIVE_COUNT = 3;
+    private static final int ALTERNATIVE_MIN_MOVED_PLAYERS = 2;
 
     private GroupFormView groupForm;
     private SplitPane root;
@@ -65,6 +72,7 @@ public class GroupManagementTab extends Tab implements PlayerUpdateListener {
     private final Map<Group, Player> playersToPromoteToDm = new HashMap<>();
     private final Map<Group, Player> dmsToReassignAsPlayer = new HashMap<>();
     private final Matchmaker matchmaker;
+    private final GroupScoreTracker scoreTracker;
     private final StageProvider stageProvider;
     private final CoreProvider coreProvider;
     private final UiTaskExecutor uiTaskExecutor;
@@ -77,6 +85,7 @@ public class GroupManagementTab extends Tab implements PlayerUpdateListener {
 
         this.sheetsServiceManager = sheetsServiceManager;
         this.matchmaker = matchmaker;
+        this.scoreTracker = matchmaker.createScoreTracker();
         this.stageProvider = stageProvider;
         this.coreProvider = coreProvider;
         this.uiTaskExecutor = uiTaskExecutor;
@@ -124,6 +133,7 @@ public class GroupManagementTab extends Tab implements PlayerUpdateListener {
         groupDisplayView.setOnGroupEdit(this::prepareForEdit);
         groupDisplayView.setOnGroupDelete(this::handleDeleteFromCard);
         groupDisplayView.setOnPlayerMove(this::handlePlayerMove);
+        groupDisplayView.setScoreTracker(scoreTracker);
         groupDisplayView.setOnDmUpdateRequest(this::handleDmUpdateRequestFromCard);
         groupDisplayView.setOnLocationUpdate(this::handleLocationUpdateFromCard);
         groupDisplayView.setOnDateSelected(this::handleDateChange);
@@ -146,6 +156,7 @@ public class GroupManagementTab extends Tab implements PlayerUpdateListener {
         });
         groupDisplayView.setOnSuggestedGroupsCreate(this::handleCreateSuggestedGroups);
         groupDisplayView.setOnAutoPopulate(this::handleAutoPopulate);
+        groupDisplayView.setOnAlternativesRequest(this::handleAlternativesRequest);
         groupDisplayView.setOnExportRequest(this::handleExportRequest);
 
         rosterView.setOnPlayerAddRequest(this::handlePlayerAddRequest);
@@ -283,45 +294,116 @@ public class GroupManagementTab extends Tab implements PlayerUpdateListener {
 
     private void handleAutoPopulate() {
         logger.info("User initiated auto-populate action.");
-        boolean anyGroupWithoutDm = groups.stream().anyMatch(g -> g.getDungeonMaster() == null);
-        if (anyGroupWithoutDm) {
-            logger.warn("Auto-populate blocked: One or more groups are missing a DM.");
-            coreProvider.createDialog(DialogType.ERROR,"Please assign a Dungeon Master to every group before auto-populating.", this.getTabPane()).showAndWait();
+        if (!prepareMatchmaker()) {
             return;
         }
+        uiTaskExecutor.execute(getParentWindow(),
+                "Matching Groups...",
+                "Groups Matched Successfully..",
+                (updater) -> matchmaker.match(),
+                (result) -> {
+                    this.groups = result; // The matchmaker returns the populated list.
+                    logger.info("Matchmaker finished. {} groups populated.", groups.size());
+                    cleanUp();
+                    showWaitlist();
+        });
+    }
 
-        ConfirmationDialog confirmation = (ConfirmationDialog) coreProvider.createDialog(DialogType.CONFIRMATION,
-                "This will clear all current party members and generate new ones. Are you sure?", this.getTabPane());
-        confirmation.showAndWait().ifPresent(response -> {
-            if (response == ButtonType.YES) {
-                logger.info("User confirmed auto-population. Clearing existing parties and running matchmaker.");
-                // Clear all existing party members for a clean slate.
-                for (Group group : groups) {
-                    new ArrayList<>(group.getParty().values()).forEach(group::removePartyMember);
-                }
-                matchmaker.setPlayers(attendingPlayers.values().stream().filter(
-                        player -> !dmingPlayers.containsKey(player.getUuid())).collect(Collectors.toList()));
-                matchmaker.setGroups(groups);
+    private void handleAlternativesRequest() {
+        logger.info("User asked to compare alternative seatings.");
+        if (!prepareMatchmaker()) {
+            return;
+        }
+        uiTaskExecutor.execute(getParentWindow(),
+                "Finding Seatings...",
+                "Seatings Found Successfully..",
+                (updater) -> matchmaker.matchAlternatives(ALTERNATIVE_COUNT, ALTERNATIVE_MIN_MOVED_PLAYERS),
+                (alternatives) -> {
+                    if (alternatives.isEmpty()) {
+                        logger.warn("No alternative seatings were found.");
+                        coreProvider.createDialog(DialogType.ERROR, "The players could not be seated in these groups.", this.getTabPane()).showAndWait();
+                        return;
+                    }
+                    // The best one is applied unless the organiser picks another.
+                    MatchAlternative picked = pickAlternative(alternatives).orElse(alternatives.get(0));
+                    logger.info("Applying alternative {} with score {}.", picked.getRank(), picked.getScore().total());
+                    picked.applyToGroups();
+                    cleanUp();
+                    showWaitlist();
+        });
+    }
 
-                Window parentWindow = (getTabPane() != null && getTabPane().getScene() != null)
-                        ? getTabPane().getScene().getWindow()
-                        : null;
+    /**
+     * Shows the organiser the alternatives side by side and lets them pick one.
+     * @return The picked alternative, or empty if the dialog was closed.
+     */
+    private Optional<MatchAlternative> pickAlternative(List<MatchAlternative> alternatives) {
+        Map<String, MatchAlternative> choices = new LinkedHashMap<>();
+        for (MatchAlternative alternative : alternatives) {
+            String label = alternative.getRank() == 1
+                    ? String.format("Option 1: score %.1f (best)", alternative.getScore().total())
+                    : String.format("Option %d: score %.1f (%d players moved)", alternative.getRank(),
+                            alternative.getScore().total(), alternative.getMovedPlayers());
+            choices.put(label, alternative);
+        }
+        String best = choices.keySet().iterator().next();
+        ChoiceDialog<String> dialog = new ChoiceDialog<>(best, choices.keySet());
+        dialog.initOwner(getParentWindow());
+        dialog.setTitle("Compare Seatings");
+        dialog.setHeaderText("Pick the seating to use for the groups.");
+        return dialog.showAndWait().map(choices::get);
+    }
 
-                uiTaskExecutor.execute(parentWindow,
-                        "Matching Groups...",
-                        "Groups Matched Successfully..",
-                        (updater) -> matchmaker.match(),
-                        (result) -> {
-                            this.groups = result; // The matchmaker returns the populated list.
-                            logger.info("Matchmaker finished. {} groups populated.", groups.size());
-                            cleanUp();
-                });
+    /**
+     * Checks there are enough free DMs, asks for confirmation, clears the parties and hands the
+     * attending players and groups to the matchmaker.
+     * @return false if the organiser can't or doesn't want to go ahead.
+     */
+    private boolean prepareMatchmaker() {
+        // Groups without a DM get one from the DMs that aren't running a table yet.
+        long groupsWithoutDm = groups.stream().filter(g -> g.getDungeonMaster() == null).count();
+        Set<Player> assignedDms = getAllAssignedDms();
+        List<Player> freeDms = dmingPlayers.values().stream()
+                .filter(dm -> !assignedDms.contains(dm))
+                .collect(Collectors.toList());
+        if (groupsWithoutDm > freeDms.size()) {
+            logger.warn("Matching blocked: {} groups are missing a DM but only {} DMs are free.", groupsWithoutDm, freeDms.size());
+            coreProvider.createDialog(DialogType.ERROR,"There are more groups without a Dungeon Master than free Dungeon Masters. Please add a DM or remove a group before auto-populating.", this.getTabPane()).showAndWait();
+            return false;
+        }
 
+        ConfirmationDialog confirmation = (ConfirmationDialog) coreProvider.createDialog(DialogType.CONFIRMATION,
+                "This will clear all current party members and generate new ones. Are you sure?", this.getTabPane());
+        Optional<ButtonType> response = confirmation.showAndWait();
+        if (response.isEmpty() || response.get() != ButtonType.YES) {
+            logger.info("User cancelled matching.");
+            return false;
+        }
+        logger.info("User confirmed matching. Clearing existing parties and running matchmaker.");
+        // Clear all existing party members for a clean slate.
+        for (Group group : groups) {
+            new ArrayList<>(group.getParty().values()).forEach(group::removePartyMember);
+        }
+        matchmaker.setPlayers(attendingPlayers.values().stream().filter(
+                player -> !dmingPlayers.containsKey(player.getUuid())).collect(Collectors.toList()));
+        matchmaker.setGroups(groups);
+        matchmaker.setDungeonMasters(freeDms);
+        return true;
+    }
 
-            } else {
-                logger.info("User cancelled auto-population.");
-            }
-        });
+    private void showWaitlist() {
+        List<Player> waitlist = matchmaker.getWaitlist();
+        if (!waitlist.isEmpty()) {
+            String names = waitlist.stream().map(Player::getName).collect(Collectors.joining(", "));
+            coreProvider.createDialog(DialogType.INFO,
+                    "Not everyone fit into the groups. These players are on the waitlist: " + names, this.getTabPane()).showAndWait();
+        }
+    }
+
+    private Window getParentWindow() {
+        return (getTabPane() != null && getTabPane().getScene() != null)
+                ? getTabPane().getScene().getWindow()
+                : null;
     }
 
     private void handleCreateSuggestedGroups(List<House> themes) {
@@ -350,7 +432,10 @@ public class GroupManagementTab extends Tab implements PlayerUpdateListener {
                 if (source != null) source.removePartyMember(player);
             });
             // Use the factory method that includes location
-            groups.add(groupFactory.create(selectedDm, groupForm.getSelectedHouses(), eventDate, selectedLocation, new ArrayList<>(newPartyMap.values())));
+            Group newGroup = groupFactory.create(selectedDm, groupForm.getSelectedHouses(), eventDate, selectedLocation, new ArrayList<>(newPartyMap.values()));
+            newGroup.setMinSize(groupForm.getSelectedMinSize());
+            newGroup.setMaxSize(groupForm.getSelectedMaxSize());
+            groups.add(newGroup);
         } else {
             logger.info("Updating existing group '{}'.", groupToEdit.getUuid());
             // Logic for applying pending changes during update
@@ -364,6 +449,8 @@ public class GroupManagementTab extends Tab implements PlayerUpdateListener {
             }
             groupToEdit.setHouses(groupForm.getSelectedHouses());
             groupToEdit.setLocation(selectedLocation); // Update the group's location
+            groupToEdit.setMinSize(groupForm.getSelectedMinSize());
+            groupToEdit.setMaxSize(groupForm.getSelectedMaxSize());
         }
         cleanUp();
     }
@@ -378,9 +465,10 @@ public class GroupManagementTab extends Tab implements PlayerUpdateListener {
         Player playerToMove = sourceGroup.getParty().get(playerUuid);
         if (playerToMove != null) {
             logger.info("Moving player '{}' from group '{}' to group '{}'.", playerToMove.getName(), sourceGroup.getUuid(), targetGroup.getUuid());
-            sourceGroup.removePartyMember(playerToMove);
-            targetGroup.addPartyMember(playerToMove);
-            groupDisplayView.updateGroups(groups, dmingPlayers, getAllAssignedDms(), eventDate);
+            // Only the two groups involved change, so only they are rescored and redrawn.
+            double delta = scoreTracker.move(playerToMove, sourceGroup, targetGroup);
+            groupDisplayView.refreshGroups(sourceGroup, targetGroup);
+            groupDisplayView.showMoveDelta(delta);
             rosterView.setAllGroups(groups);
         } else {
             logger.warn("Attempted to move a non-existent player with UUID: {} from group {}", playerUuid, sourceGroupUuid);
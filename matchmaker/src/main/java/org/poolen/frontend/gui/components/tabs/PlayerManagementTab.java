@@ -132,7 +132,6 @@ public class PlayerManagementTab extends Tab implements PlayerUpdateListener {
         }
         uiPersistenceService.savePlayer(player, getTabPane().getScene().getWindow());
         onPlayerListChanged.run(); // Notify everyone!
-        rosterView.updateRoster();
         playerForm.clearForm();
         logger.info("Player '{}' saved successfully.", player.getName());
     }
@@ -203,18 +202,17 @@ public class PlayerManagementTab extends Tab implements PlayerUpdateListener {
         }
         playerStore.addPlayer(editingPlayer);
 
-        // Refresh the roster view to reflect the change
+        // The roster picks the change up from the store; the blacklist view has to be filtered again.
         if (isShowingBlacklist) {
             rosterView.showBlacklistedPlayers(editingPlayer);
-        } else {
-            rosterView.updateRoster();
         }
     }
 
     @Override
     public void onPlayerUpdate() {
-        logger.info("Received player update notification. Refreshing roster view.");
-        rosterView.updateRoster();
+        // The roster follows the store by itself, so only the attendance columns need redrawing.
+        logger.info("Received player update notification. Refreshing roster rows.");
+        rosterView.refreshRows();
     }
 
     public Runnable getOnPlayerListChanged() {
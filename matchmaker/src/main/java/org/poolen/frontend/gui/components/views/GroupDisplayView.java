@@ -17,6 +17,7 @@ import javafx.scene.layout.VBox;
 import org.poolen.backend.db.constants.House;
 import org.poolen.backend.db.entities.Group;
 import org.poolen.backend.db.entities.Player;
+import org.poolen.backend.engine.GroupScoreTracker;
 import org.poolen.frontend.gui.components.views.tables.GroupTableView;
 import org.poolen.frontend.gui.interfaces.PlayerMoveHandler;
 import org.slf4j.Logger;
@@ -26,6 +27,7 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalDouble;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.BiFunction;
@@ -43,10 +45,12 @@ public class GroupDisplayView extends BorderPane {
     private final Button suggestButton;
     private final Button createSuggestedButton;
     private final Button autoPopulateButton;
+    private final Button alternativesButton;
     private final Button expandAllButton;
     private final Button collapseAllButton;
     private final Button exportButton;
     private final DatePicker datePicker;
+    private final Label scoreSummaryLabel;
     private final VBox suggestionDisplayBox;
     private final VBox suggestionContainer;
     private final HBox header;
@@ -58,10 +62,12 @@ public class GroupDisplayView extends BorderPane {
     private Runnable onSuggestionRequestHandler;
     private Consumer<List<House>> onSuggestedGroupsCreateHandler;
     private Runnable onAutoPopulateHandler;
+    private Runnable onAlternativesRequestHandler;
     private Runnable onExportRequestHandler;
     private BiFunction<Group, Player, Boolean> onDmUpdateRequestHandler;
     private BiFunction<Group, String, Boolean> onLocationUpdateRequestHandler;
     private Consumer<LocalDate> onDateSelectedHandler;
+    private GroupScoreTracker scoreTracker;
     private List<Group> currentGroups = new ArrayList<>();
     private List<House> currentSuggestions = new ArrayList<>();
     private Map<UUID, Player> dmingPlayers;
@@ -124,9 +130,13 @@ public class GroupDisplayView extends BorderPane {
             setAllCardsExpanded(false);
         });
 
+        scoreSummaryLabel = new Label();
+        scoreSummaryLabel.setStyle("-fx-text-fill: #555;");
+
         Region headerSpacer = new Region();
         HBox.setHgrow(headerSpacer, Priority.ALWAYS);
-        header = new HBox(10, datePicker, headerSpacer, expandAllButton, collapseAllButton);
+        header = new HBox(10, datePicker, scoreSummaryLabel, headerSpacer, expandAllButton, collapseAllButton);
+        header.setAlignment(Pos.CENTER_LEFT);
         header.setPadding(new Insets(10));
         header.setStyle("-fx-background-color: #f5f5f5; -fx-border-color: #e0e0e0; -fx-border-width: 0 0 1 0;");
 
@@ -138,6 +148,12 @@ public class GroupDisplayView extends BorderPane {
             logger.info("Auto-Populate Groups button clicked.");
             if (onAutoPopulateHandler != null) onAutoPopulateHandler.run();
         });
+        alternativesButton = new Button("Compare Seatings");
+        alternativesButton.setStyle("-fx-font-size: 14px; -fx-background-color: #FF9800; -fx-text-fill: white;");
+        alternativesButton.setOnAction(e -> {
+            logger.info("Compare Seatings button clicked.");
+            if (onAlternativesRequestHandler != null) onAlternativesRequestHandler.run();
+        });
         exportButton = new Button("Export");
         exportButton.setStyle("-fx-font-size: 14px; -fx-background-color: #4CAF50; -fx-text-fill: white;");
         exportButton.setOnAction(e -> {
@@ -146,7 +162,7 @@ public class GroupDisplayView extends BorderPane {
         });
         Region footerSpacer = new Region();
         HBox.setHgrow(footerSpacer, Priority.ALWAYS);
-        footer = new HBox(10, autoPopulateButton, footerSpacer, exportButton);
+        footer = new HBox(10, autoPopulateButton, alternativesButton, footerSpacer, exportButton);
         footer.setPadding(new Insets(10));
         footer.setStyle("-fx-background-color: #f5f5f5; -fx-border-color: #e0e0e0; -fx-border-width: 1 0 0 0;");
         footer.setAlignment(Pos.CENTER_LEFT);
@@ -172,6 +188,10 @@ public class GroupDisplayView extends BorderPane {
         this.dmingPlayers = dmingPlayers;
         this.allAssignedDms = allAssignedDms;
         this.datePicker.setValue(eventDate);
+        if (scoreTracker != null) {
+            scoreTracker.reset(groups, eventDate);
+        }
+        updateScoreSummary(null);
 
         if (groups.isEmpty()) {
             logger.debug("No groups to display. Showing suggestion container.");
@@ -215,6 +235,55 @@ public class GroupDisplayView extends BorderPane {
         }
     }
 
+    /**
+     * Redraws the cards of the given groups only, after players were moved between them.
+     */
+    public void refreshGroups(Group... changedGroups) {
+        for (GroupTableView card : groupCards) {
+            for (Group group : changedGroups) {
+                if (card.getGroup() == group) {
+                    card.setGroup(group);
+                    if (scoreTracker != null) card.setScore(scoreTracker.getGroupScore(group));
+                }
+            }
+        }
+        updateScoreSummary(null);
+    }
+
+    /**
+     * Shows how much the last manual move changed the total score, next to the total itself.
+     */
+    public void showMoveDelta(double delta) {
+        updateScoreSummary(delta);
+    }
+
+    private void updateScoreSummary(Double lastMoveDelta) {
+        String summary = "";
+        if (scoreTracker != null) {
+            summary = String.format("Total score: %.1f", scoreTracker.getTotalScore());
+            if (lastMoveDelta != null) {
+                summary += String.format(" (last move %+.1f)", lastMoveDelta);
+            }
+        }
+        scoreSummaryLabel.setText(summary);
+    }
+
+    /**
+     * Works out what dropping a player on a card would do to the score, for the card to show while hovering.
+     */
+    private OptionalDouble previewMove(UUID sourceGroupUuid, UUID playerUuid, Group targetGroup) {
+        if (scoreTracker == null) return OptionalDouble.empty();
+        for (Group source : currentGroups) {
+            if (source.getUuid().equals(sourceGroupUuid)) {
+                Player player = source.getParty().get(playerUuid);
+                return player != null
+                        ? OptionalDouble.of(scoreTracker.previewMove(player, source, targetGroup))
+                        : OptionalDouble.empty();
+            }
+        }
+        return OptionalDouble.empty();
+    }
+
     private void setAllCardsExpanded(boolean expanded) {
         logger.debug("Setting all group cards to expanded: {}.", expanded);
         groupCards.forEach(card -> card.setExpanded(expanded));
@@ -246,6 +315,13 @@ public class GroupDisplayView extends BorderPane {
         this.onPlayerMoveHandler = handler;
     }
 
+    /**
+     * Sets the tracker that scores the groups on display. It is reset whenever the groups are updated.
+     */
+    public void setScoreTracker(GroupScoreTracker scoreTracker) {
+        this.scoreTracker = scoreTracker;
+    }
+
     public void setOnSuggestionRequest(Runnable handler) {
         this.onSuggestionRequestHandler = handler;
     }
@@ -258,6 +334,10 @@ public class GroupDisplayView extends BorderPane {
         this.onAutoPopulateHandler = handler;
     }
 
+    public void setOnAlternativesRequest(Runnable handler) {
+        this.onAlternativesRequestHandler = handler;
+    }
+
     public void setOnDmUpdateRequest(BiFunction<Group, Player, Boolean> handler) {
         this.onDmUpdateRequestHandler = handler;
     }
@@ -276,6 +356,10 @@ public class GroupDisplayView extends BorderPane {
             if (onGroupEditHandler != null) groupCard.setOnEditAction(onGroupEditHandler);
             if (onGroupDeleteHandler != null) groupCard.setOnDeleteAction(onGroupDeleteHandler);
             if (onPlayerMoveHandler != null) groupCard.setOnPlayerMove(onPlayerMoveHandler);
+            if (scoreTracker != null) {
+                groupCard.setOnPlayerMovePreview(this::previewMove);
+                groupCard.setScore(scoreTracker.getGroupScore(group));
+            }
             if (onDmUpdateRequestHandler != null) groupCard.setOnDmUpdateRequest(onDmUpdateRequestHandler);
             if (onLocationUpdateRequestHandler != null) groupCard.setOnLocationUpdate(onLocationUpdateRequestHandler);
             if (dmingPlayers != null && allAssignedDms != null) groupCard.setDmList(dmingPlayers, allAssignedDms);
@@ -4,6 +4,7 @@ import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
@@ -11,8 +12,10 @@ import javafx.scene.control.Label;
 import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
 import javafx.scene.control.Separator;
+import javafx.scene.control.Spinner;
 import javafx.scene.control.TextField; // Import the TextField class
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
@@ -39,6 +42,9 @@ public class GroupFormView extends BaseFormView<Group> {
 
     private ComboBox<Object> dmComboBox;
     private TextField locationField; // Add a field for the location
+    // 0 leaves the limit to the matchmaker, which splits the players evenly.
+    private Spinner<Integer> minSizeSpinner;
+    private Spinner<Integer> maxSizeSpinner;
     private Map<House, CheckBox> houseCheckBoxes;
     private Button deleteButton;
     private Button showPlayersButton;
@@ -46,6 +52,7 @@ public class GroupFormView extends BaseFormView<Group> {
     private Consumer<Player> onDmSelectionHandler;
     private DmSelectRequestHandler dmSelectRequestHandler;
     private static final String UNASSIGNED_PLACEHOLDER = "Unassigned";
+    private static final int MAX_CAPACITY = 20;
     private boolean isRevertingDmSelection = false;
 
     public GroupFormView() {
@@ -104,6 +111,16 @@ public class GroupFormView extends BaseFormView<Group> {
         locationField.setPromptText("Enter session location (e.g., Room 5)");
         locationField.setMaxWidth(Double.MAX_VALUE);
 
+        // --- Add Capacity Fields ---
+        minSizeSpinner = new Spinner<>(0, MAX_CAPACITY, 0);
+        maxSizeSpinner = new Spinner<>(0, MAX_CAPACITY, 0);
+        minSizeSpinner.setEditable(true);
+        maxSizeSpinner.setEditable(true);
+        minSizeSpinner.setPrefWidth(80);
+        maxSizeSpinner.setPrefWidth(80);
+        HBox capacityBox = new HBox(5, new Label("Min"), minSizeSpinner, new Label("Max"), maxSizeSpinner);
+        capacityBox.setAlignment(Pos.CENTER_LEFT);
+
         showPlayersButton = new Button("Show Players");
         showPlayersButton.setMaxWidth(Double.MAX_VALUE);
         showPlayersButton.setStyle("-fx-background-color: #6A5ACD; -fx-text-fill: white;");
@@ -117,14 +134,16 @@ public class GroupFormView extends BaseFormView<Group> {
         add(houseGrid, 0, 5);
         add(new Label("Location:"), 0, 6); // Add label for location
         add(locationField, 0, 7);         // Add location field
-        add(showPlayersButton, 0, 8);     // Shift row index
-        add(deleteButton, 0, 9);          // Shift row index
+        add(new Label("Party Size (0 = automatic):"), 0, 8);
+        add(capacityBox, 0, 9);
+        add(showPlayersButton, 0, 10);    // Shift row index
+        add(deleteButton, 0, 11);         // Shift row index
 
         // Add the common controls from the parent at the end
         VBox spacer = new VBox();
         GridPane.setVgrow(spacer, Priority.ALWAYS);
-        add(spacer, 0, 10);               // Shift row index
-        add(mainActionsBox, 0, 11);       // Shift row index
+        add(spacer, 0, 12);               // Shift row index
+        add(mainActionsBox, 0, 13);       // Shift row index
     }
 
     @Override
@@ -144,6 +163,8 @@ public class GroupFormView extends BaseFormView<Group> {
         // Assuming Group has a getLocation() method
         locationField.setText(group.getLocation() != null ? group.getLocation() : "");
         houseCheckBoxes.forEach((house, checkBox) -> checkBox.setSelected(group.getHouses().contains(house)));
+        minSizeSpinner.getValueFactory().setValue(group.getMinSize());
+        maxSizeSpinner.getValueFactory().setValue(group.getMaxSize());
         actionButton.setText("Update");
         actionButton.setStyle("-fx-background-color: #FFA500; -fx-text-fill: white;");
         deleteButton.setVisible(true);
@@ -156,6 +177,8 @@ public class GroupFormView extends BaseFormView<Group> {
         dmComboBox.setValue(UNASSIGNED_PLACEHOLDER);
         locationField.clear(); // Clear the location field
         houseCheckBoxes.values().forEach(cb -> cb.setSelected(false));
+        minSizeSpinner.getValueFactory().setValue(0);
+        maxSizeSpinner.getValueFactory().setValue(0);
         actionButton.setText("Create");
         actionButton.setStyle("-fx-background-color: #3CB371; -fx-text-fill: white;");
         deleteButton.setVisible(false);
@@ -180,6 +203,30 @@ public class GroupFormView extends BaseFormView<Group> {
         return loc.trim();
     }
 
+    /**
+     * @return The smallest party the group should get, or 0 to let the matchmaker decide.
+     */
+    public int getSelectedMinSize() {
+        return spinnerValue(minSizeSpinner);
+    }
+
+    /**
+     * @return The largest party the group can take, or 0 for no limit.
+     */
+    public int getSelectedMaxSize() {
+        return spinnerValue(maxSizeSpinner);
+    }
+
+    private static int spinnerValue(Spinner<Integer> spinner) {
+        // Typed text only reaches the value on enter, so it is committed here in case the user didn't press it.
+        try {
+            spinner.getValueFactory().setValue(Integer.parseInt(spinner.getEditor().getText().trim()));
+        } catch (NumberFormatException e) {
+            spinner.getEditor().setText(String.valueOf(spinner.getValue()));
+        }
+        return spinner.getValue();
+    }
+
     public List<House> getSelectedHouses() {
         return houseCheckBoxes.entrySet().stream()
                 .filter(entry -> entry.getValue().isSelected())
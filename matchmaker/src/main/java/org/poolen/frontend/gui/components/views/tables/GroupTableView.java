@@ -33,11 +33,13 @@ import javafx.util.Callback;
 import org.poolen.backend.db.entities.Group;
 import org.poolen.backend.db.entities.Player;
 import org.poolen.frontend.gui.interfaces.PlayerMoveHandler;
+import org.poolen.frontend.gui.interfaces.PlayerMovePreviewHandler;
 
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects; // Import Objects
+import java.util.OptionalDouble;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.BiFunction;
@@ -57,12 +59,15 @@ public class GroupTableView extends TitledPane {
     private final Button deleteButton;
     private Group currentGroup;
     private PlayerMoveHandler onPlayerMoveHandler;
+    private PlayerMovePreviewHandler onPlayerMovePreviewHandler;
     private BiFunction<Group, Player, Boolean> onDmUpdateRequestHandler;
     private BiFunction<Group, String, Boolean> onLocationUpdateRequestHandler; // Handler for location
 
     private final Label dmNameLabel;
     private final Label themesLabel;
     private final Label partySizeLabel;
+    private final Label scoreLabel;
+    private final Label scoreDeltaLabel;
     private final ComboBox<Object> dmComboBox;
     private final TextField locationField; // Field for location
     private boolean isUpdatingComboBox = false;
@@ -76,12 +81,16 @@ public class GroupTableView extends TitledPane {
         themesLabel.setStyle("-fx-text-fill: #555;");
         partySizeLabel = new Label();
         partySizeLabel.setStyle("-fx-font-style: italic;");
+        scoreLabel = new Label();
+        scoreLabel.setStyle("-fx-text-fill: #555;");
+        scoreDeltaLabel = new Label();
+        scoreDeltaLabel.setFont(Font.font("System", FontWeight.BOLD, 12));
         deleteButton = new Button("✖");
         deleteButton.setStyle("-fx-font-size: 12px; -fx-padding: 2 6 2 6; -fx-background-color: transparent; -fx-text-fill: #808080; -fx-font-weight: bold;");
 
         Region titleSpacer = new Region();
         HBox.setHgrow(titleSpacer, Priority.ALWAYS);
-        HBox mainTitleInfo = new HBox(10, dmNameLabel, themesLabel, partySizeLabel);
+        HBox mainTitleInfo = new HBox(10, dmNameLabel, themesLabel, partySizeLabel, scoreLabel, scoreDeltaLabel);
         HBox titleBox = new HBox(10, mainTitleInfo, titleSpacer, deleteButton);
         titleBox.setAlignment(Pos.CENTER_LEFT);
         titleBox.prefWidthProperty().bind(this.widthProperty().subtract(40));
@@ -196,6 +205,10 @@ public class GroupTableView extends TitledPane {
         }
     }
 
+    public Group getGroup() {
+        return currentGroup;
+    }
+
     public void setGroup(Group group) {
         this.currentGroup = group;
         String dmName = group.getDungeonMaster() != null ? group.getDungeonMaster().getName() : "N/A";
@@ -218,6 +231,26 @@ public class GroupTableView extends TitledPane {
         locationField.setText(group.getLocation() != null ? group.getLocation() : "");
     }
 
+    /**
+     * Shows the group's current score in the card's title.
+     * @param score The score, or null to hide it.
+     */
+    public void setScore(Double score) {
+        scoreLabel.setText(score != null ? String.format("• Score %.1f", score) : "");
+    }
+
+    /**
+     * Shows how the score changes when a player is dropped here, in green for better and red for worse.
+     */
+    private void showScoreDelta(double delta) {
+        scoreDeltaLabel.setText(String.format("%+.1f", delta));
+        scoreDeltaLabel.setStyle(delta >= 0 ? "-fx-text-fill: #2e7d32;" : "-fx-text-fill: #c62828;");
+    }
+
+    private void clearScoreDelta() {
+        scoreDeltaLabel.setText("");
+    }
+
     public void setDmList(Map<UUID, Player> dmingPlayers, Set<Player> allAssignedDms) {
         isUpdatingComboBox = true; // Add this flag
         Player currentDmForThisGroup = currentGroup != null ? currentGroup.getDungeonMaster() : null;
@@ -290,6 +323,22 @@ public class GroupTableView extends TitledPane {
     }
 
     private void setupDragAndDrop() {
+        // The preview is worked out once when a player is dragged over the card, not on every mouse move.
+        this.setOnDragEntered(event -> {
+            Dragboard db = event.getDragboard();
+            if (onPlayerMovePreviewHandler != null && db.hasContent(PLAYER_TRANSFER_FORMAT)) {
+                String[] data = ((String) db.getContent(PLAYER_TRANSFER_FORMAT)).split(":");
+                OptionalDouble delta = onPlayerMovePreviewHandler.previewMove(UUID.fromString(data[0]), UUID.fromString(data[1]), this.currentGroup);
+                delta.ifPresent(this::showScoreDelta);
+            }
+            event.consume();
+        });
+
+        this.setOnDragExited(event -> {
+            clearScoreDelta();
+            event.consume();
+        });
+
         this.setOnDragOver(event -> {
             if (event.getGestureSource() != this && event.getDragboard().hasContent(PLAYER_TRANSFER_FORMAT)) {
                 event.acceptTransferModes(TransferMode.MOVE);
@@ -310,6 +359,7 @@ public class GroupTableView extends TitledPane {
                     success = true;
                 }
             }
+            clearScoreDelta();
             event.setDropCompleted(success);
             event.consume();
         });
@@ -348,6 +398,10 @@ public class GroupTableView extends TitledPane {
         this.onPlayerMoveHandler = handler;
     }
 
+    public void setOnPlayerMovePreview(PlayerMovePreviewHandler handler) {
+        this.onPlayerMovePreviewHandler = handler;
+    }
+
     public void setOnDmUpdateRequest(BiFunction<Group, Player, Boolean> handler) {
         this.onDmUpdateRequestHandler = handler;
     }
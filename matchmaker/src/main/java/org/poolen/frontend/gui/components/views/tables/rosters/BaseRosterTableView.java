@@ -1,5 +1,6 @@
 package org.poolen.frontend.gui.components.views.tables.rosters;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
@@ -21,17 +22,32 @@ import javafx.stage.Window;
 import javafx.util.Callback;
 import org.poolen.backend.db.constants.House;
 import org.poolen.backend.db.persistence.StorePersistenceService;
+import org.poolen.backend.db.store.StoreChange;
 import org.poolen.frontend.util.services.UiTaskExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * An abstract base class for creating reusable, paginated, and filterable table views.
+ * The items are kept in step with the store by patching in just the ones a {@link StoreChange}
+ * names, so only those rows are filtered again.
  * @param <T> The type of the items that will populate the table.
  */
 public abstract class BaseRosterTableView<T> extends VBox {
 
+    private static final Logger logger = LoggerFactory.getLogger(BaseRosterTableView.class);
+
+    // Store changes bigger than this, like a reload, just read everything again.
+    private static final int PATCH_LIMIT = 64;
+
     protected final TableView<T> table;
     protected final TextField searchField;
     protected final Pagination pagination;
@@ -41,6 +57,8 @@ public abstract class BaseRosterTableView<T> extends VBox {
 
     protected final ObservableList<T> sourceItems;
     protected final FilteredList<T> filteredData;
+    // Where each item sits in sourceItems, so a single one can be replaced or removed without a search.
+    private final Map<UUID, Integer> positions = new HashMap<>();
 
     private int rowsPerPage = 15;
     private Consumer<T> onItemDoubleClickHandler;
@@ -135,6 +153,19 @@ public abstract class BaseRosterTableView<T> extends VBox {
     public abstract void applyFilter();
     public abstract void updateRoster();
 
+    /**
+     * @return The UUID the item goes by in store changes.
+     */
+    protected abstract UUID keyOf(T item);
+
+    /**
+     * A hook for subclasses that only show some of the store, e.g. the attending players.
+     * @return Whether the item belongs in this roster at all.
+     */
+    protected boolean accepts(T item) {
+        return true;
+    }
+
     /**
      * An empty hook for subclasses to provide their own row styling.
      * @param row The table row being styled.
@@ -146,11 +177,118 @@ public abstract class BaseRosterTableView<T> extends VBox {
     }
 
 
+    // --- Keeping the Items in Step ---
+
+    /**
+     * Replaces every item at once. For a full refresh; single changes go through {@link #putItem}.
+     */
+    protected void setItems(Collection<? extends T> items) {
+        sourceItems.setAll(items);
+        positions.clear();
+        for (int i = 0; i < sourceItems.size(); i++) {
+            positions.put(keyOf(sourceItems.get(i)), i);
+        }
+    }
+
+    protected boolean containsItem(UUID key) {
+        return positions.containsKey(key);
+    }
+
+    /**
+     * Adds the item, or swaps it in where the item with the same UUID was.
+     */
+    protected void putItem(T item) {
+        UUID key = keyOf(item);
+        Integer position = positions.get(key);
+        if (position != null) {
+            sourceItems.set(position, item);
+        } else {
+            positions.put(key, sourceItems.size());
+            sourceItems.add(item);
+        }
+    }
+
+    /**
+     * Removes the item by moving the last one into its place, so nothing else has to shift.
+     */
+    protected void removeItem(UUID key) {
+        Integer position = positions.remove(key);
+        if (position == null) {
+            return;
+        }
+        int last = sourceItems.size() - 1;
+        if (position != last) {
+            T moved = sourceItems.get(last);
+            sourceItems.set(position, moved);
+            positions.put(keyOf(moved), position);
+        }
+        sourceItems.remove(last);
+    }
+
+    /**
+     * Patches the items named by a store change in on the UI thread. Removed ones are dropped, and the
+     * others are read from the store again, as they may have changed once more since. If patching fails,
+     * or the change is too big to be worth it, the roster is read again in full instead.
+     * @param removed The UUIDs of the items the store no longer has.
+     * @param changed The UUIDs of the items that were added or updated.
+     * @param lookup Finds an item in the store by UUID.
+     */
+    protected void applyStoreChange(Collection<UUID> removed, Collection<UUID> changed, Function<UUID, T> lookup) {
+        if (removed.isEmpty() && changed.isEmpty()) {
+            return;
+        }
+        Runnable patch = () -> {
+            if (removed.size() + changed.size() > PATCH_LIMIT) {
+                reloadItems();
+                return;
+            }
+            try {
+                patchItems(removed, changed, lookup);
+            } catch (RuntimeException e) {
+                logger.error("Failed to patch a store change into the roster, reading it again in full.", e);
+                reloadItems();
+            }
+        };
+        if (Platform.isFxApplicationThread()) {
+            patch.run();
+        } else {
+            Platform.runLater(patch);
+        }
+    }
+
+    private void patchItems(Collection<UUID> removed, Collection<UUID> changed, Function<UUID, T> lookup) {
+        removed.forEach(this::removeItem);
+        for (UUID uuid : changed) {
+            T item = lookup.apply(uuid);
+            if (item != null && accepts(item)) {
+                putItem(item);
+            } else {
+                removeItem(uuid);
+            }
+        }
+    }
+
+    /**
+     * Drops every item and has the subclass fill the roster again, so nothing a failed or skipped patch
+     * left behind survives, even for rosters that only add what they are missing.
+     */
+    private void reloadItems() {
+        setItems(List.of());
+        updateRoster();
+    }
+
     // --- Common Functionality ---
     public void setOnItemDoubleClick(Consumer<T> onItemDoubleClick) {
         this.onItemDoubleClickHandler = onItemDoubleClick;
     }
 
+    /**
+     * Redraws the visible rows, for when something they show changed outside the store.
+     */
+    public void refreshRows() {
+        table.refresh();
+    }
+
     public T getSelectedItem() {
         return table.getSelectionModel().getSelectedItem();
     }
@@ -11,11 +11,18 @@ import org.poolen.backend.db.entities.Character;
 import org.poolen.backend.db.entities.Player;
 import org.poolen.backend.db.interfaces.store.CharacterStoreProvider;
 import org.poolen.backend.db.persistence.StorePersistenceService;
+import org.poolen.backend.db.store.CharacterQuery;
 import org.poolen.backend.db.store.CharacterStore;
+import org.poolen.backend.db.store.StoreChange;
 import org.poolen.frontend.util.services.UiTaskExecutor;
 
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
 /**
  * A reusable table view for displaying and filtering Characters, inheriting from BaseRosterTableView.
+ * It follows the character store, so edits made elsewhere show up without a full refresh.
  */
 public class CharacterRosterTableView extends BaseRosterTableView<Character> {
 
@@ -31,6 +38,19 @@ public class CharacterRosterTableView extends BaseRosterTableView<Character> {
         setupTableColumns();
         setupFilters();
         updateRoster();
+        this.characterStore.addChangeListener(this::onStoreChanged);
+    }
+
+    @Override
+    protected UUID keyOf(Character character) {
+        return character.getUuid();
+    }
+
+    private void onStoreChanged(StoreChange change) {
+        StoreChange.EntityChanges characters = change.characters();
+        Set<UUID> changed = new HashSet<>(characters.added());
+        changed.addAll(characters.updated());
+        applyStoreChange(characters.removed(), changed, characterStore::getCharacterByUuid);
     }
 
     @Override
@@ -103,38 +123,23 @@ public class CharacterRosterTableView extends BaseRosterTableView<Character> {
 
     @Override
     public void applyFilter() {
-        String searchText = searchField.getText() == null ? "" : searchField.getText().toLowerCase();
-        boolean showRetired = retiredFilterCheckBox.isSelected();
-        boolean mainsOnly = mainsFilterCheckBox.isSelected();
-        House selectedHouse = houseFilterBox.getValue();
-
-        filteredData.setPredicate(character -> {
-            if (character.isRetired() != showRetired) {
-                return false;
-            }
-
-            if (selectedPlayer != null && !character.getPlayer().equals(selectedPlayer)) {
-                return false;
-            }
-
-            if (mainsOnly && !character.isMain()) {
-                return false;
-            }
-
-            if (selectedHouse != null && character.getHouse() != selectedHouse) {
-                return false;
-            }
-
-            boolean nameMatch = character.getName().toLowerCase().contains(searchText);
-            boolean playerMatch = character.getPlayer() != null && character.getPlayer().getName().toLowerCase().contains(searchText);
-
-            return nameMatch || playerMatch;
-        });
+        CharacterQuery query = characterStore.query()
+                .search(searchField.getText())
+                .retired(retiredFilterCheckBox.isSelected())
+                .house(houseFilterBox.getValue())
+                .ownedBy(selectedPlayer);
+        if (mainsFilterCheckBox.isSelected()) {
+            query.main(true);
+        }
+        filteredData.setPredicate(query::matches);
     }
 
+    /**
+     * Reads every character from the store again. Single edits don't need this, as the roster follows the store.
+     */
     @Override
     public void updateRoster() {
-        sourceItems.setAll(characterStore.getAllCharacters());
+        setItems(characterStore.getAllCharacters());
         applyFilter();
     }
 
@@ -8,10 +8,11 @@ import javafx.scene.control.CheckBox;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.cell.CheckBoxTableCell;
 import javafx.scene.control.cell.PropertyValueFactory;
-import org.poolen.backend.db.constants.House;
 import org.poolen.backend.db.entities.Group;
 import org.poolen.backend.db.entities.Player;
+import org.poolen.backend.db.interfaces.store.PlayerStoreProvider;
 import org.poolen.backend.db.persistence.StorePersistenceService;
+import org.poolen.backend.db.store.PlayerQuery;
 import org.poolen.frontend.gui.interfaces.PlayerAddRequestHandler;
 import org.poolen.frontend.util.services.UiTaskExecutor;
 
@@ -38,8 +39,8 @@ public class GroupAssignmentRosterTableView extends PlayerRosterTableView {
     private CheckBox selectedFilterCheckbox;
     private CheckBox availableOnlyCheckbox;
 
-    public GroupAssignmentRosterTableView(StorePersistenceService storePersistenceService, UiTaskExecutor uiTaskExecutor) {
-        super(storePersistenceService, uiTaskExecutor);
+    public GroupAssignmentRosterTableView(PlayerStoreProvider storeProvider, StorePersistenceService storePersistenceService, UiTaskExecutor uiTaskExecutor) {
+        super(storeProvider, storePersistenceService, uiTaskExecutor);
         setupTableColumns();
         setupFilters();
         updateRoster();
@@ -79,20 +80,16 @@ public class GroupAssignmentRosterTableView extends PlayerRosterTableView {
 
     @Override
     public void applyFilter() {
-        String searchText = searchField.getText() == null ? "" : searchField.getText().toLowerCase();
-        boolean dmsOnly = dmFilterCheckBox.isSelected();
-        House selectedHouse = houseFilterBox.getValue();
+        PlayerQuery query = playerStore.query()
+                .search(searchField.getText())
+                .house(houseFilterBox.getValue());
+        if (dmFilterCheckBox.isSelected()) {
+            query.dungeonMaster(true);
+        }
 
         filteredData.setPredicate(player -> {
-            boolean textMatch = searchText.isEmpty() ||
-                    player.getName().toLowerCase().contains(searchText) ||
-                    player.getUuid().toString().toLowerCase().contains(searchText);
-
-            boolean dmMatch = !dmsOnly || player.isDungeonMaster();
-
-            if (selectedHouse != null) {
-                boolean houseMatch = player.getCharacters().stream().anyMatch(c -> c.getHouse() == selectedHouse);
-                if (!houseMatch) return false;
+            if (!query.matches(player)) {
+                return false;
             }
 
             // --- The complex logic specific to group assignment ---
@@ -111,20 +108,36 @@ public class GroupAssignmentRosterTableView extends PlayerRosterTableView {
             }
             boolean selectedOnly = selectedFilterCheckbox.isSelected();
             Map<UUID, Player> partyMap = (currentGroup != null) ? currentGroup.getParty() : partyForNewGroup;
-            boolean selectedMatch = !selectedOnly || (partyMap != null && partyMap.containsKey(player.getUuid()));
-
-            return textMatch && dmMatch && selectedMatch;
+            return !selectedOnly || (partyMap != null && partyMap.containsKey(player.getUuid()));
         });
     }
 
+    /**
+     * Brings the roster in line with who is attending: players who left are taken out and new ones are
+     * patched in, rather than replacing the whole list. Edits to the players themselves arrive from the store.
+     */
     @Override
     public void updateRoster() {
         if(attendingPlayers != null) {
-            sourceItems.setAll(attendingPlayers.values());
+            for (Player player : List.copyOf(sourceItems)) {
+                if (!attendingPlayers.containsKey(player.getUuid())) {
+                    removeItem(player.getUuid());
+                }
+            }
+            for (Player player : attendingPlayers.values()) {
+                if (!containsItem(player.getUuid())) {
+                    putItem(player);
+                }
+            }
             applyFilter();
         }
     }
 
+    @Override
+    protected boolean accepts(Player player) {
+        return attendingPlayers != null && attendingPlayers.containsKey(player.getUuid());
+    }
+
     // --- Column Creation ---
 
     private TableColumn<Player, Boolean> createSelectedColumn() {
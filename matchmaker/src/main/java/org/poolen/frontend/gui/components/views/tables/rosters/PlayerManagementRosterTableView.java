@@ -8,17 +8,12 @@ import javafx.scene.control.CheckBox;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.cell.CheckBoxTableCell;
 import javafx.scene.control.cell.PropertyValueFactory;
-import org.poolen.backend.db.constants.House;
 import org.poolen.backend.db.entities.Player;
 import org.poolen.backend.db.interfaces.store.PlayerStoreProvider;
 import org.poolen.backend.db.persistence.StorePersistenceService;
-import org.poolen.backend.db.store.PlayerStore;
+import org.poolen.backend.db.store.PlayerQuery;
 import org.poolen.frontend.util.services.UiTaskExecutor;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 /**
@@ -28,8 +23,6 @@ import java.util.stream.Collectors;
  */
 public class PlayerManagementRosterTableView extends PlayerRosterTableView{
 
-    private final PlayerStore playerStore;
-
     // --- Filter Controls ---
     private CheckBox dmFilterCheckBox;
     private CheckBox attendingFilterCheckbox;
@@ -40,8 +33,7 @@ public class PlayerManagementRosterTableView extends PlayerRosterTableView{
     private TableColumn<Player, Boolean> dmingColumn;
 
     public PlayerManagementRosterTableView(PlayerStoreProvider storeProvider, StorePersistenceService storePersistenceService, UiTaskExecutor uiTaskExecutor) {
-        super(storePersistenceService, uiTaskExecutor);
-        this.playerStore = storeProvider.getPlayerStore();
+        super(storeProvider, storePersistenceService, uiTaskExecutor);
         setupTableColumns();
         setupFilters();
         updateRoster();
@@ -81,79 +73,25 @@ public class PlayerManagementRosterTableView extends PlayerRosterTableView{
 
     @Override
     public void applyFilter() {
-        String searchText = searchField.getText() == null ? "" : searchField.getText().toLowerCase();
-        boolean dmsOnly = dmFilterCheckBox.isSelected();
-        boolean attendingOnly = attendingFilterCheckbox.isSelected();
-        House selectedHouse = houseFilterBox.getValue();
-
-        filteredData.setPredicate(player -> {
-            boolean textMatch = searchText.isEmpty() ||
-                    player.getName().toLowerCase().contains(searchText) ||
-                    player.getUuid().toString().toLowerCase().contains(searchText);
-
-            boolean dmMatch = !dmsOnly || player.isDungeonMaster();
-            boolean attendingMatch = !attendingOnly || attendingPlayers.containsKey(player.getUuid());
-
-            if (selectedHouse != null) {
-                boolean houseMatch = player.getCharacters().stream().anyMatch(c -> c.getHouse() == selectedHouse);
-                if (!houseMatch) return false;
-            }
-
-            return textMatch && dmMatch && attendingMatch;
-        });
+        PlayerQuery query = playerStore.query()
+                .search(searchField.getText())
+                .house(houseFilterBox.getValue());
+        if (dmFilterCheckBox.isSelected()) {
+            query.dungeonMaster(true);
+        }
+        if (attendingFilterCheckbox.isSelected()) {
+            query.among(attendingPlayers.keySet());
+        }
+        filteredData.setPredicate(query::matches);
+        wakeSearchHits(searchField.getText());
     }
 
+    /**
+     * Reads every player from the store again. Single edits don't need this, as the roster follows the store.
+     */
     @Override
     public void updateRoster() {
-        // 1. Get the current UI list
-        // We still make a copy, as we'll be modifying the 'sourceItems' live
-        List<Player> currentPlayers = new ArrayList<>(sourceItems);
-
-        // 2. Make our lookup map for the *current* players
-        Map<UUID, Player> currentPlayerMap = currentPlayers.stream()
-                .collect(Collectors.toMap(Player::getUuid, player -> player));
-
-        // 3. Find players to REMOVE
-        // (Loop current players, check if they are missing from the new map)
-        List<Player> playersToRemove = currentPlayers.stream()
-                .filter(player -> !playerStore.hasPlayer(player))
-                .collect(Collectors.toList());
-
-        // 4. Find players to ADD
-        // (Loop new players, check if they are missing from the current map)
-        List<Player> playersToAdd = playerStore.getAllPlayers().stream()
-                .filter(player -> !currentPlayerMap.containsKey(player.getUuid()))
-                .collect(Collectors.toList());
-
-        // 5. Find players to UPDATE
-        // (Loop new players, check if they existed before AND have changed)
-        List<Player> playersToUpdate_RemoveOld = new ArrayList<>();
-        List<Player> playersToUpdate_AddNew = new ArrayList<>();
-
-        for (Player newPlayer : playerStore.getAllPlayers()) {
-            UUID id = newPlayer.getUuid();
-
-            // Check if this player *already* exists in our table
-            if (currentPlayerMap.containsKey(id)) {
-                Player oldPlayer = currentPlayerMap.get(id);
-
-                // Now we check if the data is different!
-                if (!newPlayer.deepEquals(oldPlayer)) {
-                    // The data changed! We schedule a swap.
-                    playersToUpdate_RemoveOld.add(oldPlayer);
-                    playersToUpdate_AddNew.add(newPlayer);
-                }
-            }
-        }
-
-        if(playersToRemove.size() > 0 || playersToUpdate_RemoveOld.size() > 0) {
-            sourceItems.removeAll(playersToRemove);
-            sourceItems.removeAll(playersToUpdate_RemoveOld);
-        }
-        if(playersToAdd.size() > 0 || playersToUpdate_AddNew.size() > 0) {
-            sourceItems.addAll(playersToAdd);
-            sourceItems.addAll(playersToUpdate_AddNew);
-        }
+        setItems(playerStore.getAllPlayers());
     }
 
 
@@ -166,7 +104,8 @@ public class PlayerManagementRosterTableView extends PlayerRosterTableView{
         searchField.setDisable(true);
         attendingColumn.setEditable(false);
         dmingColumn.setEditable(false);
-        filteredData.setPredicate(player -> editingPlayer.getBlacklist().contains(player.getUuid()));
+        filteredData.setPredicate(playerStore.query().blacklistedBy(editingPlayer)::matches);
+        wakeInBackground(editingPlayer.getBlacklist());
     }
 
     public void showAllPlayers() {
@@ -1,26 +1,63 @@
 package org.poolen.frontend.gui.components.views.tables.rosters;
 
+import javafx.animation.PauseTransition;
 import javafx.scene.control.TableRow;
+import javafx.util.Duration;
+import org.poolen.backend.db.entities.DormantPlayer;
 import org.poolen.backend.db.entities.Player;
+import org.poolen.backend.db.interfaces.store.PlayerStoreProvider;
 import org.poolen.backend.db.persistence.StorePersistenceService;
+import org.poolen.backend.db.store.PlayerStore;
+import org.poolen.backend.db.store.StoreChange;
 import org.poolen.frontend.util.services.UiTaskExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * The new abstract base class for our player tables.
  * It contains all the common functionality and delegates specific
  * implementation details (like columns, filters, and styling) to its children.
+ * It follows the player store, so the players edited elsewhere show up here without a full refresh.
  */
 public abstract class PlayerRosterTableView extends BaseRosterTableView<Player>{
+    private static final Logger logger = LoggerFactory.getLogger(PlayerRosterTableView.class);
+    // Searches shorter than this, or that hit more dormant players than the limit, don't wake anyone.
+    private static final int WAKE_MIN_SEARCH_LENGTH = 3;
+    private static final int WAKE_LIMIT = 25;
+    // How long typing has to pause before the search looks for dormant players.
+    private static final Duration WAKE_SEARCH_DELAY = Duration.millis(300);
+    // One thread for every roster, as the store takes the wakes one at a time anyway.
+    private static final ExecutorService wakeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "player-waker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // The players a wake is already queued or running for, so a second search doesn't read them again.
+    private static final Set<UUID> waking = ConcurrentHashMap.newKeySet();
+
+    protected final PlayerStore playerStore;
     protected Map<UUID, Player> attendingPlayers;
     protected Map<UUID, Player> dmingPlayers;
     protected Runnable onPlayerListChanged;
+    private final PauseTransition wakeSearchDelay = new PauseTransition(WAKE_SEARCH_DELAY);
+    private String wakeSearch;
 
-    public PlayerRosterTableView(StorePersistenceService storePersistenceService, UiTaskExecutor uiTaskExecutor) {
+    public PlayerRosterTableView(PlayerStoreProvider storeProvider, StorePersistenceService storePersistenceService, UiTaskExecutor uiTaskExecutor) {
         super(storePersistenceService, uiTaskExecutor);
+        this.playerStore = storeProvider.getPlayerStore();
         this.searchField.setPromptText("Search by name or UUID...");
+        this.playerStore.addChangeListener(this::onStoreChanged);
+        this.wakeSearchDelay.setOnFinished(event -> wakeSearchHitsNow(wakeSearch));
     }
     public void init(Map<UUID, Player> attendingPlayers, Map<UUID, Player> dmingPlayers, Runnable onPlayerListChanged) {
         this.attendingPlayers = attendingPlayers;
@@ -29,6 +66,58 @@ public abstract class PlayerRosterTableView extends BaseRosterTableView<Player>{
 
     }
 
+    @Override
+    protected UUID keyOf(Player player) {
+        return player.getUuid();
+    }
+
+    /**
+     * Wakes the dormant players the search text finds, so they show up in the roster like everyone else.
+     * Only the text typed last is looked up, once typing pauses.
+     */
+    protected void wakeSearchHits(String search) {
+        wakeSearchDelay.stop();
+        if (search == null || search.length() < WAKE_MIN_SEARCH_LENGTH) {
+            return;
+        }
+        wakeSearch = search;
+        wakeSearchDelay.playFromStart();
+    }
+
+    private void wakeSearchHitsNow(String search) {
+        List<DormantPlayer> hits = playerStore.findDormant(search);
+        if (!hits.isEmpty() && hits.size() <= WAKE_LIMIT) {
+            wakeInBackground(hits.stream().map(DormantPlayer::uuid).toList());
+        }
+    }
+
+    /**
+     * Wakes the dormant players among the given ones off the UI thread, skipping those a wake is already
+     * under way for. They join the roster through the store's change events once they are read.
+     */
+    protected void wakeInBackground(Collection<UUID> uuids) {
+        List<UUID> dormant = uuids.stream().filter(playerStore::isDormant).filter(waking::add).toList();
+        if (dormant.isEmpty()) {
+            return;
+        }
+        wakeExecutor.execute(() -> {
+            try {
+                playerStore.wakePlayers(dormant);
+            } catch (Exception e) {
+                logger.error("Failed to wake {} dormant players.", dormant.size(), e);
+            } finally {
+                dormant.forEach(waking::remove);
+            }
+        });
+    }
+
+    private void onStoreChanged(StoreChange change) {
+        StoreChange.EntityChanges players = change.players();
+        Set<UUID> changed = new HashSet<>(players.added());
+        changed.addAll(players.updated());
+        applyStoreChange(players.removed(), changed, playerStore::getPlayerByUuid);
+    }
+
     /**
      * This beautiful logic for colouring the rows is now neatly contained in its own
      * override, keeping it separate from the double-click logic which now lives
@@ -0,0 +1,14 @@
+package org.poolen.frontend.gui.interfaces;
+
+import org.poolen.backend.db.entities.Group;
+
+import java.util.OptionalDouble;
+import java.util.UUID;
+
+@FunctionalInterface
+public interface PlayerMovePreviewHandler {
+    /**
+     * @return How much the score would change if the player moved to the target group, or empty if it can't be told.
+     */
+    OptionalDouble previewMove(UUID sourceGroupUuid, UUID playerUuid, Group targetGroup);
+}
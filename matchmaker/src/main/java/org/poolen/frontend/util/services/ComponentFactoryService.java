@@ -259,7 +259,7 @@ public class ComponentFactoryService implements CoreProvider, StageProvider, Tab
     public GroupAssignmentRosterTableView getGroupAssignmentRosterTableView() {
         if (this.groupAssignmentRosterTableView == null) {
             logger.info("Creating singleton instance of GroupAssignmentRosterTableView.");
-            this.groupAssignmentRosterTableView = new GroupAssignmentRosterTableView(storePersistenceService, uiTaskExecutor);
+            this.groupAssignmentRosterTableView = new GroupAssignmentRosterTableView(store, storePersistenceService, uiTaskExecutor);
         }
         return this.groupAssignmentRosterTableView;
     }
@@ -34,24 +34,30 @@ public class UiPersistenceService {
      */
     public void findAllWithProgress(UiUpdater updater) {
         logger.info("Finding all data with progress updates...");
+        // Settings first, as they decide which players are only loaded as dormant stubs.
+        updater.updateStatus("Loading settings...");
+        storePersistenceService.findSettings();
         updater.updateStatus("Loading character data...");
         storePersistenceService.findCharacters();
         updater.updateStatus("Loading player data...");
         storePersistenceService.findPlayers();
-        updater.updateStatus("Loading settings...");
-        storePersistenceService.findSettings();
         logger.info("Finished finding all data.");
     }
 
+    /**
+     * Saves everything that changed since it was last saved or loaded, with progress updates.
+     * Anything that didn't change is left alone, so saving after one edit only writes that edit.
+     * @param updater The updater to update the UI message.
+     */
     public void saveAllWithProgress(UiUpdater updater) {
-        logger.info("Saving all data with progress updates...");
+        logger.info("Saving all changed data with progress updates...");
         updater.updateStatus("Saving player data...");
-        storePersistenceService.saveAllPlayers();
+        int players = storePersistenceService.saveChangedPlayers();
         updater.updateStatus("Saving character data...");
-        storePersistenceService.saveAllCharacters();
+        int characters = storePersistenceService.saveChangedCharacters();
         updater.updateStatus("Saving settings...");
-        storePersistenceService.saveAllSettings();
-        logger.info("Finished saving all data.");
+        int settings = storePersistenceService.saveChangedSettings();
+        logger.info("Finished saving all data: {} players, {} characters and {} settings changed.", players, characters, settings);
     }
 
     public void saveAll(Window owner, Runnable onDataChanged) {
@@ -165,7 +171,7 @@ public class UiPersistenceService {
                 "Settings saved!",
                 (updater) -> {
                     logger.debug("Background 'Save Settings' task started.");
-                    storePersistenceService.saveAllSettings();
+                    storePersistenceService.saveChangedSettings();
                     logger.debug("Background 'Save Settings' task finished.");
                     return "unused";
                 },
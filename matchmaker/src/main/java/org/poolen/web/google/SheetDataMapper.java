@@ -66,8 +66,8 @@ public class SheetDataMapper {
 
             row.add(group.getDungeonMaster() != null ? group.getDungeonMaster().getName() : "N/A");
             String playerNames = group.getParty().values().stream()
-                    .map(Player::getName)
-                    .sorted()
+                    .sorted(Comparator.comparing(Player::getName))
+                    .map(group::getPartyMemberLabel)
                     .collect(Collectors.joining(", "));
             row.add(playerNames);
             row.add("");